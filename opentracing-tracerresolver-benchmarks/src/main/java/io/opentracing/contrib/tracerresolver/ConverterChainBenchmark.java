@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import io.opentracing.Scope;
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import io.opentracing.noop.NoopTracerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of a chain of {@link TracerConverter converters} wrapping the no-op tracer, when starting spans.
+ * <p>
+ * Each converter wraps the tracer in a forwarding {@link DelegatingTracer},
+ * so a chain of one also measures the tracer returned by {@link TracerResolver#resolveDelegatingTracer}.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConverterChainBenchmark {
+
+    @Param({"0", "1", "2", "5", "10"})
+    public int converters;
+
+    private Tracer tracer;
+
+    @Setup
+    public void setUp() {
+        TracerConverter converter = new WrappingConverter();
+        Tracer converted = NoopTracerFactory.create();
+        for (int i = 0; i < converters; i++) {
+            converted = converter.convert(converted);
+        }
+        tracer = converted;
+    }
+
+    @Benchmark
+    public Span startAndFinishSpan() {
+        Span span = tracer.buildSpan("operation").start();
+        span.finish();
+        return span;
+    }
+
+    @Benchmark
+    public Span activateSpan() {
+        Span span = tracer.buildSpan("operation").start();
+        Scope scope = tracer.activateSpan(span);
+        try {
+            return tracer.activeSpan();
+        } finally {
+            scope.close();
+            span.finish();
+        }
+    }
+
+    static final class WrappingConverter implements TracerConverter {
+        @Override
+        public Tracer convert(Tracer existingTracer) {
+            return new DelegatingTracer(existingTracer);
+        }
+    }
+
+}
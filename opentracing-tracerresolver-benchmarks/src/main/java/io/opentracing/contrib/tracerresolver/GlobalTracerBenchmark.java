@@ -0,0 +1,92 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import io.opentracing.Tracer;
+import io.opentracing.noop.NoopTracerFactory;
+import io.opentracing.util.GlobalTracer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link TracerResolver#resolveTracer(ClassLoader)} with a registered, an unregistered
+ * or an absent {@code GlobalTracer}.
+ * <p>
+ * Caching is enabled, so the paths without a {@code GlobalTracer} measure the check plus a cache lookup.
+ * For the {@code absent} case the resolver is loaded by a {@link WithoutUtilClassLoader},
+ * so it runs as if {@code opentracing-util} was not on the classpath.
+ * All cases call the resolver through a method handle, so their overhead is the same.
+ * Every parameter runs in its own fork, as a {@code GlobalTracer} cannot be unregistered.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GlobalTracerBenchmark {
+
+    @Param({"absent", "unregistered", "registered"})
+    public String globalTracer;
+
+    private ServiceRoot serviceRoot;
+    private Class<?> resolverClass;
+    private MethodHandle resolveTracer;
+
+    @Setup
+    public void setUp() throws IOException, ReflectiveOperationException {
+        System.setProperty("tracerresolver.cached", "true");
+        ClassLoader parent = GlobalTracerBenchmark.class.getClassLoader();
+        if ("absent".equals(globalTracer)) {
+            parent = new WithoutUtilClassLoader(parent);
+        } else if ("registered".equals(globalTracer)) {
+            GlobalTracer.registerIfAbsent(NoopTracerFactory.create());
+        }
+        resolverClass = Class.forName(TracerResolver.class.getName(), true, parent);
+        resolveTracer = MethodHandles.publicLookup().findStatic(resolverClass, "resolveTracer",
+                MethodType.methodType(Tracer.class, ClassLoader.class));
+        serviceRoot = ServiceRoot.create(parent).declare(TracerFactory.class, ServiceRoot.NoopFactory.class);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException, ReflectiveOperationException {
+        resolverClass.getMethod("reload").invoke(null);
+        System.clearProperty("tracerresolver.cached");
+        serviceRoot.delete();
+    }
+
+    @Benchmark
+    public Tracer resolveTracer() throws Throwable {
+        return (Tracer) resolveTracer.invokeExact(serviceRoot.classLoader());
+    }
+
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.annotation.Priority;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link PriorityComparator#prioritize(Iterable)} for a number of providers,
+ * where the prioritized providers inherit their <code>{@literal @}Priority</code> through a number of superclasses.
+ * <p>
+ * Providers are a mix of inherited, negative, undefined and regular priorities.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrioritizeBenchmark {
+    private static final Class<?>[] CHAIN = {
+            Chain0.class, Chain1.class, Chain2.class, Chain3.class, Chain4.class, Chain5.class, Chain6.class,
+            Chain7.class, Chain8.class, Chain9.class, Chain10.class, Chain11.class, Chain12.class,
+            Chain13.class, Chain14.class, Chain15.class, Chain16.class};
+
+    @Param({"1", "10", "100", "1000"})
+    public int providers;
+
+    @Param({"0", "4", "16"})
+    public int inheritanceDepth;
+
+    private List<Object> values;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        values = new ArrayList<Object>(providers);
+        for (int i = 0; i < providers; i++) {
+            switch (i % 4) {
+                case 0:
+                    values.add(CHAIN[inheritanceDepth].getConstructor().newInstance());
+                    break;
+                case 1:
+                    values.add(new NegativePriority());
+                    break;
+                case 2:
+                    values.add(new UndefinedPriority());
+                    break;
+                default:
+                    values.add(new RegularPriority());
+            }
+        }
+    }
+
+    @Benchmark
+    public Iterable<Object> prioritize() {
+        return PriorityComparator.prioritize(values);
+    }
+
+    @Priority(-1)
+    public static class NegativePriority {
+    }
+
+    public static class UndefinedPriority {
+    }
+
+    @Priority(5)
+    public static class RegularPriority {
+    }
+
+    @Priority(10)
+    public static class Chain0 {
+    }
+
+    public static class Chain1 extends Chain0 {
+    }
+
+    public static class Chain2 extends Chain1 {
+    }
+
+    public static class Chain3 extends Chain2 {
+    }
+
+    public static class Chain4 extends Chain3 {
+    }
+
+    public static class Chain5 extends Chain4 {
+    }
+
+    public static class Chain6 extends Chain5 {
+    }
+
+    public static class Chain7 extends Chain6 {
+    }
+
+    public static class Chain8 extends Chain7 {
+    }
+
+    public static class Chain9 extends Chain8 {
+    }
+
+    public static class Chain10 extends Chain9 {
+    }
+
+    public static class Chain11 extends Chain10 {
+    }
+
+    public static class Chain12 extends Chain11 {
+    }
+
+    public static class Chain13 extends Chain12 {
+    }
+
+    public static class Chain14 extends Chain13 {
+    }
+
+    public static class Chain15 extends Chain14 {
+    }
+
+    public static class Chain16 extends Chain15 {
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import io.opentracing.Tracer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link TracerResolver#resolveTracer(ClassLoader)} with a single factory and converter,
+ * with and without caching, and with the factory found by the service loader or
+ * configured directly by {@code "tracerresolver.factory"}.
+ * <ul>
+ * <li>{@code resolveFirst}: the very first resolution in a fresh JVM, including class loading.</li>
+ * <li>{@code resolveCold}: resolution after the class loader was {@linkplain TracerResolver#invalidate invalidated},
+ * so all providers and converters are loaded again.</li>
+ * <li>{@code resolveWarm}: repeated resolution; served from the cache if caching is enabled.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResolveTracerBenchmark {
+
+    @Param({"false", "true"})
+    public boolean cached;
+
+    @Param({"false", "true"})
+    public boolean direct;
+
+    private ServiceRoot serviceRoot;
+
+    @Setup
+    public void setUp() throws IOException {
+        System.setProperty("tracerresolver.cached", Boolean.toString(cached));
+        if (direct) System.setProperty("tracerresolver.factory", ServiceRoot.NoopFactory.class.getName());
+        serviceRoot = ServiceRoot.create()
+                .declare(TracerFactory.class, ServiceRoot.NoopFactory.class)
+                .declare(TracerConverter.class, ServiceRoot.IdentityConverter.class);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        TracerResolver.reload();
+        System.clearProperty("tracerresolver.cached");
+        System.clearProperty("tracerresolver.factory");
+        serviceRoot.delete();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @Fork(10)
+    public Tracer resolveFirst() {
+        return TracerResolver.resolveTracer(serviceRoot.classLoader());
+    }
+
+    @Benchmark
+    public Tracer resolveCold() {
+        TracerResolver.invalidate(serviceRoot.classLoader());
+        return TracerResolver.resolveTracer(serviceRoot.classLoader());
+    }
+
+    @Benchmark
+    public Tracer resolveWarm() {
+        return TracerResolver.resolveTracer(serviceRoot.classLoader());
+    }
+
+}
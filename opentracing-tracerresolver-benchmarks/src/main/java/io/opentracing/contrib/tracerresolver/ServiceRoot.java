@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import io.opentracing.Tracer;
+import io.opentracing.noop.NoopTracerFactory;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+
+/**
+ * Temporary class path root declaring service providers, with a class loader to resolve them from.
+ */
+final class ServiceRoot {
+    private final File directory;
+    private final URLClassLoader classLoader;
+
+    private ServiceRoot(File directory, ClassLoader parent) throws IOException {
+        this.directory = directory;
+        this.classLoader = new URLClassLoader(new URL[]{directory.toURI().toURL()}, parent);
+    }
+
+    static ServiceRoot create() throws IOException {
+        return create(ServiceRoot.class.getClassLoader());
+    }
+
+    static ServiceRoot create(ClassLoader parent) throws IOException {
+        return new ServiceRoot(Files.createTempDirectory("tracerresolver-benchmark").toFile(), parent);
+    }
+
+    ClassLoader classLoader() {
+        return classLoader;
+    }
+
+    ServiceRoot declare(Class<?> service, Class<?>... implementations) throws IOException {
+        File servicesDir = new File(directory, "META-INF/services");
+        if (!servicesDir.isDirectory() && !servicesDir.mkdirs()) {
+            throw new IOException("Could not create " + servicesDir);
+        }
+        PrintWriter writer = new PrintWriter(new FileWriter(new File(servicesDir, service.getName())));
+        try {
+            for (Class<?> implementation : implementations) {
+                writer.println(implementation.getName());
+            }
+        } finally {
+            writer.close();
+        }
+        return this;
+    }
+
+    void delete() throws IOException {
+        classLoader.close();
+        delete(directory);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) for (File child : children) delete(child);
+        file.delete();
+    }
+
+    /**
+     * Factory returning the no-op tracer, so benchmarks measure resolution rather than tracer construction.
+     */
+    public static final class NoopFactory implements TracerFactory {
+        @Override
+        public Tracer getTracer() {
+            return NoopTracerFactory.create();
+        }
+    }
+
+    public static final class IdentityConverter implements TracerConverter {
+        @Override
+        public Tracer convert(Tracer existingTracer) {
+            return existingTracer;
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Class loader hiding {@code opentracing-util} from its own copy of the tracer resolver classes.
+ * <p>
+ * The {@code io.opentracing.contrib.tracerresolver} classes are defined again by this loader,
+ * so {@link TracerResolver} initializes as if {@code opentracing-util} was not on the classpath.
+ * All other classes, including the OpenTracing API, are delegated to the parent.
+ */
+final class WithoutUtilClassLoader extends ClassLoader {
+    private static final String UTIL_PACKAGE = "io.opentracing.util.";
+    private static final String RESOLVER_PACKAGE = TracerResolver.class.getPackage().getName() + ".";
+
+    WithoutUtilClassLoader(ClassLoader parent) {
+        super(parent);
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (name.startsWith(UTIL_PACKAGE)) {
+            throw new ClassNotFoundException(name);
+        } else if (!name.startsWith(RESOLVER_PACKAGE)) {
+            return super.loadClass(name, resolve);
+        }
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> type = findLoadedClass(name);
+            if (type == null) {
+                type = findClass(name);
+            }
+            if (resolve) {
+                resolveClass(type);
+            }
+            return type;
+        }
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class");
+        if (in == null) {
+            throw new ClassNotFoundException(name);
+        }
+        try {
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                    bytes.write(buffer, 0, read);
+                }
+                return defineClass(name, bytes.toByteArray(), 0, bytes.size());
+            } finally {
+                in.close();
+            }
+        } catch (IOException ioe) {
+            throw new ClassNotFoundException(name, ioe);
+        }
+    }
+
+}
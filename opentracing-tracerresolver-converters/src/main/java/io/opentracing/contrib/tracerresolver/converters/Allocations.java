@@ -0,0 +1,61 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver.converters;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Access to the number of bytes allocated by the current thread,
+ * on JVMs providing {@code com.sun.management.ThreadMXBean} with allocation measurement enabled.
+ */
+final class Allocations {
+    private static final Logger LOGGER = Logger.getLogger(Allocations.class.getName());
+    private static final com.sun.management.ThreadMXBean THREADS = threadMXBean();
+    static final boolean AVAILABLE = THREADS != null;
+
+    private Allocations() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @return The number of bytes allocated by the current thread so far, or {@code -1} if not available.
+     */
+    static long currentThread() {
+        return THREADS != null ? THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1L;
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        try {
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            if (threads instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+                if (allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled()) {
+                    return allocations;
+                }
+            }
+        } catch (LinkageError le) {
+            LOGGER.log(Level.FINEST, "Thread allocation measurement is not available.", le);
+        } catch (RuntimeException rte) {
+            LOGGER.log(Level.FINEST, "Thread allocation measurement is not available.", rte);
+        }
+        LOGGER.log(Level.FINE, "Allocated bytes cannot be measured on this JVM.");
+        return null;
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver.converters;
+
+import io.opentracing.Tracer;
+import io.opentracing.contrib.tracerresolver.TracerConverter;
+
+import javax.annotation.Priority;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Converter moving {@code Span.finish()} of the resolved tracer off the request thread,
+ * for tracers that serialize or enqueue spans synchronously when they are finished.
+ * <p>
+ * Enabled by configuring the queue capacity {@code "tracerresolver.async.capacity"}
+ * (e.g. {@code 8192} finished spans). Further settings:
+ * <ul>
+ * <li>{@code "tracerresolver.async.overflow"}: {@code drop} (default) or {@code block} when the queue is full,</li>
+ * <li>{@code "tracerresolver.async.batch"}: maximum number of spans finished in one batch ({@code 256} by default),</li>
+ * <li>{@code "tracerresolver.async.flush.timeout"}: maximum time in milliseconds to finish queued spans
+ * when the tracer is closed ({@code 5000} by default).</li>
+ * </ul>
+ * Without capacity, the resolved tracer is returned unchanged.
+ * <p>
+ * Each converted tracer starts a background thread that runs until the tracer is closed.
+ * This is meant for cached tracers ({@code "tracerresolver.cached"}); without caching,
+ * callers of {@code TracerResolver.resolveTracer()} must close every tracer they resolve.
+ * <p>
+ * With priority {@code -10}, this converter is applied before the {@link RateLimitingSamplerConverter},
+ * so unsampled spans are never queued.
+ *
+ * @see AsyncFinishTracer
+ */
+@Priority(-10)
+public final class AsyncFinishConverter implements TracerConverter {
+    private static final Logger LOGGER = Logger.getLogger(AsyncFinishConverter.class.getName());
+
+    @Override
+    public Tracer convert(Tracer existingTracer) {
+        int capacity = (int) Math.min(Settings.getNumber("tracerresolver.async.capacity", 0d), 1 << 30);
+        if (existingTracer == null || capacity <= 0) return existingTracer;
+        String overflow = Settings.get("tracerresolver.async.overflow", "drop");
+        boolean block = "block".equalsIgnoreCase(overflow);
+        if (!block && !"drop".equalsIgnoreCase(overflow)) {
+            LOGGER.log(Level.WARNING, "Ignoring tracerresolver.async.overflow of \"{0}\", expected drop or block.", overflow);
+        }
+        int batchSize = (int) Settings.getNumber("tracerresolver.async.batch", 256d);
+        long flushTimeoutMillis = (long) Settings.getNumber("tracerresolver.async.flush.timeout", 5000d);
+        AsyncFinishTracer tracer = new AsyncFinishTracer(existingTracer, capacity, block, batchSize, flushTimeoutMillis);
+        LOGGER.log(Level.FINE, "Finishing spans asynchronously with {0}.", tracer);
+        return tracer;
+    }
+
+}
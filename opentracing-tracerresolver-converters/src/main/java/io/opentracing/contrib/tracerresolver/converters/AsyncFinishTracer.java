@@ -0,0 +1,238 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver.converters;
+
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tracer finishing the spans of the resolved tracer on a background thread.
+ * <p>
+ * Finished spans are added to a bounded, lock-free queue; a background thread hands them to the
+ * delegate tracer in batches. The finish timestamp is taken when the span is finished,
+ * using a clock that is also used for the start timestamps, so durations are not affected.
+ * <p>
+ * The background thread sleeps while the queue is empty and is only woken up when a span is queued.
+ * <p>
+ * If the queue is full, a span is either dropped (counted by {@link #getDroppedSpans()})
+ * or the finishing thread waits until there is room, depending on the configured overflow behaviour.
+ * Closing the tracer finishes the queued spans for at most the flush timeout before closing the delegate.
+ * <p>
+ * Every tracer has its own background thread, which only stops when the tracer is {@linkplain #close() closed}.
+ * Without caching, every {@code TracerResolver.resolveTracer()} call creates a new tracer and thread,
+ * so its caller must close the tracer when it is no longer used.
+ *
+ * @see AsyncFinishConverter
+ */
+public final class AsyncFinishTracer extends ForwardingTracer {
+    private static final Logger LOGGER = Logger.getLogger(AsyncFinishTracer.class.getName());
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final BoundedQueue<AsyncFinishSpan> queue;
+    private final boolean blockWhenFull;
+    private final int batchSize;
+    private final long flushTimeoutMillis;
+    private final long epochMicros = System.currentTimeMillis() * 1000L;
+    private final long nanoTime = System.nanoTime();
+    private final AtomicLong droppedSpans = new AtomicLong();
+    private final Thread finisher;
+    private volatile boolean idle = false;
+    private volatile boolean closed = false;
+    private boolean finisherStopped = false; // guarded by queue, set once the closing thread took over consuming
+
+    AsyncFinishTracer(Tracer delegate, int capacity, boolean blockWhenFull, int batchSize, long flushTimeoutMillis) {
+        super(delegate);
+        this.queue = new BoundedQueue<AsyncFinishSpan>(capacity);
+        this.blockWhenFull = blockWhenFull;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushTimeoutMillis = flushTimeoutMillis;
+        this.finisher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                finishQueuedSpans();
+            }
+        }, "tracerresolver-async-finish");
+        this.finisher.setDaemon(true);
+        this.finisher.setContextClassLoader(null); // Must not keep an application class loader reachable
+        this.finisher.start();
+    }
+
+    /**
+     * @return The number of finished spans that were dropped because the queue was full.
+     */
+    public long getDroppedSpans() {
+        return droppedSpans.get();
+    }
+
+    /**
+     * @return The approximate number of finished spans that are queued, but not yet handed to the delegate tracer.
+     */
+    public int getQueuedSpans() {
+        return queue.size();
+    }
+
+    @Override
+    public SpanBuilder buildSpan(String operationName) {
+        return new AsyncFinishSpanBuilder(delegate.buildSpan(operationName));
+    }
+
+    /**
+     * Stops accepting finished spans, finishes the queued spans for at most the flush timeout
+     * and closes the delegate tracer.
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        LockSupport.unpark(finisher);
+        try {
+            finisher.join(Math.max(1L, flushTimeoutMillis));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        if (finisher.isAlive()) {
+            finisher.interrupt();
+            LOGGER.log(Level.WARNING, "Abandoning {0} queued spans, not finished within {1} ms.",
+                    new Object[]{queue.size(), flushTimeoutMillis});
+        } else {
+            synchronized (queue) {
+                finisherStopped = true;
+                finishRemaining();
+            }
+        }
+        delegate.close();
+    }
+
+    /**
+     * Finishes spans that were queued after the finisher stopped, e.g. by a thread that started finishing
+     * a span just before the tracer was closed. Only one thread at a time may consume the queue.
+     */
+    private void finishLateSpans() {
+        synchronized (queue) {
+            if (finisherStopped) finishRemaining();
+        }
+    }
+
+    private void finishRemaining() {
+        while (finishBatch() > 0) {
+            // The finisher has stopped, so the thread holding the queue lock is the only consumer
+        }
+    }
+
+    private long nowMicros() {
+        return epochMicros + (System.nanoTime() - nanoTime) / 1000L;
+    }
+
+    private void enqueue(AsyncFinishSpan span) {
+        while (!closed) {
+            if (queue.offer(span)) {
+                if (idle) LockSupport.unpark(finisher);
+                if (closed) finishLateSpans(); // Queued after closing, possibly after the last flush
+                return;
+            }
+            if (!blockWhenFull) {
+                droppedSpans.incrementAndGet();
+                return;
+            }
+            LockSupport.unpark(finisher);
+            LockSupport.parkNanos(this, IDLE_NANOS);
+        }
+        span.finishDelegate(); // closed, finish synchronously
+    }
+
+    private void finishQueuedSpans() {
+        while (!Thread.currentThread().isInterrupted()) {
+            if (finishBatch() == 0) {
+                if (closed) return;
+                idle = true;
+                if (queue.size() == 0 && !closed) { // Checked after announcing idleness, so no wake-up is missed
+                    LockSupport.park(this);
+                }
+                idle = false;
+            }
+        }
+    }
+
+    private int finishBatch() {
+        int finished = 0;
+        AsyncFinishSpan span;
+        while (finished < batchSize && (span = queue.poll()) != null) {
+            span.finishDelegate();
+            finished++;
+        }
+        return finished;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + '{' + delegate + ", queued=" + queue.size()
+                + ", dropped=" + droppedSpans.get() + '}';
+    }
+
+    private final class AsyncFinishSpanBuilder extends ForwardingSpanBuilder {
+        private boolean startTimestamp = false;
+
+        private AsyncFinishSpanBuilder(SpanBuilder delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public SpanBuilder withStartTimestamp(long microseconds) {
+            startTimestamp = true;
+            return super.withStartTimestamp(microseconds);
+        }
+
+        @Override
+        public Span start() {
+            if (!startTimestamp) delegate.withStartTimestamp(nowMicros());
+            return new AsyncFinishSpan(delegate.start());
+        }
+    }
+
+    private final class AsyncFinishSpan extends ForwardingSpan {
+        private long finishMicros;
+
+        private AsyncFinishSpan(Span delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void finish() {
+            finish(nowMicros());
+        }
+
+        @Override
+        public void finish(long finishMicros) {
+            this.finishMicros = finishMicros; // published to the finisher thread by the queue
+            enqueue(this);
+        }
+
+        private void finishDelegate() {
+            try {
+                delegate.finish(finishMicros);
+            } catch (RuntimeException rte) {
+                LOGGER.log(Level.WARNING, "Error finishing span " + delegate + ": " + rte.getMessage(), rte);
+            }
+        }
+    }
+
+}
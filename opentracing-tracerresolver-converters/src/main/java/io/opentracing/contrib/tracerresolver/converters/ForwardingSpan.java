@@ -0,0 +1,119 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver.converters;
+
+import io.opentracing.Span;
+import io.opentracing.SpanContext;
+import io.opentracing.tag.Tag;
+
+import java.util.Map;
+
+/**
+ * Base class for spans wrapping a span of the resolved tracer.
+ */
+abstract class ForwardingSpan implements Span {
+    final Span delegate;
+
+    ForwardingSpan(Span delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public SpanContext context() {
+        return delegate.context();
+    }
+
+    @Override
+    public Span setTag(String key, String value) {
+        delegate.setTag(key, value);
+        return this;
+    }
+
+    @Override
+    public Span setTag(String key, boolean value) {
+        delegate.setTag(key, value);
+        return this;
+    }
+
+    @Override
+    public Span setTag(String key, Number value) {
+        delegate.setTag(key, value);
+        return this;
+    }
+
+    @Override
+    public <T> Span setTag(Tag<T> tag, T value) {
+        delegate.setTag(tag, value);
+        return this;
+    }
+
+    @Override
+    public Span log(Map<String, ?> fields) {
+        delegate.log(fields);
+        return this;
+    }
+
+    @Override
+    public Span log(long timestampMicroseconds, Map<String, ?> fields) {
+        delegate.log(timestampMicroseconds, fields);
+        return this;
+    }
+
+    @Override
+    public Span log(String event) {
+        delegate.log(event);
+        return this;
+    }
+
+    @Override
+    public Span log(long timestampMicroseconds, String event) {
+        delegate.log(timestampMicroseconds, event);
+        return this;
+    }
+
+    @Override
+    public Span setBaggageItem(String key, String value) {
+        delegate.setBaggageItem(key, value);
+        return this;
+    }
+
+    @Override
+    public String getBaggageItem(String key) {
+        return delegate.getBaggageItem(key);
+    }
+
+    @Override
+    public Span setOperationName(String operationName) {
+        delegate.setOperationName(operationName);
+        return this;
+    }
+
+    @Override
+    public void finish() {
+        delegate.finish();
+    }
+
+    @Override
+    public void finish(long finishMicros) {
+        delegate.finish(finishMicros);
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+
+}
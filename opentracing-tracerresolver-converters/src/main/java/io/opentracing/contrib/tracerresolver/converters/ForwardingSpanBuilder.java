@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver.converters;
+
+import io.opentracing.Span;
+import io.opentracing.SpanContext;
+import io.opentracing.Tracer.SpanBuilder;
+import io.opentracing.tag.Tag;
+
+/**
+ * Base class for span builders wrapping the span builder of the resolved tracer.
+ * <p>
+ * Parent spans are passed to the delegate by their {@link Span#context() context},
+ * so the delegate never sees spans that were wrapped by a converter.
+ */
+abstract class ForwardingSpanBuilder implements SpanBuilder {
+    final SpanBuilder delegate;
+
+    ForwardingSpanBuilder(SpanBuilder delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public SpanBuilder asChildOf(SpanContext parent) {
+        delegate.asChildOf(parent);
+        return this;
+    }
+
+    @Override
+    public SpanBuilder asChildOf(Span parent) {
+        if (parent != null) delegate.asChildOf(parent.context());
+        return this;
+    }
+
+    @Override
+    public SpanBuilder addReference(String referenceType, SpanContext referencedContext) {
+        delegate.addReference(referenceType, referencedContext);
+        return this;
+    }
+
+    @Override
+    public SpanBuilder ignoreActiveSpan() {
+        delegate.ignoreActiveSpan();
+        return this;
+    }
+
+    @Override
+    public SpanBuilder withTag(String key, String value) {
+        delegate.withTag(key, value);
+        return this;
+    }
+
+    @Override
+    public SpanBuilder withTag(String key, boolean value) {
+        delegate.withTag(key, value);
+        return this;
+    }
+
+    @Override
+    public SpanBuilder withTag(String key, Number value) {
+        delegate.withTag(key, value);
+        return this;
+    }
+
+    @Override
+    public <T> SpanBuilder withTag(Tag<T> tag, T value) {
+        delegate.withTag(tag, value);
+        return this;
+    }
+
+    @Override
+    public SpanBuilder withStartTimestamp(long microseconds) {
+        delegate.withStartTimestamp(microseconds);
+        return this;
+    }
+
+    @Override
+    public Span start() {
+        return delegate.start();
+    }
+
+}
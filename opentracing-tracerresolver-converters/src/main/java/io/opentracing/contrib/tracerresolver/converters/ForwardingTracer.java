@@ -0,0 +1,76 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver.converters;
+
+import io.opentracing.Scope;
+import io.opentracing.ScopeManager;
+import io.opentracing.Span;
+import io.opentracing.SpanContext;
+import io.opentracing.Tracer;
+import io.opentracing.propagation.Format;
+
+/**
+ * Base class for tracers wrapping the resolved tracer, forwarding every call to the delegate tracer.
+ */
+abstract class ForwardingTracer implements Tracer {
+    final Tracer delegate;
+
+    ForwardingTracer(Tracer delegate) {
+        if (delegate == null) throw new NullPointerException("Delegate tracer is <null>.");
+        this.delegate = delegate;
+    }
+
+    @Override
+    public ScopeManager scopeManager() {
+        return delegate.scopeManager();
+    }
+
+    @Override
+    public Span activeSpan() {
+        return delegate.activeSpan();
+    }
+
+    @Override
+    public Scope activateSpan(Span span) {
+        return delegate.activateSpan(span);
+    }
+
+    @Override
+    public SpanBuilder buildSpan(String operationName) {
+        return delegate.buildSpan(operationName);
+    }
+
+    @Override
+    public <C> void inject(SpanContext spanContext, Format<C> format, C carrier) {
+        delegate.inject(spanContext, format, carrier);
+    }
+
+    @Override
+    public <C> SpanContext extract(Format<C> format, C carrier) {
+        return delegate.extract(format, carrier);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + '{' + delegate + '}';
+    }
+
+}
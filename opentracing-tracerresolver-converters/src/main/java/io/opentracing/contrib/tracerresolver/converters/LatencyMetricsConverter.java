@@ -0,0 +1,57 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver.converters;
+
+import io.opentracing.Tracer;
+import io.opentracing.contrib.tracerresolver.TracerConverter;
+
+import javax.annotation.Priority;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Converter recording latency histograms of the span start, finish, inject and extract operations
+ * of the resolved tracer, e.g. to compare tracer implementations and converter chains under real traffic.
+ * <p>
+ * Enabled by setting {@code "tracerresolver.metrics"} to {@code true}. Further settings:
+ * <ul>
+ * <li>{@code "tracerresolver.metrics.allocations"}: also measure the bytes allocated by one in this many operations
+ * (per operation type and thread stripe, {@code 0} by default to never measure them),</li>
+ * <li>{@code "tracerresolver.metrics.jmx"}: whether to register a {@link TracerMetricsMXBean}
+ * ({@code true} by default). It is unregistered when the tracer is closed, or after the tracer
+ * was garbage collected, the next time a bean is registered.</li>
+ * </ul>
+ * Snapshots can also be taken programmatically from {@link MetricsTracer#getMetrics()}.
+ * <p>
+ * With priority {@code -1000}, this converter is applied after the other converters in this module,
+ * so the measured latencies include them.
+ */
+@Priority(-1000)
+public final class LatencyMetricsConverter implements TracerConverter {
+    private static final Logger LOGGER = Logger.getLogger(LatencyMetricsConverter.class.getName());
+
+    @Override
+    public Tracer convert(Tracer existingTracer) {
+        if (existingTracer == null || !Settings.isTrue("tracerresolver.metrics", false)) return existingTracer;
+        int allocationSampleRate = (int) Math.min(Settings.getNumber("tracerresolver.metrics.allocations", 0d), 1 << 30);
+        TracerMetrics metrics = new TracerMetrics(existingTracer.toString(), allocationSampleRate);
+        MetricsTracer tracer = new MetricsTracer(existingTracer, metrics);
+        if (Settings.isTrue("tracerresolver.metrics.jmx", true)) metrics.register(tracer);
+        LOGGER.log(Level.FINE, "Recording latencies of {0}.", existingTracer);
+        return tracer;
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver.converters;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Striped, allocation-free latency histogram.
+ * <p>
+ * Latencies are counted in 64 power-of-two buckets of nanoseconds. Every thread records into one of several stripes
+ * (chosen by its thread id), so concurrent threads rarely update the same counters.
+ * Recording never allocates: it increments a bucket, adds to the total and possibly raises the maximum,
+ * all in a single preallocated {@link AtomicLongArray}. Stripes are only combined when a snapshot is taken.
+ */
+final class LatencyRecorder {
+    private static final int BUCKETS = 64;
+    private static final int TOTAL = BUCKETS;
+    private static final int MAX = BUCKETS + 1;
+    private static final int ALLOCATED = BUCKETS + 2;
+    private static final int ALLOCATION_SAMPLES = BUCKETS + 3;
+    private static final int TICKS = BUCKETS + 4;
+    private static final int STRIDE = BUCKETS + 8; // keeps the hot slots of adjacent stripes on different cache lines
+
+    private final int stripeMask;
+    private final int allocationSampleMask;
+    private final AtomicLongArray cells;
+
+    /**
+     * @param allocationSampleRate Measure allocated bytes for one in this many operations per stripe
+     *                             (rounded up to a power of two), or {@code 0} to never measure allocations.
+     */
+    LatencyRecorder(int allocationSampleRate) {
+        int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1) << 1;
+        this.stripeMask = stripes - 1;
+        this.allocationSampleMask = allocationSampleRate > 0 && Allocations.AVAILABLE
+                ? Integer.highestOneBit(allocationSampleRate * 2 - 1) - 1 : -1;
+        this.cells = new AtomicLongArray(stripes * STRIDE);
+    }
+
+    /**
+     * @return Whether the allocations of the next operation on this thread should be measured.
+     */
+    boolean sampleAllocation() {
+        return allocationSampleMask >= 0
+                && (cells.getAndIncrement(stripe() + TICKS) & allocationSampleMask) == 0;
+    }
+
+    void record(long nanos) {
+        int stripe = stripe();
+        cells.incrementAndGet(stripe + bucket(nanos));
+        cells.addAndGet(stripe + TOTAL, nanos);
+        for (long max = cells.get(stripe + MAX); nanos > max; max = cells.get(stripe + MAX)) {
+            if (cells.compareAndSet(stripe + MAX, max, nanos)) break;
+        }
+    }
+
+    void recordAllocation(long bytes) {
+        int stripe = stripe();
+        cells.addAndGet(stripe + ALLOCATED, bytes);
+        cells.incrementAndGet(stripe + ALLOCATION_SAMPLES);
+    }
+
+    LatencySnapshot snapshot() {
+        long[] buckets = new long[BUCKETS];
+        long total = 0L, max = 0L, allocated = 0L, allocationSamples = 0L;
+        for (int stripe = 0; stripe <= stripeMask * STRIDE; stripe += STRIDE) {
+            for (int bucket = 0; bucket < BUCKETS; bucket++) buckets[bucket] += cells.get(stripe + bucket);
+            total += cells.get(stripe + TOTAL);
+            max = Math.max(max, cells.get(stripe + MAX));
+            allocated += cells.get(stripe + ALLOCATED);
+            allocationSamples += cells.get(stripe + ALLOCATION_SAMPLES);
+        }
+        return new LatencySnapshot(buckets, total, max, allocationSamples > 0 ? allocated / allocationSamples : -1L);
+    }
+
+    long totalNanos() {
+        long total = 0L;
+        for (int stripe = 0; stripe <= stripeMask * STRIDE; stripe += STRIDE) total += cells.get(stripe + TOTAL);
+        return total;
+    }
+
+    void reset() {
+        for (int i = 0; i < cells.length(); i++) cells.set(i, 0L);
+    }
+
+    private int stripe() {
+        long id = Thread.currentThread().getId();
+        return ((int) ((id * 0x9E3779B97F4A7C15L) >>> 40) & stripeMask) * STRIDE;
+    }
+
+    /**
+     * @return The bucket of a latency: {@code 0} for zero, otherwise {@code b} for latencies from {@code 2^(b-1)}
+     * up to {@code 2^b - 1} nanoseconds.
+     */
+    static int bucket(long nanos) {
+        return nanos <= 0L ? 0 : Math.min(BUCKETS - 1, BUCKETS - Long.numberOfLeadingZeros(nanos));
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver.converters;
+
+/**
+ * Immutable snapshot of the latencies recorded for one tracer operation.
+ * <p>
+ * Percentiles are estimated from power-of-two buckets: each percentile is the upper bound of its bucket
+ * (limited by the maximum), so it overestimates by less than a factor two.
+ */
+public final class LatencySnapshot {
+    private final long count;
+    private final long totalNanos;
+    private final long maxNanos;
+    private final long p50Nanos;
+    private final long p90Nanos;
+    private final long p99Nanos;
+    private final long p999Nanos;
+    private final long allocatedBytesPerOperation;
+
+    LatencySnapshot(long[] buckets, long totalNanos, long maxNanos, long allocatedBytesPerOperation) {
+        long count = 0L;
+        for (long bucket : buckets) count += bucket;
+        this.count = count;
+        this.totalNanos = totalNanos;
+        this.maxNanos = maxNanos;
+        this.p50Nanos = percentile(buckets, count, maxNanos, 0.5d);
+        this.p90Nanos = percentile(buckets, count, maxNanos, 0.9d);
+        this.p99Nanos = percentile(buckets, count, maxNanos, 0.99d);
+        this.p999Nanos = percentile(buckets, count, maxNanos, 0.999d);
+        this.allocatedBytesPerOperation = allocatedBytesPerOperation;
+    }
+
+    private static long percentile(long[] buckets, long count, long maxNanos, double quantile) {
+        long rank = (long) Math.ceil(quantile * count);
+        long cumulative = 0L;
+        for (int bucket = 0; bucket < buckets.length; bucket++) {
+            cumulative += buckets[bucket];
+            if (cumulative >= rank && cumulative > 0L) {
+                return bucket == 0 ? 0L : Math.min(maxNanos, (1L << bucket) - 1L);
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * @return The number of recorded operations.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return The total time of all recorded operations in nanoseconds.
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * @return The mean time of the recorded operations in nanoseconds, or {@code 0} if none were recorded.
+     */
+    public long getMeanNanos() {
+        return count > 0L ? totalNanos / count : 0L;
+    }
+
+    /**
+     * @return The maximum time of a recorded operation in nanoseconds.
+     */
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    /**
+     * @return The estimated median time in nanoseconds.
+     */
+    public long getP50Nanos() {
+        return p50Nanos;
+    }
+
+    /**
+     * @return The estimated 90th percentile in nanoseconds.
+     */
+    public long getP90Nanos() {
+        return p90Nanos;
+    }
+
+    /**
+     * @return The estimated 99th percentile in nanoseconds.
+     */
+    public long getP99Nanos() {
+        return p99Nanos;
+    }
+
+    /**
+     * @return The estimated 99.9th percentile in nanoseconds.
+     */
+    public long getP999Nanos() {
+        return p999Nanos;
+    }
+
+    /**
+     * @return The mean number of bytes allocated per sampled operation,
+     * or {@code -1} if allocations were not sampled.
+     */
+    public long getAllocatedBytesPerOperation() {
+        return allocatedBytesPerOperation;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{count=" + count
+                + ", meanNanos=" + getMeanNanos()
+                + ", p50Nanos=" + p50Nanos
+                + ", p99Nanos=" + p99Nanos
+                + ", maxNanos=" + maxNanos
+                + (allocatedBytesPerOperation >= 0L ? ", allocatedBytesPerOperation=" + allocatedBytesPerOperation : "")
+                + '}';
+    }
+
+}
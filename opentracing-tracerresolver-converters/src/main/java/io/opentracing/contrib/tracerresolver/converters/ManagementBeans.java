@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver.converters;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Registers the management beans of converted tracers in the platform MBean server, numbered in sequence.
+ * <p>
+ * The MBean server references its beans strongly, and a bean keeps the class loader of its class reachable.
+ * Therefore each bean is registered on behalf of an owner, normally the converted tracer, which is only
+ * referenced weakly. Beans of owners that were garbage collected without being closed
+ * are unregistered the next time a bean is registered.
+ */
+final class ManagementBeans {
+    private static final Logger LOGGER = Logger.getLogger(ManagementBeans.class.getName());
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+    private static final ReferenceQueue<Object> UNREACHABLE = new ReferenceQueue<Object>();
+    private static final ConcurrentMap<String, Registration> REGISTRATIONS =
+            new ConcurrentHashMap<String, Registration>(); // Keeps the weak references themselves reachable
+
+    private ManagementBeans() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @param bean             The management bean to register.
+     * @param objectNamePrefix The object name prefix, to be followed by a sequence number.
+     * @param owner            The object the bean is registered for, the bean is unregistered once it is unreachable.
+     * @return The object name the bean was registered with, or {@code null} if it could not be registered.
+     */
+    static String register(Object bean, String objectNamePrefix, Object owner) {
+        expungeUnreachable();
+        String name = objectNamePrefix + SEQUENCE.incrementAndGet();
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(bean, new ObjectName(name));
+            REGISTRATIONS.put(name, new Registration(owner, name));
+            LOGGER.log(Level.FINE, "Registered {0} as {1}.", new Object[]{bean, name});
+            return name;
+        } catch (JMException jme) {
+            LOGGER.log(Level.WARNING, "Could not register " + name + ": " + jme.getMessage(), jme);
+        } catch (LinkageError le) { // e.g. a runtime image without the java.management module
+            LOGGER.log(Level.WARNING, "Could not register " + name + ", JMX is not available: " + le.getMessage(), le);
+        }
+        return null;
+    }
+
+    static void unregister(String objectName) {
+        if (objectName == null || REGISTRATIONS.remove(objectName) == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(objectName));
+        } catch (JMException jme) {
+            LOGGER.log(Level.FINE, "Could not unregister " + objectName + ": " + jme.getMessage(), jme);
+        }
+    }
+
+    private static void expungeUnreachable() {
+        for (Reference<?> ref = UNREACHABLE.poll(); ref != null; ref = UNREACHABLE.poll()) {
+            String objectName = ((Registration) ref).objectName;
+            LOGGER.log(Level.FINE, "Unregistering {0}, its tracer is no longer reachable.", objectName);
+            unregister(objectName);
+        }
+    }
+
+    /**
+     * Weak reference to the owner of a registered bean, with the object name to unregister.
+     */
+    private static final class Registration extends WeakReference<Object> {
+        private final String objectName;
+
+        private Registration(Object owner, String objectName) {
+            super(owner, UNREACHABLE);
+            this.objectName = objectName;
+        }
+    }
+
+}
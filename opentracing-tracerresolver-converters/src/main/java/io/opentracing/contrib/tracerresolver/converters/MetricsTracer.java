@@ -0,0 +1,146 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver.converters;
+
+import io.opentracing.Span;
+import io.opentracing.SpanContext;
+import io.opentracing.Tracer;
+import io.opentracing.contrib.tracerresolver.converters.TracerMetrics.Operation;
+import io.opentracing.propagation.Format;
+
+/**
+ * Tracer recording the latencies of the span start, finish, inject and extract operations of the delegate tracer.
+ * <p>
+ * The start latency includes {@code buildSpan} and {@code start}, but not adding tags or references.
+ * Recording takes two {@link System#nanoTime()} calls and a few atomic increments per operation.
+ * Each started span allocates a small builder and span wrapper, to measure its start and finish.
+ *
+ * @see LatencyMetricsConverter
+ */
+public final class MetricsTracer extends ForwardingTracer {
+    private final TracerMetrics metrics;
+    private final LatencyRecorder start;
+    private final LatencyRecorder finish;
+    private final LatencyRecorder inject;
+    private final LatencyRecorder extract;
+
+    MetricsTracer(Tracer delegate, TracerMetrics metrics) {
+        super(delegate);
+        this.metrics = metrics;
+        this.start = metrics.recorder(Operation.START);
+        this.finish = metrics.recorder(Operation.FINISH);
+        this.inject = metrics.recorder(Operation.INJECT);
+        this.extract = metrics.recorder(Operation.EXTRACT);
+    }
+
+    /**
+     * @return The recorded latencies of this tracer.
+     */
+    public TracerMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public SpanBuilder buildSpan(String operationName) {
+        long allocated = start.sampleAllocation() ? Allocations.currentThread() : -1L;
+        long startNanos = System.nanoTime();
+        SpanBuilder builder = delegate.buildSpan(operationName);
+        return new MetricsSpanBuilder(builder, System.nanoTime() - startNanos, allocated);
+    }
+
+    @Override
+    public <C> void inject(SpanContext spanContext, Format<C> format, C carrier) {
+        long allocated = inject.sampleAllocation() ? Allocations.currentThread() : -1L;
+        long startNanos = System.nanoTime();
+        try {
+            delegate.inject(spanContext, format, carrier);
+        } finally {
+            recorded(inject, startNanos, allocated);
+        }
+    }
+
+    @Override
+    public <C> SpanContext extract(Format<C> format, C carrier) {
+        long allocated = extract.sampleAllocation() ? Allocations.currentThread() : -1L;
+        long startNanos = System.nanoTime();
+        try {
+            return delegate.extract(format, carrier);
+        } finally {
+            recorded(extract, startNanos, allocated);
+        }
+    }
+
+    @Override
+    public void close() {
+        metrics.unregister();
+        super.close();
+    }
+
+    private static void recorded(LatencyRecorder recorder, long startNanos, long allocatedBefore) {
+        recorder.record(System.nanoTime() - startNanos);
+        if (allocatedBefore >= 0L) recorder.recordAllocation(Allocations.currentThread() - allocatedBefore);
+    }
+
+    private final class MetricsSpanBuilder extends ForwardingSpanBuilder {
+        private final long buildNanos;
+        private final long allocatedBefore;
+
+        private MetricsSpanBuilder(SpanBuilder delegate, long buildNanos, long allocatedBefore) {
+            super(delegate);
+            this.buildNanos = buildNanos;
+            this.allocatedBefore = allocatedBefore;
+        }
+
+        @Override
+        public Span start() {
+            long startNanos = System.nanoTime() - buildNanos;
+            try {
+                return new MetricsSpan(delegate.start());
+            } finally {
+                recorded(start, startNanos, allocatedBefore);
+            }
+        }
+    }
+
+    private final class MetricsSpan extends ForwardingSpan {
+        private MetricsSpan(Span delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void finish() {
+            long allocated = finish.sampleAllocation() ? Allocations.currentThread() : -1L;
+            long startNanos = System.nanoTime();
+            try {
+                delegate.finish();
+            } finally {
+                recorded(finish, startNanos, allocated);
+            }
+        }
+
+        @Override
+        public void finish(long finishMicros) {
+            long allocated = finish.sampleAllocation() ? Allocations.currentThread() : -1L;
+            long startNanos = System.nanoTime();
+            try {
+                delegate.finish(finishMicros);
+            } finally {
+                recorded(finish, startNanos, allocated);
+            }
+        }
+    }
+
+}
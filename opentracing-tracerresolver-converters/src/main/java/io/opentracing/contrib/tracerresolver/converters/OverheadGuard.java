@@ -0,0 +1,189 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver.converters;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link Sampler} degrading tracing when the time spent in the tracer exceeds a share of the available processor time.
+ * <p>
+ * The time spent in the tracer is the wall-clock time of its calls, measured by a {@link MetricsTracer}.
+ * It is compared to the elapsed wall-clock time multiplied by the number of processors,
+ * and evaluated over a sliding window of {@value #SLOTS} slots.
+ * Evaluation piggybacks on started spans: the first span after a slot has elapsed evaluates it,
+ * so no background thread is needed.
+ * <p>
+ * When the overhead exceeds the budget, tracing is degraded one state at a time:
+ * from {@code NORMAL} to {@code REDUCED} (only a share of new traces is sampled) to {@code NOOP} (no spans at all).
+ * When the overhead stays below half the budget, tracing recovers one state at a time.
+ * After each change, a full window is measured before the next change, which prevents flapping.
+ */
+final class OverheadGuard implements Sampler, OverheadGuardMXBean {
+    private static final Logger LOGGER = Logger.getLogger(OverheadGuard.class.getName());
+    static final int SLOTS = 5;
+    private static final double RECOVERY_THRESHOLD = 0.5d;
+
+    enum State {
+        NORMAL, REDUCED, NOOP
+    }
+
+    private final TracerMetrics metrics;
+    private final double budget;
+    private final long keepEvery;
+    private final long slotNanos;
+    private final int processors = Math.max(1, Runtime.getRuntime().availableProcessors());
+    private final AtomicLong slotStart = new AtomicLong(System.nanoTime());
+    private final AtomicLong traces = new AtomicLong();
+    private final AtomicLong degradations = new AtomicLong();
+    private final AtomicLong recoveries = new AtomicLong();
+    private volatile State state = State.NORMAL;
+    private volatile double overheadShare = 0d;
+    private volatile String objectName = null;
+
+    // Only accessed while evaluating (synchronized)
+    private final long[] overheadNanos = new long[SLOTS];
+    private final long[] elapsedNanos = new long[SLOTS];
+    private long lastTotalNanos = 0L;
+    private int slot = 0;
+    private int measuredSlots = 0;
+
+    /**
+     * @param metrics      The metrics measuring the time spent in the tracer.
+     * @param budget       The maximum share of the available processor time to spend in the tracer (e.g. {@code 0.01}),
+     *                     measured as wall-clock time.
+     * @param reducedShare The share of new traces to sample in the {@code REDUCED} state (e.g. {@code 0.1}).
+     * @param windowMillis The length of the sliding window in milliseconds.
+     */
+    OverheadGuard(TracerMetrics metrics, double budget, double reducedShare, long windowMillis) {
+        this.metrics = metrics;
+        this.budget = budget;
+        this.keepEvery = reducedShare > 0d ? Math.max(1L, Math.round(1d / reducedShare)) : Long.MAX_VALUE;
+        this.slotNanos = Math.max(1L, TimeUnit.MILLISECONDS.toNanos(windowMillis) / SLOTS);
+    }
+
+    @Override
+    public boolean sampleSpans() {
+        long now = System.nanoTime();
+        long start = slotStart.get();
+        if (now - start >= slotNanos && slotStart.compareAndSet(start, now)) evaluate(now - start);
+        return state != State.NOOP;
+    }
+
+    @Override
+    public boolean sampleTrace() {
+        State current = state;
+        return current == State.NORMAL || current == State.REDUCED && traces.getAndIncrement() % keepEvery == 0L;
+    }
+
+    /**
+     * Evaluates a slot of the sliding window and changes state if needed.
+     *
+     * @param elapsed The length of the slot in nanoseconds.
+     */
+    synchronized void evaluate(long elapsed) {
+        long totalNanos = metrics.totalNanos();
+        overheadNanos[slot] = Math.max(0L, totalNanos - lastTotalNanos);
+        elapsedNanos[slot] = elapsed;
+        lastTotalNanos = totalNanos;
+        slot = (slot + 1) % SLOTS;
+        measuredSlots++;
+
+        long overhead = 0L, available = 0L;
+        for (int i = 0; i < SLOTS; i++) {
+            overhead += overheadNanos[i];
+            available += elapsedNanos[i];
+        }
+        double share = available > 0L ? (double) overhead / ((double) available * processors) : 0d;
+        overheadShare = share;
+        if (measuredSlots < SLOTS) return; // A full window after each change
+
+        State current = state;
+        if (share > budget && current != State.NOOP) {
+            changeState(current, State.values()[current.ordinal() + 1], share);
+            degradations.incrementAndGet();
+        } else if (share < budget * RECOVERY_THRESHOLD && current != State.NORMAL) {
+            changeState(current, State.values()[current.ordinal() - 1], share);
+            recoveries.incrementAndGet();
+        }
+    }
+
+    private void changeState(State from, State to, double share) {
+        state = to;
+        measuredSlots = 0;
+        for (int i = 0; i < SLOTS; i++) overheadNanos[i] = elapsedNanos[i] = 0L;
+        LOGGER.log(to.ordinal() > from.ordinal() ? Level.WARNING : Level.INFO,
+                "Tracing overhead of {0,number,#.####} with budget {1,number,#.####}, changing from {2} to {3}.",
+                new Object[]{share, budget, from, to});
+    }
+
+    TracerMetrics metrics() {
+        return metrics;
+    }
+
+    State state() {
+        return state;
+    }
+
+    @Override
+    public String getState() {
+        return state.name();
+    }
+
+    @Override
+    public double getOverheadShare() {
+        return overheadShare;
+    }
+
+    @Override
+    public double getBudget() {
+        return budget;
+    }
+
+    @Override
+    public long getDegradations() {
+        return degradations.get();
+    }
+
+    @Override
+    public long getRecoveries() {
+        return recoveries.get();
+    }
+
+    String objectName() {
+        return objectName;
+    }
+
+    /**
+     * @param owner The tracer this bean is registered for; the bean is unregistered once the tracer is unreachable.
+     */
+    synchronized void register(Object owner) {
+        if (objectName == null) objectName = ManagementBeans.register(this, OBJECT_NAME_PREFIX, owner);
+    }
+
+    synchronized void unregister() {
+        ManagementBeans.unregister(objectName);
+        objectName = null;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{state=" + state + ", budget=" + budget + '}';
+    }
+
+}
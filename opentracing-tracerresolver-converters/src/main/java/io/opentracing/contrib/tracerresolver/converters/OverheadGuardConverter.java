@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver.converters;
+
+import io.opentracing.Tracer;
+import io.opentracing.contrib.tracerresolver.TracerConverter;
+
+import javax.annotation.Priority;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Converter throttling tracing when the time spent in the resolved tracer exceeds a share of the available
+ * processor time, e.g. when tracing overhead grows with a traffic spike.
+ * <p>
+ * Enabled by configuring the budget {@code "tracerresolver.guard.budget"}, e.g. {@code 0.02} to spend at most
+ * 2% of the elapsed time of all processors in calls of the tracer. Further settings:
+ * <ul>
+ * <li>{@code "tracerresolver.guard.reduced"}: the share of new traces that is sampled when tracing is reduced
+ * ({@code 0.1} by default),</li>
+ * <li>{@code "tracerresolver.guard.window"}: the length of the sliding window in milliseconds
+ * ({@code 5000} by default),</li>
+ * <li>{@code "tracerresolver.guard.jmx"}: whether to register an {@link OverheadGuardMXBean}
+ * ({@code true} by default).</li>
+ * </ul>
+ * The time spent in the tracer is measured as wall-clock time, not as CPU time, as measuring the CPU time of the
+ * current thread for every call would cost more than most tracer operations. Time the tracer spends blocked,
+ * e.g. waiting for a lock or a full buffer, therefore counts as overhead as well.
+ * <p>
+ * When the overhead exceeds the budget, only a share of the new traces is sampled and if that does not suffice,
+ * only no-op spans are returned. Tracing recovers one step at a time once the overhead stays below half the budget.
+ * Every change is logged and counted by the {@link OverheadGuardMXBean}.
+ * <p>
+ * With priority {@code -200}, this converter is applied after the {@link RateLimitingSamplerConverter},
+ * so the measured time includes the converters of tracer implementations and the sampler.
+ */
+@Priority(-200)
+public final class OverheadGuardConverter implements TracerConverter {
+    private static final Logger LOGGER = Logger.getLogger(OverheadGuardConverter.class.getName());
+
+    @Override
+    public Tracer convert(Tracer existingTracer) {
+        double budget = Settings.getNumber("tracerresolver.guard.budget", 0d);
+        if (existingTracer == null || !(budget > 0d)) return existingTracer;
+        double reducedShare = Settings.getNumber("tracerresolver.guard.reduced", 0.1d);
+        long windowMillis = (long) Settings.getNumber("tracerresolver.guard.window", 5000d);
+
+        MetricsTracer measured = new MetricsTracer(existingTracer, new TracerMetrics(existingTracer.toString(), 0));
+        final OverheadGuard guard = new OverheadGuard(measured.getMetrics(), budget, reducedShare, windowMillis);
+        SamplingTracer tracer = new SamplingTracer(measured, guard) {
+            @Override
+            public void close() {
+                guard.unregister();
+                super.close();
+            }
+        };
+        if (Settings.isTrue("tracerresolver.guard.jmx", true)) guard.register(tracer);
+        LOGGER.log(Level.FINE, "Guarding the overhead of {0} with {1}.", new Object[]{existingTracer, guard});
+        return tracer;
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver.converters;
+
+/**
+ * Management interface exposing the state of the overhead guard of a resolved tracer.
+ * <p>
+ * Each tracer converted by the {@link OverheadGuardConverter} is registered as
+ * {@value #OBJECT_NAME_PREFIX}{@code <n>} until it is closed, unless {@code "tracerresolver.guard.jmx"} is {@code false}.
+ */
+public interface OverheadGuardMXBean {
+
+    /**
+     * The object name prefix the beans are registered with in the platform MBean server,
+     * followed by a sequence number.
+     */
+    String OBJECT_NAME_PREFIX = "io.opentracing.contrib.tracerresolver:type=OverheadGuard,name=tracer-";
+
+    /**
+     * @return The current state: {@code NORMAL}, {@code REDUCED} (only a share of new traces is sampled)
+     * or {@code NOOP} (no spans are sampled).
+     */
+    String getState();
+
+    /**
+     * @return The wall-clock time spent in calls of the tracer during the last window, as a share of the
+     * elapsed time of all processors.
+     */
+    double getOverheadShare();
+
+    /**
+     * @return The configured maximum share of the elapsed time of all processors to spend in calls of the tracer.
+     */
+    double getBudget();
+
+    /**
+     * @return The number of times tracing was degraded because the overhead exceeded the budget.
+     */
+    long getDegradations();
+
+    /**
+     * @return The number of times tracing recovered because the overhead was well within the budget.
+     */
+    long getRecoveries();
+
+}
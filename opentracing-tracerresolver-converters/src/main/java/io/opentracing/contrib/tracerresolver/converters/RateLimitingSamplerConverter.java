@@ -0,0 +1,56 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver.converters;
+
+import io.opentracing.Tracer;
+import io.opentracing.contrib.tracerresolver.TracerConverter;
+
+import javax.annotation.Priority;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Head-based sampler limiting the number of new traces per second.
+ * <p>
+ * Enabled by configuring {@code "tracerresolver.sampler.rate"} (traces per second) as system property,
+ * environment variable ({@code TRACERRESOLVER_SAMPLER_RATE}) or in the tracer resolver configuration file.
+ * Up to {@code "tracerresolver.sampler.burst"} traces (by default one second's worth) may be started at once.
+ * Without rate, the resolved tracer is returned unchanged.
+ * <p>
+ * The sampling decision is made when the root span of a trace is started, using a lock-free token bucket.
+ * Spans of unsampled traces are no-op spans that never reach the span builder of the resolved tracer.
+ * Child spans follow the decision of their parent; traces continued from an extracted context are always sampled.
+ * A {@code sampling.priority} tag overrides the decision ({@code 0} to drop, positive to keep the trace).
+ * <p>
+ * With priority {@code -100}, this converter is applied after the converters of tracer implementations,
+ * so unsampled spans also bypass their wrappers.
+ */
+@Priority(-100)
+public final class RateLimitingSamplerConverter implements TracerConverter {
+    private static final Logger LOGGER = Logger.getLogger(RateLimitingSamplerConverter.class.getName());
+
+    @Override
+    public Tracer convert(Tracer existingTracer) {
+        double rate = Settings.getNumber("tracerresolver.sampler.rate", 0d);
+        if (existingTracer == null || !(rate > 0)) return existingTracer;
+        double burst = Settings.getNumber("tracerresolver.sampler.burst", Math.max(1d, rate));
+        SamplingTracer sampler = new SamplingTracer(existingTracer, new TokenBucket(rate, burst));
+        LOGGER.log(Level.FINE, "Sampling at most {0} traces per second (burst {1}) of {2}.",
+                new Object[]{rate, burst, existingTracer});
+        return sampler;
+    }
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver.converters;
+
+/**
+ * Head-based sampling strategy of a {@link SamplingTracer}.
+ */
+interface Sampler {
+
+    /**
+     * Decides whether a new trace is sampled, when its root span is started.
+     *
+     * @return Whether to sample the new trace.
+     */
+    boolean sampleTrace();
+
+    /**
+     * Called for every span that is started, before any other decision.
+     *
+     * @return Whether spans may be sampled at all, {@code false} to return no-op spans only.
+     */
+    boolean sampleSpans();
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver.converters;
+
+import io.opentracing.References;
+import io.opentracing.Span;
+import io.opentracing.SpanContext;
+import io.opentracing.Tracer;
+import io.opentracing.noop.NoopSpan;
+import io.opentracing.noop.NoopSpanContext;
+import io.opentracing.propagation.Format;
+import io.opentracing.tag.Tag;
+import io.opentracing.tag.Tags;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tracer returning no-op spans for traces that are not sampled by its {@link Sampler}.
+ * <p>
+ * The sampler decides when the root span of a trace is started. Child spans follow the decision of their parent
+ * and a {@code sampling.priority} tag overrides it, unless the sampler {@linkplain Sampler#sampleSpans() drops all spans}.
+ * <p>
+ * The span builder only records what is needed to decide; the span builder of the delegate tracer
+ * is created (and the recorded references and tags are replayed) only for sampled spans.
+ */
+class SamplingTracer extends ForwardingTracer {
+    private static final Object NULL_NUMBER = new Object(); // recorded instead of a null Number tag value
+    final Sampler sampler;
+
+    SamplingTracer(Tracer delegate, Sampler sampler) {
+        super(delegate);
+        this.sampler = sampler;
+    }
+
+    @Override
+    public SpanBuilder buildSpan(String operationName) {
+        return new SamplingSpanBuilder(operationName);
+    }
+
+    @Override
+    public <C> void inject(SpanContext spanContext, Format<C> format, C carrier) {
+        // Unsampled traces are not propagated, the delegate doesn't know no-op contexts
+        if (!(spanContext instanceof NoopSpanContext)) delegate.inject(spanContext, format, carrier);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + '{' + delegate + ", " + sampler + '}';
+    }
+
+    private final class SamplingSpanBuilder implements SpanBuilder {
+        private final String operationName;
+        private List<Object> references = null; // pairs of reference type and span context
+        private List<Object> tags = null; // pairs of key (String or Tag) and value, replayed to the same overload
+        private boolean ignoreActiveSpan = false;
+        private long startTimestamp = 0L;
+        private Boolean forcedDecision = null;
+
+        private SamplingSpanBuilder(String operationName) {
+            this.operationName = operationName;
+        }
+
+        @Override
+        public SpanBuilder asChildOf(SpanContext parent) {
+            return addReference(References.CHILD_OF, parent);
+        }
+
+        @Override
+        public SpanBuilder asChildOf(Span parent) {
+            return parent == null ? this : addReference(References.CHILD_OF, parent.context());
+        }
+
+        @Override
+        public SpanBuilder addReference(String referenceType, SpanContext referencedContext) {
+            if (referencedContext != null) {
+                if (references == null) references = new ArrayList<Object>(2);
+                references.add(referenceType);
+                references.add(referencedContext);
+            }
+            return this;
+        }
+
+        @Override
+        public SpanBuilder ignoreActiveSpan() {
+            ignoreActiveSpan = true;
+            return this;
+        }
+
+        @Override
+        public SpanBuilder withTag(String key, String value) {
+            return tag(key, value);
+        }
+
+        @Override
+        public SpanBuilder withTag(String key, boolean value) {
+            return tag(key, value);
+        }
+
+        @Override
+        public SpanBuilder withTag(String key, Number value) {
+            if (Tags.SAMPLING_PRIORITY.getKey().equals(key) && value != null) forcedDecision = value.intValue() > 0;
+            return tag(key, value != null ? value : NULL_NUMBER);
+        }
+
+        @Override
+        public <T> SpanBuilder withTag(Tag<T> tag, T value) {
+            if (Tags.SAMPLING_PRIORITY.getKey().equals(tag.getKey()) && value instanceof Number) {
+                forcedDecision = ((Number) value).intValue() > 0;
+            }
+            return tag(tag, value);
+        }
+
+        private SpanBuilder tag(Object key, Object value) {
+            if (tags == null) tags = new ArrayList<Object>(8);
+            tags.add(key);
+            tags.add(value);
+            return this;
+        }
+
+        @Override
+        public SpanBuilder withStartTimestamp(long microseconds) {
+            startTimestamp = microseconds;
+            return this;
+        }
+
+        @Override
+        public Span start() {
+            return isSampled() ? replay(delegate.buildSpan(operationName)).start() : NoopSpan.INSTANCE;
+        }
+
+        private boolean isSampled() {
+            if (!sampler.sampleSpans()) return false;
+            if (forcedDecision != null) return forcedDecision;
+            if (references != null) {
+                for (int i = 1; i < references.size(); i += 2) {
+                    if (!(references.get(i) instanceof NoopSpanContext)) return true;
+                }
+                return false;
+            }
+            Span active = ignoreActiveSpan ? null : delegate.activeSpan();
+            if (active != null) return !(active.context() instanceof NoopSpanContext);
+            return sampler.sampleTrace();
+        }
+
+        @SuppressWarnings("unchecked")
+        private SpanBuilder replay(SpanBuilder builder) {
+            if (references != null) {
+                for (int i = 0; i < references.size(); i += 2) {
+                    SpanContext context = (SpanContext) references.get(i + 1);
+                    if (!(context instanceof NoopSpanContext)) builder.addReference((String) references.get(i), context);
+                }
+            }
+            if (ignoreActiveSpan) builder.ignoreActiveSpan();
+            if (startTimestamp != 0L) builder.withStartTimestamp(startTimestamp);
+            if (tags != null) {
+                for (int i = 0; i < tags.size(); i += 2) {
+                    Object key = tags.get(i);
+                    Object value = tags.get(i + 1);
+                    if (key instanceof Tag) builder.withTag((Tag<Object>) key, value);
+                    else if (value instanceof Boolean) builder.withTag((String) key, ((Boolean) value).booleanValue());
+                    else if (value instanceof Number) builder.withTag((String) key, (Number) value);
+                    else if (value == NULL_NUMBER) builder.withTag((String) key, (Number) null);
+                    else builder.withTag((String) key, (String) value);
+                }
+            }
+            return builder;
+        }
+    }
+
+}
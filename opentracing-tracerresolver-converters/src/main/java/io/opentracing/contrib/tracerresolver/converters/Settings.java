@@ -0,0 +1,56 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver.converters;
+
+import io.opentracing.contrib.tracerresolver.TracerResolver;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reads converter settings, configured in the same way as the {@code tracerresolver.*} settings
+ * (see {@link TracerResolver#getConfiguration(String)}).
+ */
+final class Settings {
+    private static final Logger LOGGER = Logger.getLogger(Settings.class.getName());
+
+    private Settings() {
+        throw new UnsupportedOperationException();
+    }
+
+    static String get(String property, String defaultValue) {
+        String value = TracerResolver.getConfiguration(property);
+        return value != null && value.trim().length() > 0 ? value.trim() : defaultValue;
+    }
+
+    static boolean isTrue(String property, boolean defaultValue) {
+        String value = get(property, null);
+        return value == null ? defaultValue : value.equals("1") || value.equalsIgnoreCase("true");
+    }
+
+    static double getNumber(String property, double defaultValue) {
+        String value = get(property, null);
+        if (value != null) {
+            try {
+                return Double.parseDouble(value);
+            } catch (NumberFormatException nfe) {
+                LOGGER.log(Level.WARNING, "Ignoring {0} of \"{1}\", expected a number.", new Object[]{property, value});
+            }
+        }
+        return defaultValue;
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver.converters;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket, implemented as a generic cell rate algorithm.
+ * <p>
+ * Instead of a token count, only the <em>theoretical arrival time</em> of the next permit is kept in a single
+ * {@link AtomicLong}. A permit is granted if that time is within the burst tolerance from now,
+ * after which it is advanced by one interval using compare-and-set.
+ * Denying a permit is a single volatile read, so an exhausted bucket is cheap even under heavy contention.
+ * <p>
+ * As {@link Sampler}, every permit samples a new trace.
+ */
+final class TokenBucket implements Sampler {
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong theoreticalArrival;
+
+    /**
+     * @param permitsPerSecond The sustained rate of permits (must be positive).
+     * @param burst            The number of permits that may be granted at once (at least one).
+     */
+    TokenBucket(double permitsPerSecond, double burst) {
+        if (!(permitsPerSecond > 0)) throw new IllegalArgumentException("Rate must be positive: " + permitsPerSecond);
+        this.intervalNanos = Math.max(1L, (long) (1000000000d / permitsPerSecond));
+        this.toleranceNanos = (long) ((Math.max(1d, burst) - 1d) * intervalNanos);
+        this.theoreticalArrival = new AtomicLong(System.nanoTime());
+    }
+
+    boolean tryAcquire() {
+        return tryAcquire(System.nanoTime());
+    }
+
+    @Override
+    public boolean sampleTrace() {
+        return tryAcquire();
+    }
+
+    @Override
+    public boolean sampleSpans() {
+        return true;
+    }
+
+    boolean tryAcquire(long nowNanos) {
+        while (true) {
+            long arrival = theoreticalArrival.get();
+            long start = arrival - nowNanos > 0 ? arrival : nowNanos;
+            if (start - nowNanos > toleranceNanos) return false;
+            if (theoreticalArrival.compareAndSet(arrival, start + intervalNanos)) return true;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{interval=" + intervalNanos + "ns, tolerance=" + toleranceNanos + "ns}";
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver.converters;
+
+/**
+ * Latencies of the operations of a tracer converted by the {@link LatencyMetricsConverter}.
+ *
+ * @see MetricsTracer#getMetrics()
+ */
+public final class TracerMetrics implements TracerMetricsMXBean {
+    /**
+     * The measured tracer operations.
+     */
+    public enum Operation {
+        START, FINISH, INJECT, EXTRACT
+    }
+
+    private final String tracer;
+    private final LatencyRecorder[] recorders = new LatencyRecorder[Operation.values().length];
+    private String objectName = null;
+
+    TracerMetrics(String tracer, int allocationSampleRate) {
+        this.tracer = tracer;
+        for (int i = 0; i < recorders.length; i++) recorders[i] = new LatencyRecorder(allocationSampleRate);
+    }
+
+    LatencyRecorder recorder(Operation operation) {
+        return recorders[operation.ordinal()];
+    }
+
+    /**
+     * @param operation The tracer operation (required).
+     * @return A snapshot of the latencies recorded for the operation.
+     */
+    public LatencySnapshot snapshot(Operation operation) {
+        return recorder(operation).snapshot();
+    }
+
+    @Override
+    public String getTracer() {
+        return tracer;
+    }
+
+    @Override
+    public LatencySnapshot getStart() {
+        return snapshot(Operation.START);
+    }
+
+    @Override
+    public LatencySnapshot getFinish() {
+        return snapshot(Operation.FINISH);
+    }
+
+    @Override
+    public LatencySnapshot getInject() {
+        return snapshot(Operation.INJECT);
+    }
+
+    @Override
+    public LatencySnapshot getExtract() {
+        return snapshot(Operation.EXTRACT);
+    }
+
+    /**
+     * @return The total time in nanoseconds of all recorded operations, without taking a snapshot.
+     */
+    long totalNanos() {
+        long total = 0L;
+        for (LatencyRecorder recorder : recorders) total += recorder.totalNanos();
+        return total;
+    }
+
+    @Override
+    public void reset() {
+        for (LatencyRecorder recorder : recorders) recorder.reset();
+    }
+
+    /**
+     * @return The object name this bean is registered with, or {@code null} if it is not registered.
+     */
+    public synchronized String getObjectName() {
+        return objectName;
+    }
+
+    /**
+     * @param owner The tracer this bean is registered for; the bean is unregistered once the tracer is unreachable.
+     */
+    synchronized void register(Object owner) {
+        if (objectName == null) objectName = ManagementBeans.register(this, OBJECT_NAME_PREFIX, owner);
+    }
+
+    synchronized void unregister() {
+        ManagementBeans.unregister(objectName);
+        objectName = null;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + '{' + tracer + '}';
+    }
+
+}
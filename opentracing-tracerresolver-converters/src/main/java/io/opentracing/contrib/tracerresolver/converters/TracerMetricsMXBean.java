@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver.converters;
+
+/**
+ * Management interface exposing the latencies of the operations of a resolved tracer.
+ * <p>
+ * Each tracer converted by the {@link LatencyMetricsConverter} is registered as
+ * {@value #OBJECT_NAME_PREFIX}{@code <n>} until it is closed, unless {@code "tracerresolver.metrics.jmx"} is {@code false}.
+ */
+public interface TracerMetricsMXBean {
+
+    /**
+     * The object name prefix the beans are registered with in the platform MBean server,
+     * followed by a sequence number.
+     */
+    String OBJECT_NAME_PREFIX = "io.opentracing.contrib.tracerresolver:type=TracerMetrics,name=tracer-";
+
+    /**
+     * @return A description of the measured tracer.
+     */
+    String getTracer();
+
+    /**
+     * @return The latencies of {@code buildSpan(...).start()}.
+     */
+    LatencySnapshot getStart();
+
+    /**
+     * @return The latencies of {@code Span.finish()}.
+     */
+    LatencySnapshot getFinish();
+
+    /**
+     * @return The latencies of {@code Tracer.inject(...)}.
+     */
+    LatencySnapshot getInject();
+
+    /**
+     * @return The latencies of {@code Tracer.extract(...)}.
+     */
+    LatencySnapshot getExtract();
+
+    /**
+     * Discards all recorded latencies.
+     */
+    void reset();
+
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver.converters;
+
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import io.opentracing.contrib.tracerresolver.TracerResolver;
+import io.opentracing.mock.MockSpan;
+import io.opentracing.mock.MockTracer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class AsyncFinishConverterTest {
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final BlockingMockTracer mockTracer = new BlockingMockTracer(release);
+
+    @Before
+    @After
+    public void resetConfiguration() {
+        System.clearProperty("tracerresolver.async.capacity");
+        System.clearProperty("tracerresolver.async.overflow");
+        System.clearProperty("tracerresolver.async.flush.timeout");
+        TracerResolver.reload();
+    }
+
+    @After
+    public void releaseFinisher() {
+        release.countDown();
+    }
+
+    @Test
+    public void testDisabledWithoutCapacity() {
+        assertThat(new AsyncFinishConverter().convert(mockTracer), is(sameInstance((Tracer) mockTracer)));
+    }
+
+    @Test
+    public void testSpansAreFinishedInBackground() throws InterruptedException {
+        release.countDown();
+        AsyncFinishTracer tracer = asyncTracer(16, "drop");
+        Span span = tracer.buildSpan("async").withTag("tag", "value").start();
+        span.finish();
+
+        for (int i = 0; i < 100 && mockTracer.finishedSpans().isEmpty(); i++) Thread.sleep(10);
+        MockSpan finished = mockTracer.finishedSpans().get(0);
+        assertThat(finished.tags().get("tag"), is((Object) "value"));
+        assertThat(finished.finishMicros(), is(greaterThanOrEqualTo(finished.startMicros())));
+        assertThat(mockTracer.finishingThread, is(not(sameInstance(Thread.currentThread()))));
+    }
+
+    @Test
+    public void testIdleFinisherSleepsUntilSpanIsQueued() throws InterruptedException {
+        release.countDown();
+        AsyncFinishTracer tracer = asyncTracer(16, "drop");
+        tracer.buildSpan("first").start().finish();
+        for (int i = 0; i < 100 && mockTracer.finishedCount.get() < 1; i++) Thread.sleep(10);
+        Thread finisher = mockTracer.finishingThread;
+        for (int i = 0; i < 100 && finisher.getState() != Thread.State.WAITING; i++) Thread.sleep(10);
+
+        assertThat("Parked without timeout", finisher.getState(), is(Thread.State.WAITING));
+        assertThat(finisher.getContextClassLoader(), is(nullValue()));
+
+        tracer.buildSpan("second").start().finish();
+        for (int i = 0; i < 100 && mockTracer.finishedCount.get() < 2; i++) Thread.sleep(10);
+        assertThat(mockTracer.finishedCount.get(), is(2));
+        tracer.close();
+        assertThat(finisher.isAlive(), is(false));
+    }
+
+    @Test
+    public void testDropWhenFull() {
+        AsyncFinishTracer tracer = asyncTracer(2, "drop");
+        for (int i = 0; i < 10; i++) tracer.buildSpan("span-" + i).start().finish();
+        long dropped = tracer.getDroppedSpans();
+        assertThat(dropped, is(greaterThanOrEqualTo(7L)));
+
+        release.countDown();
+        tracer.close();
+        assertThat(mockTracer.finishedCount.get(), is((int) (10 - dropped)));
+    }
+
+    @Test
+    public void testBlockWhenFull() throws InterruptedException {
+        AsyncFinishTracer tracer = asyncTracer(2, "block");
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                sleepQuietly(100);
+                release.countDown();
+            }
+        }).start();
+        for (int i = 0; i < 10; i++) tracer.buildSpan("span-" + i).start().finish();
+
+        tracer.close();
+        assertThat(tracer.getDroppedSpans(), is(0L));
+        assertThat(mockTracer.finishedCount.get(), is(10));
+    }
+
+    @Test
+    public void testCloseFlushIsBounded() {
+        System.setProperty("tracerresolver.async.flush.timeout", "100");
+        AsyncFinishTracer tracer = asyncTracer(16, "drop");
+        for (int i = 0; i < 5; i++) tracer.buildSpan("span-" + i).start().finish();
+
+        long start = System.nanoTime();
+        tracer.close();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), is(lessThan(2000L)));
+    }
+
+    @Test
+    public void testSpansFinishedWhileClosingAreNotLost() throws InterruptedException {
+        release.countDown();
+        for (int round = 0; round < 20; round++) {
+            final AsyncFinishTracer tracer = asyncTracer(1 << 16, "drop");
+            final AtomicInteger finishing = new AtomicInteger();
+            final CountDownLatch stop = new CountDownLatch(1);
+            Thread[] producers = new Thread[4];
+            for (int i = 0; i < producers.length; i++) {
+                producers[i] = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        while (stop.getCount() > 0) {
+                            Span span = tracer.buildSpan("span").start();
+                            finishing.incrementAndGet();
+                            span.finish();
+                        }
+                    }
+                });
+                producers[i].start();
+            }
+            sleepQuietly(5);
+            tracer.close();
+            sleepQuietly(5);
+            stop.countDown();
+            for (Thread producer : producers) producer.join();
+
+            assertThat("Finished spans in round " + round, mockTracer.finishedCount.get() + tracer.getDroppedSpans(),
+                    is((long) finishing.get()));
+            mockTracer.finishedCount.set(0);
+        }
+    }
+
+    private AsyncFinishTracer asyncTracer(int capacity, String overflow) {
+        System.setProperty("tracerresolver.async.capacity", Integer.toString(capacity));
+        System.setProperty("tracerresolver.async.overflow", overflow);
+        TracerResolver.reload();
+        Tracer tracer = new AsyncFinishConverter().convert(mockTracer);
+        assertThat(tracer, is(instanceOf(AsyncFinishTracer.class)));
+        return (AsyncFinishTracer) tracer;
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Mock tracer that blocks finishing spans until released.
+     * Finished spans are counted, as closing a mock tracer clears its finished spans.
+     * Closing is ignored, so spans handed to the tracer after closing are counted as well.
+     */
+    private static class BlockingMockTracer extends MockTracer {
+        private final CountDownLatch release;
+        private final AtomicInteger finishedCount = new AtomicInteger();
+        private volatile Thread finishingThread;
+
+        private BlockingMockTracer(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        protected void onSpanFinished(MockSpan mockSpan) {
+            finishingThread = Thread.currentThread();
+            try {
+                release.await();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            finishedCount.incrementAndGet();
+            super.onSpanFinished(mockSpan);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver.converters;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class BoundedQueueTest {
+
+    @Test
+    public void testFifoUntilFull() {
+        BoundedQueue<Integer> queue = new BoundedQueue<Integer>(3);
+        assertThat(queue.capacity(), is(4));
+        for (int i = 0; i < 4; i++) assertThat(queue.offer(i), is(true));
+        assertThat(queue.offer(4), is(false));
+        assertThat(queue.size(), is(4));
+
+        assertThat(queue.poll(), is(0));
+        assertThat(queue.offer(4), is(true));
+        for (int i = 1; i <= 4; i++) assertThat(queue.poll(), is(i));
+        assertThat(queue.poll(), is(nullValue()));
+    }
+
+    @Test
+    public void testConcurrentProducers() throws InterruptedException {
+        final BoundedQueue<Integer> queue = new BoundedQueue<Integer>(64);
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] producers = new Thread[4];
+        for (int p = 0; p < producers.length; p++) {
+            final int offset = p * 1000;
+            producers[p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException ie) {
+                        return;
+                    }
+                    for (int i = 0; i < 1000; i++) {
+                        while (!queue.offer(offset + i)) Thread.yield();
+                    }
+                }
+            });
+            producers[p].start();
+        }
+
+        start.countDown();
+        Set<Integer> received = new HashSet<Integer>();
+        while (received.size() < 4000) {
+            Integer element = queue.poll();
+            if (element != null) assertThat("Unique element", received.add(element), is(true));
+        }
+        for (Thread producer : producers) producer.join();
+        assertThat(queue.poll(), is(nullValue()));
+    }
+
+}
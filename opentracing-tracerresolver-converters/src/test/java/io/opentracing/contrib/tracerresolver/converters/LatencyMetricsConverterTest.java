@@ -0,0 +1,127 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver.converters;
+
+import io.opentracing.Span;
+import io.opentracing.SpanContext;
+import io.opentracing.Tracer;
+import io.opentracing.contrib.tracerresolver.TracerResolver;
+import io.opentracing.contrib.tracerresolver.converters.TracerMetrics.Operation;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.propagation.Format;
+import io.opentracing.propagation.TextMapAdapter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class LatencyMetricsConverterTest {
+    private final MockTracer mockTracer = new MockTracer();
+
+    @Before
+    @After
+    public void resetConfiguration() {
+        System.clearProperty("tracerresolver.metrics");
+        System.clearProperty("tracerresolver.metrics.allocations");
+        System.clearProperty("tracerresolver.metrics.jmx");
+        TracerResolver.reload();
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        assertThat(new LatencyMetricsConverter().convert(mockTracer), is(sameInstance((Tracer) mockTracer)));
+    }
+
+    @Test
+    public void testOperationsAreRecorded() {
+        MetricsTracer tracer = metricsTracer("false");
+        Map<String, String> carrier = new HashMap<String, String>();
+        for (int i = 0; i < 3; i++) {
+            Span span = tracer.buildSpan("operation").start();
+            tracer.inject(span.context(), Format.Builtin.TEXT_MAP, new TextMapAdapter(carrier));
+            SpanContext extracted = tracer.extract(Format.Builtin.TEXT_MAP, new TextMapAdapter(carrier));
+            assertThat(extracted, is(notNullValue()));
+            span.finish();
+        }
+
+        TracerMetrics metrics = tracer.getMetrics();
+        for (Operation operation : Operation.values()) {
+            LatencySnapshot snapshot = metrics.snapshot(operation);
+            assertThat(operation.name(), snapshot.getCount(), is(3L));
+            assertThat(snapshot.getP50Nanos(), is(lessThanOrEqualTo(snapshot.getMaxNanos())));
+        }
+        assertThat(mockTracer.finishedSpans(), hasSize(3));
+        assertThat(metrics.getObjectName(), is(nullValue()));
+    }
+
+    @Test
+    public void testAllocationsAreSampled() {
+        System.setProperty("tracerresolver.metrics.allocations", "1");
+        MetricsTracer tracer = metricsTracer("false");
+        tracer.buildSpan("operation").withTag("key", "value").start().finish();
+
+        long allocated = tracer.getMetrics().getStart().getAllocatedBytesPerOperation();
+        assertThat(allocated, is(Allocations.AVAILABLE ? greaterThan(0L) : equalTo(-1L)));
+    }
+
+    @Test
+    public void testRegisteredAsMXBeanUntilClosed() throws Exception {
+        MetricsTracer tracer = metricsTracer("true");
+        tracer.buildSpan("operation").start().finish();
+        String objectName = tracer.getMetrics().getObjectName();
+        assertThat(objectName, startsWith(TracerMetricsMXBean.OBJECT_NAME_PREFIX));
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        CompositeData start = (CompositeData) server.getAttribute(new ObjectName(objectName), "Start");
+        assertThat(start.get("count"), is((Object) 1L));
+
+        tracer.close();
+        assertThat(server.isRegistered(new ObjectName(objectName)), is(false));
+    }
+
+    @Test
+    public void testUnregisteredOnceTracerIsUnreachable() throws Exception {
+        ObjectName objectName = new ObjectName(metricsTracer("true").getMetrics().getObjectName());
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        assertThat(server.isRegistered(objectName), is(true));
+
+        for (int i = 0; i < 100 && server.isRegistered(objectName); i++) {
+            System.gc();
+            Thread.sleep(10);
+            metricsTracer("true").close(); // Registering another bean unregisters those of collected tracers
+        }
+        assertThat(server.isRegistered(objectName), is(false));
+    }
+
+    private MetricsTracer metricsTracer(String jmx) {
+        System.setProperty("tracerresolver.metrics", "true");
+        System.setProperty("tracerresolver.metrics.jmx", jmx);
+        TracerResolver.reload();
+        Tracer tracer = new LatencyMetricsConverter().convert(mockTracer);
+        assertThat(tracer, is(instanceOf(MetricsTracer.class)));
+        return (MetricsTracer) tracer;
+    }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver.converters;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class LatencyRecorderTest {
+
+    @Test
+    public void testPowerOfTwoBuckets() {
+        assertThat(LatencyRecorder.bucket(0L), is(0));
+        assertThat(LatencyRecorder.bucket(1L), is(1));
+        assertThat(LatencyRecorder.bucket(2L), is(2));
+        assertThat(LatencyRecorder.bucket(3L), is(2));
+        assertThat(LatencyRecorder.bucket(1024L), is(11));
+        assertThat(LatencyRecorder.bucket(Long.MAX_VALUE), is(63));
+    }
+
+    @Test
+    public void testSnapshotPercentiles() {
+        LatencyRecorder recorder = new LatencyRecorder(0);
+        for (int i = 0; i < 98; i++) recorder.record(100L);
+        recorder.record(5000L);
+        recorder.record(100000L);
+
+        LatencySnapshot snapshot = recorder.snapshot();
+        assertThat(snapshot.getCount(), is(100L));
+        assertThat(snapshot.getTotalNanos(), is(98L * 100L + 5000L + 100000L));
+        assertThat(snapshot.getMaxNanos(), is(100000L));
+        assertThat(snapshot.getP50Nanos(), is(127L));
+        assertThat(snapshot.getP99Nanos(), is(8191L));
+        assertThat(snapshot.getP999Nanos(), is(100000L));
+        assertThat(snapshot.getAllocatedBytesPerOperation(), is(-1L));
+
+        recorder.reset();
+        assertThat(recorder.snapshot().getCount(), is(0L));
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver.converters;
+
+import io.opentracing.Tracer;
+import io.opentracing.contrib.tracerresolver.TracerResolver;
+import io.opentracing.contrib.tracerresolver.converters.OverheadGuard.State;
+import io.opentracing.contrib.tracerresolver.converters.TracerMetrics.Operation;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.noop.NoopSpan;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class OverheadGuardConverterTest {
+    private static final long SLOT_NANOS = TimeUnit.SECONDS.toNanos(1L);
+    private static final int PROCESSORS = Math.max(1, Runtime.getRuntime().availableProcessors());
+    private final MockTracer mockTracer = new MockTracer();
+
+    @Before
+    @After
+    public void resetConfiguration() {
+        System.clearProperty("tracerresolver.guard.budget");
+        System.clearProperty("tracerresolver.guard.reduced");
+        System.clearProperty("tracerresolver.guard.window");
+        System.clearProperty("tracerresolver.guard.jmx");
+        TracerResolver.reload();
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        assertThat(new OverheadGuardConverter().convert(mockTracer), is(sameInstance((Tracer) mockTracer)));
+    }
+
+    @Test
+    public void testDegradesWhenOverBudget() {
+        SamplingTracer tracer = guardedTracer("false");
+        OverheadGuard guard = (OverheadGuard) tracer.sampler;
+        assertThat(tracer.buildSpan("normal").start(), is(not(sameInstance((Object) NoopSpan.INSTANCE))));
+
+        evaluateSlots(guard, 0.05d);
+        assertThat(guard.state(), is(State.REDUCED));
+        int sampled = 0;
+        for (int i = 0; i < 20; i++) if (tracer.buildSpan("reduced").start() != NoopSpan.INSTANCE) sampled++;
+        assertThat(sampled, is(2));
+
+        evaluateSlots(guard, 0.05d);
+        assertThat(guard.state(), is(State.NOOP));
+        assertThat(tracer.buildSpan("noop").start(), is(sameInstance((Object) NoopSpan.INSTANCE)));
+        assertThat(guard.getDegradations(), is(2L));
+    }
+
+    @Test
+    public void testRecoversGraduallyWithinHalfTheBudget() {
+        OverheadGuard guard = (OverheadGuard) guardedTracer("false").sampler;
+        evaluateSlots(guard, 0.05d);
+        evaluateSlots(guard, 0.05d);
+        assertThat(guard.state(), is(State.NOOP));
+
+        evaluateSlots(guard, 0.008d); // Within budget, but not within half the budget
+        assertThat(guard.state(), is(State.NOOP));
+        for (int i = 0; i < OverheadGuard.SLOTS && guard.state() == State.NOOP; i++) evaluateSlot(guard, 0d);
+        assertThat(guard.state(), is(State.REDUCED));
+        for (int i = 0; i < OverheadGuard.SLOTS - 1; i++) evaluateSlot(guard, 0d);
+        assertThat("No change before a full window", guard.state(), is(State.REDUCED));
+        evaluateSlot(guard, 0d);
+        assertThat(guard.state(), is(State.NORMAL));
+        assertThat(guard.getRecoveries(), is(2L));
+    }
+
+    @Test
+    public void testRegisteredAsMXBeanUntilClosed() throws Exception {
+        SamplingTracer tracer = guardedTracer("true");
+        OverheadGuard guard = (OverheadGuard) tracer.sampler;
+        String objectName = guard.objectName();
+        assertThat(objectName, startsWith(OverheadGuardMXBean.OBJECT_NAME_PREFIX));
+
+        evaluateSlots(guard, 0.05d);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        assertThat(server.getAttribute(new ObjectName(objectName), "State"), is((Object) "REDUCED"));
+        assertThat(server.getAttribute(new ObjectName(objectName), "Budget"), is((Object) 0.01d));
+
+        tracer.close();
+        assertThat(server.isRegistered(new ObjectName(objectName)), is(false));
+    }
+
+    private SamplingTracer guardedTracer(String jmx) {
+        System.setProperty("tracerresolver.guard.budget", "0.01");
+        System.setProperty("tracerresolver.guard.window", "60000");
+        System.setProperty("tracerresolver.guard.jmx", jmx);
+        TracerResolver.reload();
+        Tracer tracer = new OverheadGuardConverter().convert(mockTracer);
+        assertThat(tracer, is(instanceOf(SamplingTracer.class)));
+        return (SamplingTracer) tracer;
+    }
+
+    /**
+     * Evaluates a full window of slots in which the given share of the processor time was spent in calls of the tracer.
+     */
+    private static void evaluateSlots(OverheadGuard guard, double share) {
+        for (int i = 0; i < OverheadGuard.SLOTS; i++) evaluateSlot(guard, share);
+    }
+
+    private static void evaluateSlot(OverheadGuard guard, double share) {
+        guard.metrics().recorder(Operation.START).record((long) (share * SLOT_NANOS * PROCESSORS));
+        guard.evaluate(SLOT_NANOS);
+    }
+
+}
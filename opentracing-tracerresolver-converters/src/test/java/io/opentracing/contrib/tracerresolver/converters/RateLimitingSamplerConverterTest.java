@@ -0,0 +1,133 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver.converters;
+
+import io.opentracing.Scope;
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import io.opentracing.contrib.tracerresolver.TracerResolver;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.noop.NoopSpan;
+import io.opentracing.tag.Tags;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class RateLimitingSamplerConverterTest {
+    private final MockTracer mockTracer = new MockTracer();
+
+    @Before
+    @After
+    public void resetConfiguration() {
+        System.clearProperty("tracerresolver.sampler.rate");
+        System.clearProperty("tracerresolver.sampler.burst");
+        TracerResolver.reload();
+    }
+
+    @Test
+    public void testDisabledWithoutRate() {
+        assertThat(new RateLimitingSamplerConverter().convert(mockTracer), is(sameInstance((Tracer) mockTracer)));
+    }
+
+    @Test
+    public void testRootSpansAreLimited() {
+        Tracer tracer = sampler(0.001, 2);
+        for (int i = 0; i < 5; i++) tracer.buildSpan("root").withTag("iteration", i).start().finish();
+
+        assertThat(mockTracer.finishedSpans(), hasSize(2));
+        assertThat(mockTracer.finishedSpans().get(1).tags().get("iteration"), is((Object) 1));
+    }
+
+    @Test
+    public void testChildFollowsParentDecision() {
+        Tracer tracer = sampler(0.001, 1);
+        Span sampled = tracer.buildSpan("sampled").start();
+        Span unsampled = tracer.buildSpan("unsampled").start();
+        assertThat(sampled, is(not(instanceOf(NoopSpan.class))));
+        assertThat(unsampled, is(instanceOf(NoopSpan.class)));
+
+        assertThat(tracer.buildSpan("child").asChildOf(sampled).start(), is(not(instanceOf(NoopSpan.class))));
+        assertThat(tracer.buildSpan("child").asChildOf(unsampled).start(), is(instanceOf(NoopSpan.class)));
+        Scope scope = tracer.activateSpan(unsampled);
+        try {
+            assertThat(tracer.buildSpan("active child").start(), is(instanceOf(NoopSpan.class)));
+        } finally {
+            scope.close();
+        }
+        scope = tracer.activateSpan(sampled);
+        try {
+            assertThat(tracer.buildSpan("active child").start(), is(not(instanceOf(NoopSpan.class))));
+        } finally {
+            scope.close();
+        }
+    }
+
+    @Test
+    public void testSamplingPriorityOverridesDecision() {
+        Tracer tracer = sampler(0.001, 1);
+        assertThat(tracer.buildSpan("dropped").withTag(Tags.SAMPLING_PRIORITY, 0).start(), is(instanceOf(NoopSpan.class)));
+        tracer.buildSpan("sampled").start().finish();
+        assertThat(tracer.buildSpan("kept").withTag(Tags.SAMPLING_PRIORITY, 1).start(), is(not(instanceOf(NoopSpan.class))));
+    }
+
+    @Test
+    public void testNullTagsAreReplayedToTheirOverload() {
+        final List<List<Class<?>>> overloads = new ArrayList<List<Class<?>>>();
+        Tracer recording = new ForwardingTracer(mockTracer) {
+            @Override
+            public SpanBuilder buildSpan(String operationName) {
+                final SpanBuilder builder = delegate.buildSpan(operationName);
+                return (SpanBuilder) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{SpanBuilder.class},
+                        new InvocationHandler() {
+                            @Override
+                            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                                if ("withTag".equals(method.getName())) {
+                                    overloads.add(Arrays.<Class<?>>asList(method.getParameterTypes()));
+                                }
+                                Object result = method.invoke(builder, args);
+                                return result == builder ? proxy : result;
+                            }
+                        });
+            }
+        };
+        Tracer tracer = new SamplingTracer(recording, new TokenBucket(1000, 1000));
+
+        tracer.buildSpan("tagged").withTag("number", (Number) null).withTag("string", (String) null).start().finish();
+
+        assertThat(overloads, contains(
+                Arrays.<Class<?>>asList(String.class, Number.class), Arrays.<Class<?>>asList(String.class, String.class)));
+    }
+
+    private Tracer sampler(double rate, int burst) {
+        System.setProperty("tracerresolver.sampler.rate", Double.toString(rate));
+        System.setProperty("tracerresolver.sampler.burst", Integer.toString(burst));
+        TracerResolver.reload();
+        Tracer tracer = new RateLimitingSamplerConverter().convert(mockTracer);
+        assertThat(tracer, is(instanceOf(SamplingTracer.class)));
+        return tracer;
+    }
+
+}
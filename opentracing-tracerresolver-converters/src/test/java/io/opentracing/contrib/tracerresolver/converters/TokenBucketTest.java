@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver.converters;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class TokenBucketTest {
+
+    @Test
+    public void testBurstThenSustainedRate() {
+        TokenBucket bucket = new TokenBucket(10, 3);
+        long now = System.nanoTime();
+        assertThat(bucket.tryAcquire(now), is(true));
+        assertThat(bucket.tryAcquire(now), is(true));
+        assertThat(bucket.tryAcquire(now), is(true));
+        assertThat(bucket.tryAcquire(now), is(false));
+
+        long later = now + TimeUnit.MILLISECONDS.toNanos(100);
+        assertThat(bucket.tryAcquire(later), is(true));
+        assertThat(bucket.tryAcquire(later), is(false));
+    }
+
+    @Test
+    public void testConcurrentAcquisitionsNeverExceedBurst() throws Exception {
+        final TokenBucket bucket = new TokenBucket(0.001, 100);
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            Callable<Integer> acquire = new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    int acquired = 0;
+                    for (int i = 0; i < 1000; i++) if (bucket.tryAcquire()) acquired++;
+                    return acquired;
+                }
+            };
+            int total = 0;
+            for (Future<Integer> acquired : threads.invokeAll(Collections.nCopies(8, acquire))) {
+                total += acquired.get();
+            }
+            assertThat(total, is(100));
+        } finally {
+            threads.shutdown();
+        }
+    }
+
+}
@@ -103,6 +103,7 @@ public class TracerResolverTest {
     public void testResolverDisabled() throws IOException {
         try {
             System.setProperty("tracerresolver.disabled", "true");
+            TracerResolver.reload();
             writeServiceFile(TracerResolver.class, Mocks.MockTracerResolver.class);
             assertThat(TracerResolver.resolveTracer(), is(nullValue()));
         } finally {
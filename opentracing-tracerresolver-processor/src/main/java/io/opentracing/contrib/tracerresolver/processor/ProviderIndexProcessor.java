@@ -0,0 +1,213 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static java.lang.Math.abs;
+
+/**
+ * Annotation processor generating a provider index for
+ * {@code TracerFactory}, {@code TracerConverter}, {@code TracerResolver} and {@code ResolutionListener} implementations.
+ * <p>
+ * For every service, the index is written to {@code META-INF/tracerresolver/<service class name>}.
+ * It lists the provider class names together with their {@literal @}Priority, as resolved from the class
+ * or its superclasses, already sorted in the order the {@code TracerResolver} applies them.
+ * <p>
+ * At runtime, the {@code TracerResolver} uses this index to order the providers
+ * instead of looking up the {@literal @}Priority annotations reflectively.
+ * Only providers that are declared in {@code META-INF/services} are used; indexing a class does not register it.
+ * <p>
+ * The index only covers the classes of the current compilation. After an incremental compilation,
+ * declared providers that were not recompiled are missing from it, so the {@code TracerResolver} ignores
+ * the index until the next full build.
+ */
+@SupportedAnnotationTypes("*")
+public final class ProviderIndexProcessor extends AbstractProcessor {
+    static final String INDEX_LOCATION = "META-INF/tracerresolver/";
+    private static final String PRIORITY_ANNOTATION = "javax.annotation.Priority";
+    private static final int UNDEFINED_PRIORITY = Integer.MAX_VALUE;
+    private static final String[] SERVICES = {
+            "io.opentracing.contrib.tracerresolver.TracerFactory",
+            "io.opentracing.contrib.tracerresolver.TracerConverter",
+            "io.opentracing.contrib.tracerresolver.TracerResolver",
+            "io.opentracing.contrib.tracerresolver.ResolutionListener"
+    };
+
+    private final Map<String, Map<String, Integer>> providers = new TreeMap<String, Map<String, Integer>>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeIndexes();
+        } else {
+            for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+                scan(type);
+            }
+        }
+        return false;
+    }
+
+    private void scan(TypeElement type) {
+        if (isInstantiable(type)) {
+            for (String service : SERVICES) {
+                TypeElement serviceType = processingEnv.getElementUtils().getTypeElement(service);
+                if (serviceType != null && processingEnv.getTypeUtils().isSubtype(
+                        processingEnv.getTypeUtils().erasure(type.asType()),
+                        processingEnv.getTypeUtils().erasure(serviceType.asType()))) {
+                    providersOf(service).put(binaryName(type), priorityOf(type));
+                }
+            }
+        }
+        for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+            scan(nested);
+        }
+    }
+
+    /**
+     * Whether the {@link java.util.ServiceLoader} could instantiate the type:
+     * a public, concrete, top-level or static nested class with a public no-argument constructor.
+     */
+    private static boolean isInstantiable(TypeElement type) {
+        Set<Modifier> modifiers = type.getModifiers();
+        if (type.getKind() != ElementKind.CLASS
+                || !modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.ABSTRACT)
+                || (type.getEnclosingElement() instanceof TypeElement && !modifiers.contains(Modifier.STATIC))) {
+            return false;
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int priorityOf(TypeElement type) {
+        for (TypeElement current = type; current != null; current = superclassOf(current)) {
+            for (AnnotationMirror annotation : current.getAnnotationMirrors()) {
+                TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+                if (PRIORITY_ANNOTATION.contentEquals(annotationType.getQualifiedName())) {
+                    for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value
+                            : annotation.getElementValues().entrySet()) {
+                        if (value.getKey().getSimpleName().contentEquals("value")) {
+                            return (Integer) value.getValue().getValue();
+                        }
+                    }
+                }
+            }
+        }
+        return UNDEFINED_PRIORITY;
+    }
+
+    private TypeElement superclassOf(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        return superclass.getKind() == TypeKind.DECLARED
+                ? (TypeElement) processingEnv.getTypeUtils().asElement(superclass) : null;
+    }
+
+    private String binaryName(TypeElement type) {
+        return processingEnv.getElementUtils().getBinaryName(type).toString();
+    }
+
+    private Map<String, Integer> providersOf(String service) {
+        Map<String, Integer> result = providers.get(service);
+        if (result == null) {
+            result = new LinkedHashMap<String, Integer>();
+            providers.put(service, result);
+        }
+        return result;
+    }
+
+    private void writeIndexes() {
+        for (Map.Entry<String, Map<String, Integer>> service : providers.entrySet()) {
+            String location = INDEX_LOCATION + service.getKey();
+            try {
+                writeIndex(location, service.getValue());
+            } catch (IOException ioe) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Error writing provider index " + location + ": " + ioe.getMessage());
+            }
+        }
+    }
+
+    private void writeIndex(String location, Map<String, Integer> index) throws IOException {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<Map.Entry<String, Integer>>(index.entrySet());
+        Collections.sort(entries, PRIORITY_ORDER);
+
+        FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", location);
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(file.openOutputStream(), "UTF-8"));
+        try {
+            writer.println("# Generated by " + ProviderIndexProcessor.class.getName() + ", do not edit.");
+            for (Map.Entry<String, Integer> entry : entries) {
+                writer.println(entry.getValue() + " " + entry.getKey());
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Same ordering as the {@code PriorityComparator} of the tracer resolver,
+     * ties are broken by class name to keep the generated index reproducible.
+     */
+    private static final Comparator<Map.Entry<String, Integer>> PRIORITY_ORDER = new Comparator<Map.Entry<String, Integer>>() {
+        @Override
+        public int compare(Map.Entry<String, Integer> entry1, Map.Entry<String, Integer> entry2) {
+            int result = comparePriority(entry1.getValue(), entry2.getValue());
+            return result != 0 ? result : entry1.getKey().compareTo(entry2.getKey());
+        }
+    };
+
+    private static int comparePriority(int prio1, int prio2) {
+        return prio1 == prio2 ? 0
+                : prio1 < 0 ? (prio2 < 0 ? comparePriority(abs(prio1), abs(prio2)) : 1)
+                : prio2 < 0 ? -1
+                : prio1 < prio2 ? -1 : 1;
+    }
+
+}
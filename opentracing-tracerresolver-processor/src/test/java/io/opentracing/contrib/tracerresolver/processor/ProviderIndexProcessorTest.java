@@ -0,0 +1,134 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver.processor;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class ProviderIndexProcessorTest {
+    private static final String SOURCE = "package test;\n"
+            + "import io.opentracing.Tracer;\n"
+            + "import io.opentracing.contrib.tracerresolver.*;\n"
+            + "import javax.annotation.Priority;\n"
+            + "public class Providers {\n"
+            + "  @Priority(5) public static class Prio5Factory implements TracerFactory {\n"
+            + "    public Tracer getTracer() { return null; }\n"
+            + "  }\n"
+            + "  public static class InheritedPrio5Factory extends Prio5Factory {}\n"
+            + "  @Priority(-1) public static class NegativeFactory implements TracerFactory {\n"
+            + "    public Tracer getTracer() { return null; }\n"
+            + "  }\n"
+            + "  public static class UnprioritizedFactory implements TracerFactory {\n"
+            + "    public Tracer getTracer() { return null; }\n"
+            + "  }\n"
+            + "  @Priority(0) public static abstract class AbstractFactory implements TracerFactory {}\n"
+            + "  @Priority(0) static class PackagePrivateFactory implements TracerFactory {\n"
+            + "    public Tracer getTracer() { return null; }\n"
+            + "  }\n"
+            + "  @Priority(1) public class InnerFactory implements TracerFactory {\n"
+            + "    public Tracer getTracer() { return null; }\n"
+            + "  }\n"
+            + "  @Priority(3) public static class Prio3Converter implements TracerConverter {\n"
+            + "    public Tracer convert(Tracer tracer) { return tracer; }\n"
+            + "  }\n"
+            + "}\n";
+
+    private File outputDir;
+
+    @Before
+    public void compile() throws IOException {
+        outputDir = new File("target/processor-test-output");
+        deleteRecursive(outputDir);
+        outputDir.mkdirs();
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        List<String> options = Arrays.asList(
+                "-classpath", System.getProperty("surefire.test.class.path", System.getProperty("java.class.path")),
+                "-d", outputDir.getPath(),
+                "-processor", ProviderIndexProcessor.class.getName());
+        JavaFileObject source = new SimpleJavaFileObject(URI.create("string:///test/Providers.java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return SOURCE;
+            }
+        };
+        assertThat("Compilation successful",
+                compiler.getTask(null, null, null, options, null, Collections.singletonList(source)).call(), is(true));
+    }
+
+    @Test
+    public void testFactoryIndex() throws IOException {
+        assertThat(readIndex("io.opentracing.contrib.tracerresolver.TracerFactory"), contains(
+                "5 test.Providers$InheritedPrio5Factory",
+                "5 test.Providers$Prio5Factory",
+                "2147483647 test.Providers$UnprioritizedFactory",
+                "-1 test.Providers$NegativeFactory"));
+    }
+
+    @Test
+    public void testConverterIndex() throws IOException {
+        assertThat(readIndex("io.opentracing.contrib.tracerresolver.TracerConverter"), contains(
+                "3 test.Providers$Prio3Converter"));
+    }
+
+    @Test
+    public void testNoResolverIndex() {
+        assertThat(indexFile("io.opentracing.contrib.tracerresolver.TracerResolver").exists(), is(false));
+    }
+
+    private File indexFile(String service) {
+        return new File(outputDir, ProviderIndexProcessor.INDEX_LOCATION + service);
+    }
+
+    private List<String> readIndex(String service) throws IOException {
+        List<String> lines = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(indexFile(service)), "UTF-8"));
+        try {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (!line.startsWith("#")) lines.add(line);
+            }
+        } finally {
+            reader.close();
+        }
+        return lines;
+    }
+
+    private static void deleteRecursive(File file) {
+        File[] children = file.listFiles();
+        if (children != null) for (File child : children) deleteRecursive(child);
+        file.delete();
+    }
+
+}
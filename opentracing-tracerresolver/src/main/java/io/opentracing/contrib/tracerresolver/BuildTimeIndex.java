@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Provider index that is filled while building a GraalVM native image.
+ * <p>
+ * The {@code TracerResolverFeature} (in the Java 11 part of the multi-release jar) discovers and prioritizes
+ * the declared providers at image build time and initializes this class at build time,
+ * so the index becomes part of the image heap.
+ * A native executable then instantiates its providers in that order, without scanning {@code META-INF/services}
+ * or looking up {@code @Priority} annotations at startup.
+ * <p>
+ * The providers are still loaded by name and instantiated through their (reflectively registered)
+ * no-argument constructors, just like the {@link ProviderIndex} does on a regular JVM.
+ * <p>
+ * On a regular JVM the index is always empty.
+ */
+final class BuildTimeIndex {
+    // Only modified by the feature while the image is built, read-only at runtime.
+    private static final Map<String, String[]> CLASS_NAMES = new HashMap<String, String[]>();
+
+    private BuildTimeIndex() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Adds the providers of a service to the index. Must only be called while building a native image.
+     *
+     * @param serviceName The class name of the service.
+     * @param classNames  The class names of the providers in order of priority.
+     */
+    static synchronized void put(String serviceName, String[] classNames) {
+        CLASS_NAMES.put(serviceName, classNames.clone());
+    }
+
+    /**
+     * @param serviceName The class name of the service.
+     * @return The class names of the providers in order of priority,
+     * or {@code null} if the service was not indexed at image build time.
+     */
+    static String[] classNames(String serviceName) {
+        return CLASS_NAMES.isEmpty() ? null : CLASS_NAMES.get(serviceName);
+    }
+
+    /**
+     * Clears the index, so it is empty just like on a regular JVM.
+     */
+    static synchronized void clear() {
+        CLASS_NAMES.clear();
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Small synchronized cache that is weakly keyed by {@link ClassLoader}.
+ * <p>
+ * Entries are dropped once their class loader becomes unreachable.
+ * Values are referenced strongly, so a value referencing classes from its own class loader would keep
+ * that loader reachable. Such values must not be cached, see {@link #keepsReachable(ClassLoader, Class)}.
+ * A soft reference does not help here: it is only cleared when the heap runs low, not when Metaspace does.
+ * The {@code null} (bootstrap) class loader is a valid key.
+ *
+ * @param <V> The type of the cached values.
+ */
+final class ClassLoaderCache<V> {
+    private final Map<ClassLoader, V> entries = new WeakHashMap<ClassLoader, V>();
+
+    synchronized V get(ClassLoader classLoader) {
+        return entries.get(classLoader);
+    }
+
+    synchronized void put(ClassLoader classLoader, V value) {
+        entries.put(classLoader, value);
+    }
+
+    /**
+     * Caches the value for the class loader, unless another value was already cached.
+     *
+     * @param classLoader The class loader to cache the value for.
+     * @param value       The value to cache.
+     * @return The cached value, which is either the existing value or the new value.
+     */
+    synchronized V putIfAbsent(ClassLoader classLoader, V value) {
+        V existing = entries.get(classLoader);
+        if (existing != null) return existing;
+        entries.put(classLoader, value);
+        return value;
+    }
+
+    synchronized V remove(ClassLoader classLoader) {
+        return entries.remove(classLoader);
+    }
+
+    /**
+     * Removes the cached value for the class loader, but only if it is the given value.
+     *
+     * @param classLoader The class loader to remove the value for.
+     * @param value       The value to remove.
+     * @return Whether the value was removed.
+     */
+    synchronized boolean remove(ClassLoader classLoader, V value) {
+        if (entries.get(classLoader) != value) return false;
+        entries.remove(classLoader);
+        return true;
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Returns whether caching an instance of the type for the class loader would keep a class loader reachable
+     * that could otherwise be unloaded.
+     * <p>
+     * This is the case unless the type was loaded by one of the parents of the class loader,
+     * or by the system class loader or one of its parents, which are never unloaded.
+     * E.g. a provider found in a web application must not be cached for the web application class loader.
+     *
+     * @param classLoader The class loader to cache the instance for.
+     * @param type        The type of the instance to cache.
+     * @return Whether caching an instance of the type could prevent a class loader from being unloaded.
+     */
+    static boolean keepsReachable(ClassLoader classLoader, Class<?> type) {
+        ClassLoader typeLoader = type.getClassLoader();
+        return typeLoader != null
+                && !isSelfOrParent(typeLoader, classLoader != null ? classLoader.getParent() : null)
+                && !isSelfOrParent(typeLoader, ClassLoader.getSystemClassLoader());
+    }
+
+    private static boolean isSelfOrParent(ClassLoader candidate, ClassLoader classLoader) {
+        for (ClassLoader loader = classLoader; loader != null; loader = loader.getParent()) {
+            if (loader == candidate) return true;
+        }
+        return false;
+    }
+
+}
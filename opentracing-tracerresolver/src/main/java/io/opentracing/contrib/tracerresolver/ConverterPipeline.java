@@ -0,0 +1,140 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import io.opentracing.Tracer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Immutable, prioritized chain of {@link TracerConverter converters} for a class loader.
+ * <p>
+ * The converters are loaded and prioritized once per class loader and then reused for every resolved tracer.
+ * A pipeline is only cached if its converters were loaded by a parent of the class loader or by the system class loader,
+ * since a cached converter of the class loader itself (e.g. of a web application) would keep that class loader
+ * from being unloaded. Such converters are loaded again for every resolution.
+ */
+final class ConverterPipeline {
+    private static final Logger LOGGER = Logger.getLogger(ConverterPipeline.class.getName());
+    private static final ClassLoaderCache<ConverterPipeline> PIPELINES =
+            new ClassLoaderCache<ConverterPipeline>();
+
+    private final List<TracerConverter> converters;
+
+    private ConverterPipeline(List<TracerConverter> converters) {
+        this.converters = Collections.unmodifiableList(converters);
+    }
+
+    /**
+     * Returns the converter pipeline for a class loader, loading the converters only the first time
+     * unless they would keep the class loader reachable.
+     *
+     * @param classLoader The class loader to load the converters with.
+     * @return The (cached) converter pipeline for the class loader.
+     */
+    static ConverterPipeline forClassLoader(ClassLoader classLoader) {
+        ConverterPipeline pipeline = PIPELINES.get(classLoader);
+        if (pipeline == null) {
+            // Concurrent first calls may each load an (equivalent) pipeline, the last one is cached.
+            pipeline = load(classLoader);
+            if (pipeline.isCacheableFor(classLoader)) PIPELINES.put(classLoader, pipeline);
+        }
+        return pipeline;
+    }
+
+    private static ConverterPipeline load(ClassLoader classLoader) {
+        List<TracerConverter> converters = new ArrayList<TracerConverter>();
+        for (TracerConverter converter : ServiceProviders.load(TracerConverter.class, classLoader)) {
+            converters.add(converter);
+        }
+        ConverterPipeline pipeline = new ConverterPipeline(converters);
+        LOGGER.log(Level.FINEST, "Loaded {0} for {1}.", new Object[]{pipeline, classLoader});
+        return pipeline;
+    }
+
+    private boolean isCacheableFor(ClassLoader classLoader) {
+        for (TracerConverter converter : converters) {
+            if (ClassLoaderCache.keepsReachable(classLoader, converter.getClass())) {
+                LOGGER.log(Level.FINEST, "Not caching {0} for {1}: {2} would keep the class loader reachable.",
+                        new Object[]{this, classLoader, converter});
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Clears all cached pipelines, so converters are loaded again.
+     */
+    static void clear() {
+        PIPELINES.clear();
+    }
+
+    /**
+     * Clears the cached pipeline for a class loader, so its converters are loaded again.
+     *
+     * @param classLoader The class loader to clear the cached pipeline for.
+     */
+    static void invalidate(ClassLoader classLoader) {
+        PIPELINES.remove(classLoader);
+    }
+
+    /**
+     * @return The converters of this pipeline in the order they are applied.
+     */
+    List<TracerConverter> converters() {
+        return converters;
+    }
+
+    /**
+     * Applies all converters to the resolved tracer in order of their priority.
+     * <p>
+     * A converter throwing an exception is skipped.
+     * If a converter returns {@code null}, no further converters are applied.
+     *
+     * @param resolved  The resolved tracer (may be {@code null}).
+     * @param listeners The listeners to notify of each conversion.
+     * @return The converted tracer, or {@code null} if the resolved tracer was {@code null} or converted to it.
+     */
+    Tracer convert(Tracer resolved, ResolutionListeners listeners) {
+        if (resolved != null) {
+            for (TracerConverter converter : converters) {
+                ResolutionListeners.Started start = listeners.startCandidate();
+                try {
+                    Tracer converted = converter.convert(resolved);
+                    listeners.candidate(ResolutionEvent.Phase.CONVERSION, converter, start, converted, null);
+                    LOGGER.log(Level.FINEST, "Converted {0} using {1}: {2}.", new Object[]{resolved, converter, converted});
+                    resolved = converted;
+                } catch (RuntimeException rte) {
+                    listeners.candidate(ResolutionEvent.Phase.CONVERSION, converter, start, null, rte);
+                    LOGGER.log(Level.WARNING, "Error converting " + resolved + " with " + converter + ": " + rte.getMessage(), rte);
+                }
+                if (resolved == null) break;
+            }
+        }
+        return resolved;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + converters;
+    }
+
+}
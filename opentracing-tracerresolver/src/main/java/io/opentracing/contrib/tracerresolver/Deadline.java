@@ -0,0 +1,264 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import io.opentracing.Tracer;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Time bounds for a single tracer resolution.
+ * <p>
+ * Without any timeouts, candidates are called directly on the resolving thread.
+ * Otherwise each candidate is called on a separate daemon thread and abandoned if it does not complete in time.
+ * An abandoned candidate never becomes the resolved tracer: if it still produces a tracer later,
+ * that tracer is closed immediately.
+ */
+final class Deadline {
+    private static final Logger LOGGER = Logger.getLogger(Deadline.class.getName());
+
+    /**
+     * Daemon threads for calling candidates, so a hanging candidate never prevents the JVM from exiting.
+     */
+    static final ThreadFactory CANDIDATE_THREADS = new ThreadFactory() {
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new CandidateThread(runnable, "tracerresolver-candidate-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
+    private static final Executor NEW_THREAD = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            CANDIDATE_THREADS.newThread(command).start();
+        }
+    };
+
+    private final long candidateTimeoutNanos;
+    private final long deadlineNanos;
+
+    private Deadline(long candidateTimeoutMillis, long timeoutMillis) {
+        this.candidateTimeoutNanos = candidateTimeoutMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(candidateTimeoutMillis) : 0L;
+        this.deadlineNanos = timeoutMillis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : 0L;
+    }
+
+    /**
+     * Starts a new deadline.
+     *
+     * @param candidateTimeoutMillis Maximum time per candidate in milliseconds, or {@code 0} for no maximum.
+     * @param timeoutMillis          Maximum time for the entire resolution in milliseconds, or {@code 0} for no maximum.
+     * @return The started deadline.
+     */
+    static Deadline start(long candidateTimeoutMillis, long timeoutMillis) {
+        return new Deadline(candidateTimeoutMillis, timeoutMillis);
+    }
+
+    /**
+     * @return Whether the current thread was created by {@link #CANDIDATE_THREADS}, i.e. it is calling a candidate
+     * on behalf of a resolution that may be waiting for it.
+     */
+    static boolean isCandidateThread() {
+        return Thread.currentThread() instanceof CandidateThread;
+    }
+
+    /**
+     * @return Whether the time for the entire resolution has passed.
+     */
+    boolean isExpired() {
+        return deadlineNanos != 0L && deadlineNanos - System.nanoTime() <= 0L;
+    }
+
+    /**
+     * Calls a candidate within the time bounds.
+     *
+     * @param candidate The candidate, for logging purposes.
+     * @param call      The call producing a tracer.
+     * @return The tracer, or {@code null} if the candidate returned {@code null} or was abandoned.
+     */
+    Tracer call(Object candidate, Callable<Tracer> call) {
+        if (candidateTimeoutNanos == 0L && deadlineNanos == 0L) {
+            try {
+                return call.call();
+            } catch (Exception e) {
+                throw rethrow(e);
+            }
+        }
+        if (isExpired()) {
+            LOGGER.log(Level.WARNING, "Not calling {0}, tracer resolution deadline has expired.", candidate);
+            return null;
+        }
+        return await(start(candidate, call, NEW_THREAD));
+    }
+
+    /**
+     * Starts calling a candidate in the background.
+     * The candidate timeout starts counting immediately, even if the executor does not run the call right away.
+     *
+     * @param candidate The candidate, for logging purposes.
+     * @param call      The call producing a tracer.
+     * @param executor  The executor to call the candidate with.
+     * @return The attempt to {@link #await(Attempt) await}.
+     */
+    Attempt start(Object candidate, Callable<Tracer> call, Executor executor) {
+        Attempt attempt = new Attempt(candidate, call);
+        executor.execute(attempt.task);
+        return attempt;
+    }
+
+    /**
+     * Awaits the result of an attempt within the time bounds, abandoning it if it doesn't complete in time.
+     *
+     * @param attempt The attempt to await.
+     * @return The tracer, or {@code null} if the candidate returned {@code null} or was abandoned.
+     */
+    Tracer await(Attempt attempt) {
+        long timeoutNanos = timeoutNanos(attempt.startNanos);
+        try {
+            return timeoutNanos == Long.MAX_VALUE
+                    ? attempt.task.get() : attempt.task.get(Math.max(timeoutNanos, 0L), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException te) {
+            return abandon(attempt);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return abandon(attempt);
+        } catch (ExecutionException ee) {
+            throw rethrow(ee.getCause());
+        }
+    }
+
+    private long timeoutNanos(long startNanos) {
+        long now = System.nanoTime();
+        long remaining = deadlineNanos == 0L ? Long.MAX_VALUE : deadlineNanos - now;
+        return candidateTimeoutNanos == 0L ? remaining : Math.min(startNanos + candidateTimeoutNanos - now, remaining);
+    }
+
+    private static Tracer abandon(Attempt attempt) {
+        if (!attempt.abandon()) { // The candidate completed just in time (or was abandoned before)
+            return attempt.isCompleted() ? attempt.result() : null;
+        }
+        LOGGER.log(Level.WARNING, "Abandoned {0} after {1} ms, trying the next candidate.", new Object[]{
+                attempt.candidate, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - attempt.startNanos)});
+        return null;
+    }
+
+    private static RuntimeException rethrow(Throwable exception) {
+        if (exception instanceof RuntimeException) throw (RuntimeException) exception;
+        if (exception instanceof Error) throw (Error) exception;
+        throw new IllegalStateException(exception.getMessage(), exception);
+    }
+
+    /**
+     * Call of a candidate that either delivers its result or, once abandoned, closes it.
+     */
+    static final class Attempt implements Callable<Tracer> {
+        private static final int RUNNING = 0, COMPLETED = 1, ABANDONED = 2;
+        private final AtomicInteger state = new AtomicInteger(RUNNING);
+        private final Object candidate;
+        private final Callable<Tracer> delegate;
+        private final FutureTask<Tracer> task;
+        private final long startNanos;
+
+        private Attempt(Object candidate, Callable<Tracer> delegate) {
+            this.candidate = candidate;
+            this.delegate = delegate;
+            this.task = new FutureTask<Tracer>(this);
+            this.startNanos = System.nanoTime();
+        }
+
+        @Override
+        public Tracer call() throws Exception {
+            Tracer tracer = null;
+            try {
+                tracer = delegate.call();
+            } finally {
+                if (!state.compareAndSet(RUNNING, COMPLETED) && tracer != null) {
+                    LOGGER.log(Level.WARNING, "Closing {0}, it was resolved after {1} was abandoned.",
+                            new Object[]{tracer, candidate});
+                    tracer.close();
+                }
+            }
+            return tracer;
+        }
+
+        /**
+         * Abandons this attempt if it is still running.
+         *
+         * @return {@code true} if the attempt was abandoned by this call,
+         * or {@code false} if it had already completed or was abandoned before.
+         */
+        private boolean abandon() {
+            if (state.compareAndSet(RUNNING, ABANDONED)) {
+                task.cancel(true);
+                return true;
+            }
+            return false;
+        }
+
+        private boolean isCompleted() {
+            return state.get() == COMPLETED;
+        }
+
+        private Tracer result() {
+            try {
+                return task.get();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException ee) {
+                throw rethrow(ee.getCause());
+            }
+        }
+
+        /**
+         * Discards the result of this attempt, because another candidate was chosen.
+         * A tracer that was already produced is closed; a running attempt is abandoned.
+         */
+        void discard() {
+            if (!abandon() && isCompleted()) {
+                try {
+                    Tracer tracer = result();
+                    if (tracer != null) {
+                        LOGGER.log(Level.FINE, "Closing {0} from {1}, another tracer was resolved.",
+                                new Object[]{tracer, candidate});
+                        tracer.close();
+                    }
+                } catch (RuntimeException rte) {
+                    LOGGER.log(Level.FINEST, "Ignoring failure of discarded " + candidate + ": " + rte.getMessage(), rte);
+                }
+            }
+        }
+    }
+
+    private static final class CandidateThread extends Thread {
+        private CandidateThread(Runnable runnable, String name) {
+            super(runnable, name);
+        }
+    }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import io.opentracing.Scope;
+import io.opentracing.ScopeManager;
+import io.opentracing.Span;
+import io.opentracing.SpanContext;
+import io.opentracing.Tracer;
+import io.opentracing.propagation.Format;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link Tracer} forwarding all calls to a delegate that can be swapped atomically.
+ * <p>
+ * Reading the delegate costs a single volatile load, so forwarding adds hardly any overhead.
+ * Swapping (and closing) is synchronized, as it rarely happens.
+ * <p>
+ * Spans that were started before a swap remain spans of the previous delegate.
+ * Likewise, spans that were activated with the previous delegate are not active in the new delegate.
+ * <p>
+ * Closing only closes a delegate that is owned by this tracer. A delegate that is shared with others,
+ * e.g. the {@code GlobalTracer} or a cached tracer, is left open.
+ */
+final class DelegatingTracer implements Tracer {
+    private static final Logger LOGGER = Logger.getLogger(DelegatingTracer.class.getName());
+
+    private volatile Tracer delegate;
+    private boolean owned = true;
+    private boolean closed = false;
+
+    /**
+     * @param delegate The initial delegate tracer (required), owned by this tracer.
+     */
+    DelegatingTracer(Tracer delegate) {
+        if (delegate == null) throw new NullPointerException("Delegate tracer is <null>.");
+        this.delegate = delegate;
+    }
+
+    Tracer delegate() {
+        return delegate;
+    }
+
+    /**
+     * Atomically replaces the delegate tracer.
+     * <p>
+     * If this tracer was already closed, the new tracer is closed immediately instead, if it is owned.
+     *
+     * @param tracer The new delegate tracer (required).
+     * @param owned  Whether the new delegate is owned by this tracer, so it is closed together with it.
+     * @return The previous delegate tracer, which is <em>not</em> closed by this method,
+     * or {@code null} if this tracer was already closed.
+     */
+    synchronized Tracer swap(Tracer tracer, boolean owned) {
+        if (tracer == null) throw new NullPointerException("Delegate tracer is <null>.");
+        if (closed) {
+            if (owned) {
+                LOGGER.log(Level.FINE, "Closing {0}, delegating tracer was already closed.", tracer);
+                tracer.close();
+            }
+            return null;
+        }
+        Tracer previous = delegate;
+        delegate = tracer;
+        this.owned = owned;
+        LOGGER.log(Level.FINER, "Swapped delegate tracer {0} for {1}.", new Object[]{previous, tracer});
+        return previous;
+    }
+
+    @Override
+    public ScopeManager scopeManager() {
+        return delegate.scopeManager();
+    }
+
+    @Override
+    public Span activeSpan() {
+        return delegate.activeSpan();
+    }
+
+    @Override
+    public Scope activateSpan(Span span) {
+        return delegate.activateSpan(span);
+    }
+
+    @Override
+    public SpanBuilder buildSpan(String operationName) {
+        return delegate.buildSpan(operationName);
+    }
+
+    @Override
+    public <C> void inject(SpanContext spanContext, Format<C> format, C carrier) {
+        delegate.inject(spanContext, format, carrier);
+    }
+
+    @Override
+    public <C> SpanContext extract(Format<C> format, C carrier) {
+        return delegate.extract(format, carrier);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            if (owned) delegate.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + '{' + delegate + '}';
+    }
+
+}
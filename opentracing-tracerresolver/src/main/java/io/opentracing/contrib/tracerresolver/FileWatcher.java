@@ -0,0 +1,92 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Watches a single file and runs a callback on a daemon thread whenever it is created, changed or deleted.
+ * <p>
+ * This variant polls the last modification time and length of the file, as {@code java.nio.file.WatchService}
+ * is not available before Java 7. The multi-release jar contains a {@code WatchService} based variant for Java 9+.
+ */
+final class FileWatcher implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(FileWatcher.class.getName());
+    static final long POLL_MILLIS = 1000L;
+
+    private final File file;
+    private final Runnable onChange;
+    private final Thread thread;
+    private long lastModified;
+    private long length;
+
+    FileWatcher(File file, Runnable onChange) {
+        if (file == null) throw new NullPointerException("Watched file is <null>.");
+        if (onChange == null) throw new NullPointerException("Change callback is <null>.");
+        this.file = file.getAbsoluteFile();
+        this.onChange = onChange;
+        this.lastModified = this.file.lastModified();
+        this.length = this.file.length();
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                poll();
+            }
+        }, "tracerresolver-watcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private void poll() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Thread.sleep(POLL_MILLIS);
+                long modified = file.lastModified();
+                long newLength = file.length();
+                if (modified != lastModified || newLength != length) {
+                    lastModified = modified;
+                    length = newLength;
+                    LOGGER.log(Level.FINE, "Detected change of {0}.", file);
+                    changed();
+                }
+            }
+        } catch (InterruptedException ie) {
+            LOGGER.log(Level.FINEST, "Stopped watching {0}.", file);
+        }
+    }
+
+    private void changed() {
+        try {
+            onChange.run();
+        } catch (RuntimeException rte) {
+            LOGGER.log(Level.WARNING, "Error handling change of " + file + ": " + rte.getMessage(), rte);
+        }
+    }
+
+    @Override
+    public void close() {
+        thread.interrupt();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + '{' + file + '}';
+    }
+
+}
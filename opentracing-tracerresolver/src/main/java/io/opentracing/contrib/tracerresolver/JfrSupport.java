@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import io.opentracing.Tracer;
+
+/**
+ * Emits Java Flight Recorder events for the {@link ResolutionEvent resolution events}.
+ * <p>
+ * This variant never emits anything; JFR events are only available from Java 11.
+ * The Java 11 variant of this class in the multi-release jar emits a JFR event per phase and per candidate
+ * while a recording is running.
+ */
+final class JfrSupport {
+
+    private JfrSupport() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Begins a JFR event for a phase, if a recording is running with phase events enabled.
+     *
+     * @return The begun event, or {@code null} if it is not enabled.
+     */
+    static Object beginPhase() {
+        return null;
+    }
+
+    /**
+     * Begins a JFR event for a single call, if a recording is running with candidate events enabled.
+     *
+     * @return The begun event, or {@code null} if it is not enabled.
+     */
+    static Object beginCandidate() {
+        return null;
+    }
+
+    /**
+     * Commits a begun JFR event, its duration lasting until now.
+     *
+     * @param event     The event returned by {@link #beginPhase()} or {@link #beginCandidate()}.
+     * @param phase     The phase of the resolution.
+     * @param candidate The factory, resolver, tracer or converter that was called, may be {@code null}.
+     * @param tracer    The tracer that was obtained, may be {@code null}.
+     * @param failure   The exception thrown by the candidate, may be {@code null}.
+     */
+    static void commit(Object event, ResolutionEvent.Phase phase, Object candidate, Tracer tracer, Throwable failure) {
+    }
+
+}
@@ -17,12 +17,14 @@ package io.opentracing.contrib.tracerresolver;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import static java.lang.Math.abs;
 
 /**
- * Comparator for classes that may or may not contain a <code>{@literal @}Priority</code> annotation
+ * Priority ordering of objects whose classes may or may not contain a <code>{@literal @}Priority</code> annotation
  * on their class or superclasses.
  * <p>
  * The priority is applied as follows:
@@ -34,41 +36,57 @@ import static java.lang.Math.abs;
  * </ol>
  * <p>
  * The order of objects with equal (implicit) priority is undefined.
+ * <p>
+ * The priority of each class is looked up reflectively only once.
+ * The results are kept in a map with weak class keys, so classes can still be unloaded.
  *
  * @author Sjoerd Talsma
  */
-final class PriorityComparator implements Comparator<Object> {
-    private static final int UNDEFINED_PRIORITY = Integer.MAX_VALUE;
+final class PriorityComparator {
+    static final int UNDEFINED_PRIORITY = Integer.MAX_VALUE;
     private static final boolean PRIORITY_AVAILABLE = isPriorityAnnotationAvailable();
-
-    private static final PriorityComparator INSTANCE = new PriorityComparator();
+    private static final Map<Class<?>, Integer> PRIORITIES =
+            Collections.synchronizedMap(new WeakHashMap<Class<?>, Integer>());
 
     private PriorityComparator() {
+        throw new UnsupportedOperationException();
     }
 
     static <T> Iterable<T> prioritize(Iterable<T> iterable) {
         if (!PRIORITY_AVAILABLE) return iterable;
-        ArrayList<T> list = new ArrayList<T>();
-        for (T value : iterable) list.add(value);
-        Collections.sort(list, INSTANCE);
+        List<Prioritized<T>> prioritized = new ArrayList<Prioritized<T>>();
+        for (T value : iterable) prioritized.add(new Prioritized<T>(value, priorityOf(value)));
+        Collections.sort(prioritized);
+        List<T> list = new ArrayList<T>(prioritized.size());
+        for (Prioritized<T> value : prioritized) list.add(value.value);
         return list;
     }
 
-    @Override
-    public int compare(Object value1, Object value2) {
-        return comparePriority(priorityOf(value1), priorityOf(value2));
-    }
-
-    private static int comparePriority(int prio1, int prio2) {
+    static int comparePriority(int prio1, int prio2) {
         return prio1 == prio2 ? 0
                 : prio1 < 0 ? (prio2 < 0 ? comparePriority(abs(prio1), abs(prio2)) : 1)
                 : prio2 < 0 ? -1
                 : prio1 < prio2 ? -1 : 1;
     }
 
-    private static int priorityOf(Object value) {
-        if (value == null) return UNDEFINED_PRIORITY;
+    /**
+     * Determines the priority of an object or class.
+     *
+     * @param value The object or class to determine the priority for.
+     * @return The priority, or {@link #UNDEFINED_PRIORITY} if there is no {@literal @}Priority annotation.
+     */
+    static int priorityOf(Object value) {
+        if (value == null || !PRIORITY_AVAILABLE) return UNDEFINED_PRIORITY;
         Class<?> type = value instanceof Class ? (Class<?>) value : value.getClass();
+        Integer priority = PRIORITIES.get(type);
+        if (priority == null) {
+            priority = lookupPriority(type);
+            PRIORITIES.put(type, priority);
+        }
+        return priority;
+    }
+
+    private static int lookupPriority(Class<?> type) {
         // Don't import Priority. Loading the PriorityComparator class would fail if Priority isn't there at runtime!
         javax.annotation.Priority priority = type.getAnnotation(javax.annotation.Priority.class);
         return priority != null ? priority.value() : priorityOf(type.getSuperclass());
@@ -84,4 +102,22 @@ final class PriorityComparator implements Comparator<Object> {
         }
     }
 
+    /**
+     * Value with its priority determined up-front, so sorting doesn't perform any reflection.
+     */
+    private static final class Prioritized<T> implements Comparable<Prioritized<T>> {
+        private final T value;
+        private final int priority;
+
+        private Prioritized(T value, int priority) {
+            this.value = value;
+            this.priority = priority;
+        }
+
+        @Override
+        public int compareTo(Prioritized<T> other) {
+            return comparePriority(priority, other.priority);
+        }
+    }
+
 }
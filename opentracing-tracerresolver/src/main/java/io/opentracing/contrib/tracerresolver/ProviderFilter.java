@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Allow and deny patterns for provider class names.
+ * <p>
+ * Patterns are separated by commas or whitespace and may contain {@code *} wildcards,
+ * e.g. {@code "com.vendor.*, *.FooTracerFactory"}.
+ * A class name is accepted if it matches any allow pattern (or no allow patterns are configured)
+ * and does not match any deny pattern.
+ */
+final class ProviderFilter {
+    private static final Logger LOGGER = Logger.getLogger(ProviderFilter.class.getName());
+    static final ProviderFilter ACCEPT_ALL =
+            new ProviderFilter(Collections.<Pattern>emptyList(), Collections.<Pattern>emptyList());
+
+    private final List<Pattern> allow;
+    private final List<Pattern> deny;
+
+    private ProviderFilter(List<Pattern> allow, List<Pattern> deny) {
+        this.allow = allow;
+        this.deny = deny;
+    }
+
+    /**
+     * Parses allow and deny patterns.
+     *
+     * @param allow The patterns of accepted class names, or {@code null} to accept all class names.
+     * @param deny  The patterns of rejected class names, or {@code null} to reject none.
+     * @return The filter.
+     */
+    static ProviderFilter parse(String allow, String deny) {
+        List<Pattern> allowPatterns = patterns(allow);
+        List<Pattern> denyPatterns = patterns(deny);
+        return allowPatterns.isEmpty() && denyPatterns.isEmpty()
+                ? ACCEPT_ALL : new ProviderFilter(allowPatterns, denyPatterns);
+    }
+
+    private static List<Pattern> patterns(String value) {
+        if (value == null || value.trim().length() == 0) return Collections.emptyList();
+        List<Pattern> patterns = new ArrayList<Pattern>();
+        for (String glob : value.trim().split("[\\s,]+")) {
+            StringBuilder regex = new StringBuilder();
+            String[] parts = glob.split("\\*", -1);
+            for (int i = 0; i < parts.length; i++) {
+                if (i > 0) regex.append(".*");
+                if (parts[i].length() > 0) regex.append(Pattern.quote(parts[i]));
+            }
+            patterns.add(Pattern.compile(regex.toString()));
+        }
+        return Collections.unmodifiableList(patterns);
+    }
+
+    /**
+     * @return Whether this filter accepts every class name.
+     */
+    boolean acceptsAll() {
+        return allow.isEmpty() && deny.isEmpty();
+    }
+
+    /**
+     * @param service   The service the provider is declared for.
+     * @param className The provider class name to check.
+     * @return Whether the provider class is accepted.
+     */
+    boolean accepts(Class<?> service, String className) {
+        boolean accepted = (allow.isEmpty() || matches(allow, className)) && !matches(deny, className);
+        if (!accepted) {
+            LOGGER.log(Level.FINE, "Skipping {0} provider {1}, it is not accepted by {2}.",
+                    new Object[]{service.getName(), className, this});
+        }
+        return accepted;
+    }
+
+    private static boolean matches(List<Pattern> patterns, String className) {
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(className).matches()) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{allow=" + allow + ", deny=" + deny + '}';
+    }
+
+}
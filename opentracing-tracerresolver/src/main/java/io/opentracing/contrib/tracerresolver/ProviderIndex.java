@@ -0,0 +1,367 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static io.opentracing.contrib.tracerresolver.PriorityComparator.comparePriority;
+
+/**
+ * Reader for the provider index that is generated at build time by the {@code opentracing-tracerresolver-processor}.
+ * <p>
+ * For each service, the index is stored in {@code META-INF/tracerresolver/<service class name>}.
+ * Each line contains the resolved priority and the name of a provider class, separated by whitespace.
+ * Lines starting with {@code #} are ignored.
+ * <p>
+ * The index only provides the order and priorities: the providers themselves are still the ones
+ * declared in {@code META-INF/services}, indexed classes that are not declared are never loaded.
+ * The index is only used if every classpath entry declaring the service in {@code META-INF/services}
+ * also contains an index for it, and every declared provider is indexed.
+ * Otherwise, providers without index would silently be skipped.
+ * In that case (or if no index is found at all), {@code null} is returned
+ * and the caller is expected to fall back to the {@link java.util.ServiceLoader}.
+ * <p>
+ * Providers are instantiated lazily, in order of their indexed priority.
+ * Providers that are not accepted by the configured {@link ProviderFilter} are never loaded.
+ * <p>
+ * Without index, the {@link #declared(Class, ClassLoader, ProviderFilter) declared} providers can still be filtered
+ * before they are loaded, by reading the {@code META-INF/services} files directly.
+ * <p>
+ * In a GraalVM native image, the {@link BuildTimeIndex} takes precedence over any index on the classpath.
+ */
+final class ProviderIndex {
+    private static final Logger LOGGER = Logger.getLogger(ProviderIndex.class.getName());
+    static final String INDEX_LOCATION = "META-INF/tracerresolver/";
+    private static final String SERVICES_LOCATION = "META-INF/services/";
+
+    private ProviderIndex() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Loads the indexed providers of a service.
+     *
+     * @param service     The service to load the providers for.
+     * @param classLoader The class loader to load the index and providers with,
+     *                    or {@code null} to use the system class loader.
+     * @param filter      The filter for the provider class names.
+     * @param <T>         The service type.
+     * @return The providers in priority order, or {@code null} if there is no (complete) index for the service.
+     */
+    static <T> Iterable<T> load(Class<T> service, ClassLoader classLoader, ProviderFilter filter) {
+        if (classLoader == null) classLoader = ClassLoader.getSystemClassLoader();
+        try {
+            String[] builtClassNames = BuildTimeIndex.classNames(service.getName());
+            List<Entry> entries = builtClassNames != null
+                    ? Entry.ranked(builtClassNames) : read(service.getName(), classLoader);
+            if (entries == null) return null;
+            for (Iterator<Entry> it = entries.iterator(); it.hasNext(); ) {
+                if (!filter.accepts(service, it.next().className)) it.remove();
+            }
+            return new LazyProviders<T>(service, classLoader, entries);
+        } catch (IOException ioe) {
+            LOGGER.log(Level.WARNING, "Error reading provider index for " + service.getName() + ": " + ioe.getMessage(), ioe);
+            return null;
+        }
+    }
+
+    /**
+     * Loads the providers of a service that are declared in {@code META-INF/services}, without any index.
+     * <p>
+     * Only the classes of providers accepted by the filter are loaded (without initializing them)
+     * to determine their priority. Providers are instantiated lazily, in order of that priority.
+     *
+     * @param service     The service to load the providers for.
+     * @param classLoader The class loader to load the declarations and providers with,
+     *                    or {@code null} to use the system class loader.
+     * @param filter      The filter for the provider class names.
+     * @param <T>         The service type.
+     * @return The accepted providers in priority order.
+     */
+    static <T> Iterable<T> declared(Class<T> service, ClassLoader classLoader, ProviderFilter filter) {
+        if (classLoader == null) classLoader = ClassLoader.getSystemClassLoader();
+        return new LazyProviders<T>(service, classLoader, declaredEntries(service, classLoader, filter));
+    }
+
+    /**
+     * Determines the class names of all declared providers of a service in order of priority,
+     * without instantiating them. Used to build the {@link BuildTimeIndex}.
+     *
+     * @param service     The service to determine the providers for.
+     * @param classLoader The class loader to load the declarations and provider classes with.
+     * @return The class names of the providers that could be loaded, in order of priority.
+     */
+    static String[] prioritizedClassNames(Class<?> service, ClassLoader classLoader) {
+        List<Entry> entries = declaredEntries(service, classLoader, ProviderFilter.ACCEPT_ALL);
+        String[] classNames = new String[entries.size()];
+        for (int i = 0; i < classNames.length; i++) classNames[i] = entries.get(i).className;
+        return classNames;
+    }
+
+    /**
+     * Determines the class names of the indexed providers of a service in the order they are tried,
+     * without loading them and regardless of any {@link ProviderFilter}.
+     *
+     * @param service     The service to determine the providers for.
+     * @param classLoader The class loader to load the index with, or {@code null} to use the system class loader.
+     * @return The indexed class names in order of priority,
+     * or {@code null} if there is no (complete) index for the service.
+     */
+    static List<String> indexedClassNames(Class<?> service, ClassLoader classLoader) {
+        if (classLoader == null) classLoader = ClassLoader.getSystemClassLoader();
+        try {
+            String[] builtClassNames = BuildTimeIndex.classNames(service.getName());
+            List<Entry> entries = builtClassNames != null
+                    ? Entry.ranked(builtClassNames) : read(service.getName(), classLoader);
+            if (entries == null) return null;
+            List<String> classNames = new ArrayList<String>(entries.size());
+            for (Entry entry : entries) classNames.add(entry.className);
+            return classNames;
+        } catch (IOException ioe) {
+            LOGGER.log(Level.WARNING, "Error reading provider index for " + service.getName() + ": " + ioe.getMessage(), ioe);
+            return null;
+        }
+    }
+
+    /**
+     * Loads provider classes without initializing or instantiating them.
+     * Classes that cannot be loaded are logged and skipped.
+     *
+     * @param service     The service of the providers.
+     * @param classNames  The class names of the providers.
+     * @param classLoader The class loader to load the classes with.
+     * @return The provider classes, in the order of the class names.
+     */
+    static List<Class<?>> types(Class<?> service, Iterable<String> classNames, ClassLoader classLoader) {
+        List<Class<?>> types = new ArrayList<Class<?>>();
+        for (String className : classNames) {
+            try {
+                types.add(Class.forName(className, false, classLoader));
+            } catch (ClassNotFoundException cnfe) {
+                LOGGER.log(Level.WARNING, "Declared " + service.getName() + " provider " + className + " not found.", cnfe);
+            } catch (LinkageError le) {
+                LOGGER.log(Level.WARNING, "Error loading declared " + service.getName() + " provider "
+                        + className + ": " + le.getMessage(), le);
+            }
+        }
+        return types;
+    }
+
+    private static List<Entry> declaredEntries(Class<?> service, ClassLoader classLoader, ProviderFilter filter) {
+        String servicesName = SERVICES_LOCATION + service.getName();
+        Set<String> classNames = new LinkedHashSet<String>();
+        try {
+            for (Enumeration<URL> declarations = classLoader.getResources(servicesName); declarations.hasMoreElements(); ) {
+                readDeclaration(declarations.nextElement(), classNames);
+            }
+        } catch (IOException ioe) {
+            LOGGER.log(Level.WARNING, "Error reading " + servicesName + ": " + ioe.getMessage(), ioe);
+        }
+
+        List<Entry> entries = new ArrayList<Entry>();
+        for (String className : classNames) {
+            if (!filter.accepts(service, className)) continue;
+            try {
+                Class<?> type = Class.forName(className, false, classLoader);
+                entries.add(new Entry(PriorityComparator.priorityOf(type), className));
+            } catch (ClassNotFoundException cnfe) {
+                LOGGER.log(Level.WARNING, "Declared " + service.getName() + " provider " + className + " not found.", cnfe);
+            } catch (LinkageError le) {
+                LOGGER.log(Level.WARNING, "Error loading declared " + service.getName() + " provider "
+                        + className + ": " + le.getMessage(), le);
+            }
+        }
+        Collections.sort(entries, Entry.PRIORITY_ORDER);
+        return entries;
+    }
+
+    private static void readDeclaration(URL declaration, Set<String> classNames) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(declaration.openStream(), "UTF-8"));
+        try {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                int comment = line.indexOf('#');
+                if (comment >= 0) line = line.substring(0, comment);
+                line = line.trim();
+                if (line.length() > 0) classNames.add(line);
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static List<Entry> read(String serviceName, ClassLoader classLoader) throws IOException {
+        String indexName = INDEX_LOCATION + serviceName;
+        Set<String> indexedRoots = new HashSet<String>();
+        Set<String> classNames = new HashSet<String>();
+        List<Entry> entries = new ArrayList<Entry>();
+        for (Enumeration<URL> indexes = classLoader.getResources(indexName); indexes.hasMoreElements(); ) {
+            URL index = indexes.nextElement();
+            if (indexedRoots.add(rootOf(index, indexName))) readIndex(index, classNames, entries);
+        }
+        if (indexedRoots.isEmpty()) return null;
+
+        String servicesName = SERVICES_LOCATION + serviceName;
+        Set<String> declared = new HashSet<String>();
+        for (Enumeration<URL> declarations = classLoader.getResources(servicesName); declarations.hasMoreElements(); ) {
+            URL declaration = declarations.nextElement();
+            if (!indexedRoots.contains(rootOf(declaration, servicesName))) {
+                LOGGER.log(Level.FINER, "Ignoring provider index for {0}, {1} is not indexed.",
+                        new Object[]{serviceName, declaration});
+                return null;
+            }
+            readDeclaration(declaration, declared);
+        }
+        if (!classNames.containsAll(declared)) {
+            LOGGER.log(Level.FINER, "Ignoring provider index for {0}, not all declared providers are indexed.", serviceName);
+            return null;
+        }
+
+        for (Iterator<Entry> it = entries.iterator(); it.hasNext(); ) {
+            if (!declared.contains(it.next().className)) it.remove(); // Only declared providers are loaded
+        }
+        Collections.sort(entries, Entry.PRIORITY_ORDER);
+        return entries;
+    }
+
+    private static void readIndex(URL index, Set<String> classNames, List<Entry> entries) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(index.openStream(), "UTF-8"));
+        try {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                line = line.trim();
+                if (line.length() == 0 || line.startsWith("#")) continue;
+                Entry entry = Entry.parse(line);
+                if (classNames.add(entry.className)) entries.add(entry);
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static String rootOf(URL resource, String resourceName) {
+        String url = resource.toExternalForm();
+        return url.endsWith(resourceName) ? url.substring(0, url.length() - resourceName.length()) : url;
+    }
+
+    private static final class Entry {
+        private static final Comparator<Entry> PRIORITY_ORDER = new Comparator<Entry>() {
+            @Override
+            public int compare(Entry entry1, Entry entry2) {
+                return comparePriority(entry1.priority, entry2.priority);
+            }
+        };
+
+        private final int priority;
+        private final String className;
+
+        private Entry(int priority, String className) {
+            this.priority = priority;
+            this.className = className;
+        }
+
+        /**
+         * @param classNames Class names that are already in order of priority.
+         * @return Entries ranked in the order of the class names.
+         */
+        private static List<Entry> ranked(String[] classNames) {
+            List<Entry> entries = new ArrayList<Entry>(classNames.length);
+            for (int i = 0; i < classNames.length; i++) entries.add(new Entry(i, classNames[i]));
+            return entries;
+        }
+
+        private static Entry parse(String line) throws IOException {
+            String[] parts = line.split("\\s+");
+            if (parts.length == 1) return new Entry(PriorityComparator.UNDEFINED_PRIORITY, parts[0]);
+            try {
+                return new Entry(Integer.parseInt(parts[0]), parts[1]);
+            } catch (NumberFormatException nfe) {
+                throw new IOException("Illegal provider index line: \"" + line + "\".");
+            }
+        }
+    }
+
+    private static final class LazyProviders<T> implements Iterable<T> {
+        private final Class<T> service;
+        private final ClassLoader classLoader;
+        private final List<Entry> entries;
+
+        private LazyProviders(Class<T> service, ClassLoader classLoader, List<Entry> entries) {
+            this.service = service;
+            this.classLoader = classLoader;
+            this.entries = entries;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            final Iterator<Entry> delegate = entries.iterator();
+            return new Iterator<T>() {
+                private T next = null;
+
+                @Override
+                public boolean hasNext() {
+                    while (next == null && delegate.hasNext()) next = instantiate(delegate.next());
+                    return next != null;
+                }
+
+                @Override
+                public T next() {
+                    if (!hasNext()) throw new NoSuchElementException();
+                    T result = next;
+                    next = null;
+                    return result;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException("Providers are read-only.");
+                }
+            };
+        }
+
+        private T instantiate(Entry entry) {
+            try {
+                Class<?> type = Class.forName(entry.className, false, classLoader);
+                return service.cast(type.getConstructor().newInstance());
+            } catch (InvocationTargetException ite) {
+                LOGGER.log(Level.WARNING, "Error instantiating " + service.getName() + " provider "
+                        + entry.className + ": " + ite.getCause(), ite.getCause());
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Error instantiating " + service.getName() + " provider "
+                        + entry.className + ": " + e.getMessage(), e);
+            } catch (LinkageError le) {
+                LOGGER.log(Level.WARNING, "Error loading " + service.getName() + " provider "
+                        + entry.className + ": " + le.getMessage(), le);
+            }
+            return null;
+        }
+    }
+
+}
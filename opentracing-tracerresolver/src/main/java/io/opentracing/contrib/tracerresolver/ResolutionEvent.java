@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import io.opentracing.Tracer;
+
+/**
+ * Timed event of a tracer resolution, delivered to {@link ResolutionListener resolution listeners}.
+ * <p>
+ * A <em>phase</em> event describes an entire {@link Phase}, measured on the resolving thread.
+ * For the {@link Phase#FACTORY FACTORY}, {@link Phase#RESOLVER RESOLVER} and
+ * {@link Phase#SERVICE_LOADER SERVICE_LOADER} phases, its candidate is the one that provided the resolved tracer.
+ * A <em>candidate</em> event describes a single call within a phase,
+ * e.g. one {@link TracerFactory#getTracer()} or {@link TracerConverter#convert(Tracer)} call,
+ * measured on the thread that made the call.
+ */
+public final class ResolutionEvent {
+
+    /**
+     * Phases of a tracer resolution.
+     */
+    public enum Phase {
+        /**
+         * The complete resolution for a class loader, excluding cached results.
+         */
+        RESOLUTION,
+        /**
+         * Checking for a registered {@code GlobalTracer}.
+         */
+        GLOBAL_TRACER,
+        /**
+         * Getting a tracer from {@link TracerFactory} implementations.
+         */
+        FACTORY,
+        /**
+         * Resolving a tracer using {@link TracerResolver} subclasses.
+         */
+        RESOLVER,
+        /**
+         * Loading {@link Tracer} implementations directly from the {@link java.util.ServiceLoader ServiceLoader}.
+         */
+        SERVICE_LOADER,
+        /**
+         * Applying {@link TracerConverter converters} to a tracer.
+         */
+        CONVERSION
+    }
+
+    private final Phase phase;
+    private final boolean entirePhase;
+    private final Object candidate;
+    private final ClassLoader classLoader;
+    private final long startNanos;
+    private final long durationNanos;
+    private final Tracer tracer;
+    private final Throwable failure;
+
+    ResolutionEvent(Phase phase, boolean entirePhase, Object candidate, ClassLoader classLoader,
+                    long startNanos, long durationNanos, Tracer tracer, Throwable failure) {
+        this.phase = phase;
+        this.entirePhase = entirePhase;
+        this.candidate = candidate;
+        this.classLoader = classLoader;
+        this.startNanos = startNanos;
+        this.durationNanos = durationNanos;
+        this.tracer = tracer;
+        this.failure = failure;
+    }
+
+    /**
+     * @return The phase this event belongs to.
+     */
+    public Phase getPhase() {
+        return phase;
+    }
+
+    /**
+     * @return Whether this event describes an entire phase rather than a single call.
+     */
+    public boolean isPhase() {
+        return entirePhase;
+    }
+
+    /**
+     * @return The factory, resolver, tracer or converter that was called.
+     * For a phase event, this is the candidate that provided the resolved tracer, or {@code null}.
+     */
+    public Object getCandidate() {
+        return candidate;
+    }
+
+    /**
+     * @return The class loader the tracer is resolved for.
+     */
+    public ClassLoader getClassLoader() {
+        return classLoader;
+    }
+
+    /**
+     * @return The {@link System#nanoTime()} at the start of the phase or call.
+     */
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * @return The duration of the phase or call in nanoseconds.
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * @return The tracer that was obtained, or {@code null} if none was obtained.
+     */
+    public Tracer getTracer() {
+        return tracer;
+    }
+
+    /**
+     * @return The exception thrown by the candidate, or {@code null} if it didn't fail.
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + '{' + phase + (entirePhase ? " phase" : "")
+                + (candidate != null ? ", candidate=" + candidate : "")
+                + ", durationNanos=" + durationNanos
+                + ", tracer=" + tracer
+                + (failure != null ? ", failure=" + failure : "")
+                + '}';
+    }
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+/**
+ * Listener receiving timed {@link ResolutionEvent events} while a tracer is being resolved.
+ * <p>
+ * Listeners are found using the {@link java.util.ServiceLoader ServiceLoader} of the resolving class loader,
+ * or can be registered programmatically using {@link TracerResolver#addResolutionListener(ResolutionListener)}.
+ * Discovered listeners are notified in the order of their <code>{@literal @}Priority</code> annotation,
+ * before programmatically registered listeners.
+ * <p>
+ * Listeners must be thread-safe and fast: events can be delivered from any thread that calls a candidate
+ * and exceptions thrown by a listener are logged and otherwise ignored.
+ * Listeners should not resolve tracers themselves.
+ */
+public interface ResolutionListener {
+
+    /**
+     * Called after a phase of the resolution or a single candidate has completed.
+     *
+     * @param event The event describing what happened and how long it took.
+     */
+    void onEvent(ResolutionEvent event);
+
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import io.opentracing.Tracer;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The {@link ResolutionListener resolution listeners} for a class loader.
+ * <p>
+ * If no listeners are discovered or registered, no events are created and no time is measured:
+ * {@link #startPhase()} and {@link #startCandidate()} return {@code null} and the notification methods return immediately.
+ * The same applies to the {@linkplain JfrSupport JFR events}, which are only emitted while a recording is running.
+ * Discovered listeners are cached per class loader just like converter pipelines:
+ * only if none of them would {@linkplain ClassLoaderCache#keepsReachable keep the class loader reachable}.
+ */
+final class ResolutionListeners {
+    private static final Logger LOGGER = Logger.getLogger(ResolutionListeners.class.getName());
+    private static final ResolutionListener[] NO_LISTENERS = new ResolutionListener[0];
+    private static final ResolutionListeners NONE = new ResolutionListeners(null, NO_LISTENERS);
+    private static final ClassLoaderCache<ResolutionListeners> DISCOVERED =
+            new ClassLoaderCache<ResolutionListeners>();
+    private static volatile ResolutionListener[] registered = NO_LISTENERS;
+
+    private final WeakReference<ClassLoader> classLoader; // Cached by class loader, so it must not keep it reachable
+    private final ResolutionListener[] discovered;
+
+    private ResolutionListeners(ClassLoader classLoader, ResolutionListener[] discovered) {
+        this.classLoader = new WeakReference<ClassLoader>(classLoader);
+        this.discovered = discovered;
+    }
+
+    /**
+     * Returns the discovered and registered listeners for a class loader,
+     * discovering them only the first time unless they would keep the class loader reachable.
+     *
+     * @param classLoader The class loader to discover the listeners with.
+     * @return The (cached) listeners for the class loader.
+     */
+    static ResolutionListeners forClassLoader(ClassLoader classLoader) {
+        ResolutionListeners listeners = DISCOVERED.get(classLoader);
+        if (listeners == null) {
+            List<ResolutionListener> found = new ArrayList<ResolutionListener>();
+            boolean cacheable = true;
+            for (ResolutionListener listener : ServiceProviders.load(ResolutionListener.class, classLoader)) {
+                found.add(listener);
+                cacheable &= !ClassLoaderCache.keepsReachable(classLoader, listener.getClass());
+            }
+            listeners = new ResolutionListeners(classLoader, found.toArray(NO_LISTENERS));
+            if (cacheable) DISCOVERED.put(classLoader, listeners);
+        }
+        return listeners;
+    }
+
+    /**
+     * Returns only the programmatically registered listeners, without discovering any.
+     *
+     * @param classLoader The class loader the tracer is resolved for.
+     * @return The registered listeners.
+     */
+    static ResolutionListeners registeredOnly(ClassLoader classLoader) {
+        return registered.length == 0 ? NONE : new ResolutionListeners(classLoader, NO_LISTENERS);
+    }
+
+    static synchronized void register(ResolutionListener listener) {
+        if (listener == null) throw new NullPointerException("Resolution listener is <null>.");
+        ResolutionListener[] listeners = Arrays.copyOf(registered, registered.length + 1);
+        listeners[registered.length] = listener;
+        registered = listeners;
+    }
+
+    static synchronized boolean unregister(ResolutionListener listener) {
+        List<ResolutionListener> listeners = new ArrayList<ResolutionListener>(Arrays.asList(registered));
+        boolean removed = listeners.remove(listener);
+        if (removed) registered = listeners.toArray(NO_LISTENERS);
+        return removed;
+    }
+
+    /**
+     * Clears all discovered listeners, so they are discovered again.
+     */
+    static void clear() {
+        DISCOVERED.clear();
+    }
+
+    /**
+     * Clears the discovered listeners for a class loader, so they are discovered again.
+     *
+     * @param classLoader The class loader to clear the discovered listeners for.
+     */
+    static void invalidate(ClassLoader classLoader) {
+        DISCOVERED.remove(classLoader);
+    }
+
+    boolean isEnabled() {
+        return discovered.length > 0 || registered.length > 0;
+    }
+
+    /**
+     * Starts timing a phase, to be passed to {@link #phase(ResolutionEvent.Phase, Object, Started, Tracer)}.
+     *
+     * @return The start of the phase, or {@code null} if there are no listeners
+     * and no {@linkplain JfrSupport JFR recording} is running.
+     */
+    Started startPhase() {
+        return start(JfrSupport.beginPhase());
+    }
+
+    /**
+     * Starts timing a call, to be passed to
+     * {@link #candidate(ResolutionEvent.Phase, Object, Started, Tracer, Throwable)}.
+     *
+     * @return The start of the call, or {@code null} if there are no listeners
+     * and no {@linkplain JfrSupport JFR recording} is running.
+     */
+    Started startCandidate() {
+        return start(JfrSupport.beginCandidate());
+    }
+
+    private Started start(Object jfrEvent) {
+        return jfrEvent != null || isEnabled() ? new Started(System.nanoTime(), jfrEvent) : null;
+    }
+
+    void phase(ResolutionEvent.Phase phase, Object candidate, Started start, Tracer tracer) {
+        notify(phase, true, candidate, start, tracer, null);
+    }
+
+    void candidate(ResolutionEvent.Phase phase, Object candidate, Started start, Tracer tracer, Throwable failure) {
+        notify(phase, false, candidate, start, tracer, failure);
+    }
+
+    private void notify(ResolutionEvent.Phase phase, boolean entirePhase, Object candidate,
+                        Started start, Tracer tracer, Throwable failure) {
+        ResolutionListener[] registered = ResolutionListeners.registered;
+        if (start == null) return; // Not timed, a listener or recording was started after the phase or call started
+        long durationNanos = System.nanoTime() - start.nanos;
+        if (start.jfrEvent != null) JfrSupport.commit(start.jfrEvent, phase, candidate, tracer, failure);
+        if (discovered.length == 0 && registered.length == 0) return;
+        ResolutionEvent event = new ResolutionEvent(phase, entirePhase,
+                candidate, classLoader.get(), start.nanos, durationNanos, tracer, failure);
+        notify(discovered, event);
+        notify(registered, event);
+    }
+
+    private static void notify(ResolutionListener[] listeners, ResolutionEvent event) {
+        for (ResolutionListener listener : listeners) {
+            try {
+                listener.onEvent(event);
+            } catch (RuntimeException rte) {
+                LOGGER.log(Level.WARNING, "Error notifying " + listener + " of " + event + ": " + rte.getMessage(), rte);
+            }
+        }
+    }
+
+    /**
+     * The start of a timed phase or call.
+     */
+    static final class Started {
+        private final long nanos;
+        private final Object jfrEvent; // The begun JFR event, or null if no recording is running
+
+        private Started(long nanos, Object jfrEvent) {
+            this.nanos = nanos;
+            this.jfrEvent = jfrEvent;
+        }
+    }
+
+}
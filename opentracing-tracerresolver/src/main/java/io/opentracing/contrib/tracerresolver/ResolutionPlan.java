@@ -0,0 +1,250 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import io.opentracing.Tracer;
+import io.opentracing.contrib.tracerresolver.ResolutionEvent.Phase;
+
+import java.net.URL;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Immutable report of how a tracer would be resolved for a class loader, created by
+ * {@link TracerResolver#plan(ClassLoader)} without instantiating any provider or building any tracer.
+ * <p>
+ * The {@linkplain #getCandidates() candidates} are listed in the order they would be tried:
+ * first the {@link TracerFactory factories}, then the {@link TracerResolver resolvers}
+ * and finally the {@link Tracer} implementations themselves. Resolution stops at the first candidate
+ * that provides a tracer. The {@linkplain #getConverters() converters} are listed in the order they would be applied
+ * to that tracer.
+ * <p>
+ * Candidates rejected by the {@code tracerresolver.*.allow} or {@code tracerresolver.*.deny} filters
+ * are listed as well, but would never be tried.
+ */
+public final class ResolutionPlan {
+    private static final Logger LOGGER = Logger.getLogger(ResolutionPlan.class.getName());
+
+    private final ClassLoader classLoader;
+    private final boolean globalTracerRegistered;
+    private final boolean disabled;
+    private final String configuredFactory;
+    private final List<Candidate> candidates;
+    private final List<Candidate> converters;
+
+    private ResolutionPlan(ClassLoader classLoader, boolean globalTracerRegistered, boolean disabled,
+                           String configuredFactory, List<Candidate> candidates, List<Candidate> converters) {
+        this.classLoader = classLoader;
+        this.globalTracerRegistered = globalTracerRegistered;
+        this.disabled = disabled;
+        this.configuredFactory = configuredFactory;
+        this.candidates = Collections.unmodifiableList(candidates);
+        this.converters = Collections.unmodifiableList(converters);
+    }
+
+    /**
+     * Plans the resolution for a class loader, loading the provider classes without initializing them.
+     *
+     * @param classLoader            The class loader to plan the resolution for.
+     * @param config                 The configuration to plan with.
+     * @param globalTracerRegistered Whether a {@code GlobalTracer} is registered.
+     * @return The plan.
+     */
+    static ResolutionPlan create(ClassLoader classLoader, TracerResolverConfig config, boolean globalTracerRegistered) {
+        List<Candidate> candidates = new ArrayList<Candidate>();
+        if (config.factory != null) {
+            candidates.add(configuredFactory(config.factory, classLoader));
+        } else {
+            addCandidates(candidates, Phase.FACTORY, TracerFactory.class, classLoader, config);
+            addCandidates(candidates, Phase.RESOLVER, TracerResolver.class, classLoader, config);
+            addCandidates(candidates, Phase.SERVICE_LOADER, Tracer.class, classLoader, config);
+        }
+        List<Candidate> converters = new ArrayList<Candidate>();
+        addCandidates(converters, Phase.CONVERSION, TracerConverter.class, classLoader, config);
+        return new ResolutionPlan(classLoader, globalTracerRegistered, config.disabled, config.factory,
+                candidates, converters);
+    }
+
+    private static void addCandidates(List<Candidate> candidates, Phase phase, Class<?> service,
+                                      ClassLoader classLoader, TracerResolverConfig config) {
+        ProviderFilter filter = config.filter(service);
+        int order = 0;
+        for (Class<?> type : ServiceProviders.types(service, classLoader)) {
+            boolean accepted = filter.accepts(service, type.getName());
+            candidates.add(new Candidate(phase, type.getName(), PriorityComparator.priorityOf(type), sourceOf(type),
+                    accepted ? ++order : 0));
+        }
+    }
+
+    private static Candidate configuredFactory(String factoryName, ClassLoader classLoader) {
+        try {
+            Class<?> type = Class.forName(factoryName, false, classLoader);
+            return new Candidate(Phase.FACTORY, factoryName, PriorityComparator.priorityOf(type), sourceOf(type), 1);
+        } catch (ClassNotFoundException cnfe) {
+            LOGGER.log(Level.WARNING, "Configured tracer factory " + factoryName + " was not found using " + classLoader + '.');
+        } catch (LinkageError le) {
+            LOGGER.log(Level.WARNING, "Configured tracer factory " + factoryName + " could not be loaded: " + le, le);
+        }
+        return new Candidate(Phase.FACTORY, factoryName, PriorityComparator.UNDEFINED_PRIORITY, null, 1);
+    }
+
+    private static String sourceOf(Class<?> type) {
+        try {
+            CodeSource codeSource = type.getProtectionDomain().getCodeSource();
+            URL location = codeSource != null ? codeSource.getLocation() : null;
+            return location != null ? location.toExternalForm() : null;
+        } catch (SecurityException se) {
+            LOGGER.log(Level.FINEST, "Not allowed to determine the source of " + type.getName() + '.', se);
+            return null;
+        }
+    }
+
+    /**
+     * @return The class loader the resolution was planned for.
+     */
+    public ClassLoader getClassLoader() {
+        return classLoader;
+    }
+
+    /**
+     * @return Whether a {@code GlobalTracer} is registered, which would be returned as-is instead of any candidate.
+     */
+    public boolean isGlobalTracerRegistered() {
+        return globalTracerRegistered;
+    }
+
+    /**
+     * @return Whether the resolver is disabled by {@code "tracerresolver.disabled"}, so no candidate would be tried.
+     */
+    public boolean isDisabled() {
+        return disabled;
+    }
+
+    /**
+     * @return The factory class configured by {@code "tracerresolver.factory"}, which would be the only candidate,
+     * or {@code null} if none is configured.
+     */
+    public String getConfiguredFactory() {
+        return configuredFactory;
+    }
+
+    /**
+     * @return The factories, resolvers and tracers in the order they would be tried.
+     */
+    public List<Candidate> getCandidates() {
+        return candidates;
+    }
+
+    /**
+     * @return The converters in the order they would be applied to the resolved tracer.
+     */
+    public List<Candidate> getConverters() {
+        return converters;
+    }
+
+    /**
+     * Renders the plan as a human-readable report, one candidate per line.
+     *
+     * @return The report.
+     */
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder("Tracer resolution plan for ").append(classLoader);
+        if (globalTracerRegistered) report.append("\n  (registered GlobalTracer is used as-is)");
+        if (disabled) report.append("\n  (tracer resolver is disabled)");
+        for (Candidate candidate : candidates) report.append("\n  ").append(candidate);
+        for (Candidate converter : converters) report.append("\n  ").append(converter);
+        return report.toString();
+    }
+
+    /**
+     * A provider of a factory, resolver, tracer or converter, as it would be considered during resolution.
+     */
+    public static final class Candidate {
+        private final Phase phase;
+        private final String className;
+        private final int priority;
+        private final String source;
+        private final int order;
+
+        private Candidate(Phase phase, String className, int priority, String source, int order) {
+            this.phase = phase;
+            this.className = className;
+            this.priority = priority;
+            this.source = source;
+            this.order = order;
+        }
+
+        /**
+         * @return The phase the candidate would be tried in: {@link Phase#FACTORY FACTORY},
+         * {@link Phase#RESOLVER RESOLVER}, {@link Phase#SERVICE_LOADER SERVICE_LOADER}
+         * or {@link Phase#CONVERSION CONVERSION}.
+         */
+        public Phase getPhase() {
+            return phase;
+        }
+
+        /**
+         * @return The class name of the provider.
+         */
+        public String getClassName() {
+            return className;
+        }
+
+        /**
+         * @return The effective <code>{@literal @}Priority</code> of the provider class or its superclasses,
+         * or {@link Integer#MAX_VALUE} if it has none. Please note that the order of a provider index
+         * generated by the {@code opentracing-tracerresolver-processor} takes precedence over the annotated priority.
+         */
+        public int getPriority() {
+            return priority;
+        }
+
+        /**
+         * @return The location (e.g. jar file) the provider class was loaded from, or {@code null} if unknown.
+         */
+        public String getSource() {
+            return source;
+        }
+
+        /**
+         * @return The position within its phase in which the candidate would be tried, starting at {@code 1},
+         * or {@code 0} if it is rejected by the configured filters and would never be tried.
+         */
+        public int getOrder() {
+            return order;
+        }
+
+        /**
+         * @return Whether the candidate is accepted by the configured filters.
+         */
+        public boolean isAccepted() {
+            return order > 0;
+        }
+
+        @Override
+        public String toString() {
+            return phase + " " + (order > 0 ? "#" + order : "rejected") + ": " + className
+                    + (priority != PriorityComparator.UNDEFINED_PRIORITY ? " @Priority(" + priority + ")" : "")
+                    + (source != null ? " from " + source : "");
+        }
+    }
+
+}
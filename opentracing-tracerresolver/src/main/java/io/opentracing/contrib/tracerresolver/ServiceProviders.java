@@ -0,0 +1,74 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.ServiceLoader;
+
+import static io.opentracing.contrib.tracerresolver.PriorityComparator.prioritize;
+
+/**
+ * Loads the providers of a service in order of priority.
+ * <p>
+ * The provider index generated by the {@code opentracing-tracerresolver-processor} is used if available,
+ * saving the scanning of {@code META-INF/services} files and the priority lookups at runtime.
+ * Otherwise the providers are loaded by the {@link ServiceLoader}.
+ * Before Java 9, the {@linkplain ServiceLoader} has to instantiate every provider to determine its priority.
+ * The Java 9 variant of this class in the multi-release jar ranks the provider <em>types</em> instead
+ * and only instantiates the providers that are actually iterated.
+ * <p>
+ * If {@link TracerResolverConfig#filter(Class) provider filters} are configured, rejected providers are never loaded.
+ */
+final class ServiceProviders {
+
+    private ServiceProviders() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Loads the prioritized providers of a service.
+     *
+     * @param service     The service to load the providers for.
+     * @param classLoader The class loader to be used to load provider-configuration files and provider classes.
+     * @param <T>         The service type.
+     * @return The providers of the service in order of priority.
+     */
+    static <T> Iterable<T> load(Class<T> service, ClassLoader classLoader) {
+        ProviderFilter filter = TracerResolverConfig.get().filter(service);
+        Iterable<T> indexed = ProviderIndex.load(service, classLoader, filter);
+        if (indexed != null) return indexed;
+        return filter.acceptsAll()
+                ? prioritize(ServiceLoader.load(service, classLoader))
+                : ProviderIndex.declared(service, classLoader, filter);
+    }
+
+    /**
+     * Determines the provider classes of a service in the order they would be tried by {@link #load(Class, ClassLoader)},
+     * regardless of any {@link ProviderFilter}. The classes are loaded, but neither initialized nor instantiated.
+     *
+     * @param service     The service to determine the providers for.
+     * @param classLoader The class loader to be used to load provider-configuration files and provider classes.
+     * @return The provider classes of the service in order of priority.
+     */
+    static List<Class<?>> types(Class<?> service, ClassLoader classLoader) {
+        if (classLoader == null) classLoader = ClassLoader.getSystemClassLoader();
+        List<String> classNames = ProviderIndex.indexedClassNames(service, classLoader);
+        if (classNames == null) classNames = Arrays.asList(ProviderIndex.prioritizedClassNames(service, classLoader));
+        return ProviderIndex.types(service, classNames, classLoader);
+    }
+
+}
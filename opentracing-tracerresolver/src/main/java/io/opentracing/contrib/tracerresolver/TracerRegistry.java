@@ -0,0 +1,235 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import io.opentracing.Tracer;
+
+import java.io.Closeable;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Registry of resolved tracers by name and class loader, for JVMs running multiple applications
+ * (e.g. application servers with a class loader per deployment).
+ * <p>
+ * Each combination of name (e.g. tenant or service name) and class loader gets its own tracer,
+ * which is {@linkplain TracerResolver#resolveTracer(ClassLoader) resolved} once and then reused.
+ * The name only distinguishes the tracers; it is not passed to the {@link TracerFactory factories}.
+ * <p>
+ * Tracers for different names or class loaders are resolved concurrently; there is no global lock.
+ * Concurrent requests for the same name and class loader wait for a single resolution.
+ * <p>
+ * The tracers of a class loader must be evicted and closed using {@link #close(ClassLoader)}
+ * when it is no longer used, e.g. when its application is undeployed.
+ * The registry holds its tracers strongly, and a tracer whose classes are loaded by the class loader itself
+ * keeps that class loader reachable, so such tracers are never evicted otherwise.
+ * The keys only reference their class loaders weakly; should a class loader become unreachable nonetheless,
+ * its tracers are closed the next time the registry is used.
+ * <p>
+ * A registered {@code GlobalTracer} is returned as-is and never closed by the registry.
+ */
+public final class TracerRegistry implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(TracerRegistry.class.getName());
+
+    private final ConcurrentMap<Key, FutureTask<Tracer>> tracers = new ConcurrentHashMap<Key, FutureTask<Tracer>>();
+    private final ReferenceQueue<ClassLoader> unreachable = new ReferenceQueue<ClassLoader>();
+
+    /**
+     * Returns the tracer for a name and class loader, resolving it the first time it is requested.
+     *
+     * @param name        The name of the tracer, e.g. the tenant or service name (required).
+     * @param classLoader The class loader to resolve the tracer with,
+     *                    or {@code null} to use the thread context class loader.
+     * @return The tracer for the name and class loader, or {@code null} if none could be resolved.
+     * @throws IllegalStateException if the configured {@code "tracerresolver.factory"} cannot be instantiated,
+     *                               or if the thread was interrupted while waiting for another thread resolving the
+     *                               tracer; the interrupt status is kept.
+     */
+    public Tracer get(String name, ClassLoader classLoader) {
+        if (name == null) throw new NullPointerException("Tracer name is <null>.");
+        final ClassLoader resolvingClassLoader = classLoaderOrDefault(classLoader);
+        expungeUnreachable();
+
+        Key key = new Key(name, resolvingClassLoader, null);
+        FutureTask<Tracer> resolution = tracers.get(key);
+        if (resolution == null) {
+            key = new Key(name, resolvingClassLoader, unreachable);
+            FutureTask<Tracer> newResolution = new FutureTask<Tracer>(new Callable<Tracer>() {
+                @Override
+                public Tracer call() {
+                    return TracerResolver.resolveTracer(resolvingClassLoader, false);
+                }
+            });
+            resolution = tracers.putIfAbsent(key, newResolution);
+            if (resolution == null) {
+                resolution = newResolution;
+                resolution.run();
+                LOGGER.log(Level.FINE, "Registered tracer \"{0}\" for {1}.", new Object[]{name, resolvingClassLoader});
+            }
+        }
+        return await(key, resolution);
+    }
+
+    /**
+     * Evicts and closes the tracer for a name and class loader.
+     *
+     * @param name        The name of the tracer.
+     * @param classLoader The class loader of the tracer, or {@code null} for the thread context class loader.
+     * @return Whether a tracer was evicted.
+     */
+    public boolean close(String name, ClassLoader classLoader) {
+        expungeUnreachable();
+        if (name == null) return false;
+        FutureTask<Tracer> resolution = tracers.remove(new Key(name, classLoaderOrDefault(classLoader), null));
+        closeResolved(name, resolution);
+        return resolution != null;
+    }
+
+    /**
+     * Evicts and closes all tracers for a class loader, e.g. when its application is undeployed.
+     * The converters and resolution listeners cached for the class loader are discarded as well.
+     *
+     * @param classLoader The class loader, or {@code null} for the thread context class loader.
+     * @return The number of evicted tracers.
+     */
+    public int close(ClassLoader classLoader) {
+        expungeUnreachable();
+        ClassLoader evicted = classLoaderOrDefault(classLoader);
+        ConverterPipeline.invalidate(evicted);
+        ResolutionListeners.invalidate(evicted);
+        int count = 0;
+        for (Iterator<Map.Entry<Key, FutureTask<Tracer>>> it = tracers.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Key, FutureTask<Tracer>> entry = it.next();
+            if (entry.getKey().get() == evicted && tracers.remove(entry.getKey(), entry.getValue())) {
+                closeResolved(entry.getKey().name, entry.getValue());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Evicts and closes all tracers in this registry.
+     */
+    @Override
+    public void close() {
+        for (Iterator<Map.Entry<Key, FutureTask<Tracer>>> it = tracers.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Key, FutureTask<Tracer>> entry = it.next();
+            if (tracers.remove(entry.getKey(), entry.getValue())) closeResolved(entry.getKey().name, entry.getValue());
+        }
+    }
+
+    /**
+     * @return The number of tracers in this registry, after evicting those of unreachable class loaders.
+     */
+    public int size() {
+        expungeUnreachable();
+        return tracers.size();
+    }
+
+    private void expungeUnreachable() {
+        for (Reference<? extends ClassLoader> ref = unreachable.poll(); ref != null; ref = unreachable.poll()) {
+            Key key = (Key) ref;
+            FutureTask<Tracer> resolution = tracers.remove(key);
+            if (resolution != null) {
+                LOGGER.log(Level.FINE, "Evicting tracer \"{0}\", its class loader is no longer reachable.", key.name);
+                closeResolved(key.name, resolution);
+            }
+        }
+    }
+
+    private Tracer await(Key key, FutureTask<Tracer> resolution) {
+        try {
+            return resolution.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for tracer \"" + key.name + "\".", ie);
+        } catch (ExecutionException ee) {
+            tracers.remove(key, resolution); // Don't remember failures, try again next time
+            Throwable cause = ee.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause.getMessage(), cause);
+        }
+    }
+
+    private static void closeResolved(String name, FutureTask<Tracer> resolution) {
+        if (resolution == null) return;
+        try {
+            Tracer tracer = resolution.get(); // Waits for a resolution that is still in progress
+            if (tracer != null && !TracerResolver.isGlobalTracer(tracer)) {
+                tracer.close();
+                LOGGER.log(Level.FINE, "Closed tracer \"{0}\": {1}.", new Object[]{name, tracer});
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ee) {
+            LOGGER.log(Level.FINEST, "Not closing failed tracer \"" + name + "\".", ee.getCause());
+        } catch (RuntimeException rte) {
+            LOGGER.log(Level.WARNING, "Error closing tracer \"" + name + "\": " + rte.getMessage(), rte);
+        }
+    }
+
+    private static ClassLoader classLoaderOrDefault(ClassLoader classLoader) {
+        if (classLoader == null) classLoader = Thread.currentThread().getContextClassLoader();
+        return classLoader != null ? classLoader : ClassLoader.getSystemClassLoader();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{size=" + tracers.size() + '}';
+    }
+
+    /**
+     * Key of name and weakly referenced class loader.
+     * Keys of class loaders that were collected are only equal to themselves.
+     */
+    private static final class Key extends WeakReference<ClassLoader> {
+        private final String name;
+        private final int hash;
+
+        private Key(String name, ClassLoader classLoader, ReferenceQueue<ClassLoader> queue) {
+            super(classLoader, queue);
+            this.name = name;
+            this.hash = 31 * name.hashCode() + System.identityHashCode(classLoader);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) return true;
+            if (!(other instanceof Key)) return false;
+            Key key = (Key) other;
+            ClassLoader classLoader = get();
+            return hash == key.hash && classLoader != null && classLoader == key.get() && name.equals(key.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
@@ -16,12 +16,33 @@
 package io.opentracing.contrib.tracerresolver;
 
 import io.opentracing.Tracer;
+import io.opentracing.noop.NoopTracerFactory;
 
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.ServiceLoader;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import static io.opentracing.contrib.tracerresolver.PriorityComparator.prioritize;
+import static io.opentracing.contrib.tracerresolver.ResolutionEvent.Phase.CONVERSION;
+import static io.opentracing.contrib.tracerresolver.ResolutionEvent.Phase.FACTORY;
+import static io.opentracing.contrib.tracerresolver.ResolutionEvent.Phase.GLOBAL_TRACER;
+import static io.opentracing.contrib.tracerresolver.ResolutionEvent.Phase.RESOLUTION;
+import static io.opentracing.contrib.tracerresolver.ResolutionEvent.Phase.RESOLVER;
+import static io.opentracing.contrib.tracerresolver.ResolutionEvent.Phase.SERVICE_LOADER;
+import static io.opentracing.contrib.tracerresolver.ServiceProviders.load;
 
 /**
  * {@code TracerResolver} API definition looks for one or more registered {@link TracerResolver} implementations
@@ -39,6 +60,10 @@ import static io.opentracing.contrib.tracerresolver.PriorityComparator.prioritiz
  */
 public abstract class TracerResolver {
     private static final Logger LOGGER = Logger.getLogger(TracerResolver.class.getName());
+    private static final boolean GLOBAL_TRACER_AVAILABLE = isGlobalTracerAvailable();
+    private static final ClassLoaderCache<CachedTracer> CACHE = new ClassLoaderCache<CachedTracer>();
+    private static final ClassLoaderCache<Resolution> IN_FLIGHT = new ClassLoaderCache<Resolution>();
+    private static volatile boolean managementChecked = false;
 
     /**
      * Resolves the {@link Tracer} implementation.
@@ -102,75 +127,450 @@ public abstract class TracerResolver {
      * returned. Note that if a {@link TracerResolver} has a higher priority than all available {@link TracerFactory},
      * the factory still wins.
      *
+     * <p>
+     * If caching is enabled by the {@code "tracerresolver.cached"} system property
+     * or {@code TRACERRESOLVER_CACHED} environment variable, the outcome is remembered for the class loader
+     * until it is {@linkplain #invalidate(ClassLoader) invalidated}.
+     *
+     * <p>
+     * If a factory class is configured by the {@code "tracerresolver.factory"} system property
+     * or {@code TRACERRESOLVER_FACTORY} environment variable, only that factory is used
+     * and no providers are looked up by the {@link ServiceLoader}. {@link TracerConverter Converters} are still applied.
+     *
+     * <p>
+     * With caching enabled, concurrent calls for the same class loader also share a single resolution:
+     * callers arriving while a resolution is in progress wait for it and get the same (cached) tracer,
+     * instead of each building their own. Like any cached tracer, it is shared and must not be closed by the callers.
+     * Without caching, every call resolves a new tracer that is owned by the caller.
+     * <p>
+     * If the {@code "tracerresolver.globaltracer"} system property or {@code TRACERRESOLVER_GLOBALTRACER}
+     * environment variable is {@code true}, the resolved tracer is also registered as the {@code GlobalTracer}.
+     *
      * @param classloader The class loader to be used to load provider-configuration files
      *     and provider classes, or null if the thread context class loader to be used.
      * @return The resolved Tracer or {@code null} if none was resolved.
+     * @throws IllegalStateException if the configured {@code "tracerresolver.factory"} cannot be instantiated.
      */
     public static Tracer resolveTracer(ClassLoader classloader) {
-        try { // Take care NOT to import GlobalTracer as it is an optional dependency and may not be on the classpath.
-            if (io.opentracing.util.GlobalTracer.isRegistered()) {
-                return logResolved(io.opentracing.util.GlobalTracer.get());
+        return resolveTracer(classloader, isCached(), true);
+    }
+
+    /**
+     * Resolves a new Tracer like {@link #resolveTracer(ClassLoader)}, optionally bypassing the cache,
+     * but without registering the {@code GlobalTracer}.
+     *
+     * @param classloader The class loader to be used to load provider-configuration files
+     *     and provider classes, or null if the thread context class loader to be used.
+     * @param cached      Whether the cached tracer of the class loader may be used (and cached).
+     * @return The resolved Tracer or {@code null} if none was resolved.
+     */
+    static Tracer resolveTracer(ClassLoader classloader, boolean cached) {
+        return resolveTracer(classloader, cached, false);
+    }
+
+    private static Tracer resolveTracer(ClassLoader classloader, boolean cached, boolean register) {
+        if (classloader == null) {
+            classloader = Thread.currentThread().getContextClassLoader();
+        }
+        if (cached && !isGlobalTracerRegistered()) { // Warm path: a single lookup
+            CachedTracer cachedTracer = CACHE.get(classloader);
+            Tracer tracer = cachedTracer != null ? cachedTracer.tracer() : null;
+            if (tracer != null || cachedTracer != null && cachedTracer.isNone()) {
+                return tracer;
+            }
+        }
+        if (!managementChecked) {
+            registerManagementBean();
+        }
+        boolean disabled = TracerResolver.isDisabled();
+        ResolutionListeners listeners = disabled
+                ? ResolutionListeners.registeredOnly(classloader) : ResolutionListeners.forClassLoader(classloader);
+
+        // Take care NOT to import GlobalTracer as it is an optional dependency and may not be on the classpath.
+        if (GLOBAL_TRACER_AVAILABLE) {
+            ResolutionListeners.Started start = listeners.startPhase();
+            Tracer globalTracer = io.opentracing.util.GlobalTracer.isRegistered()
+                    ? io.opentracing.util.GlobalTracer.get() : null;
+            listeners.phase(GLOBAL_TRACER, null, start, globalTracer);
+            if (globalTracer != null) {
+                return logResolved(globalTracer);
             }
-        } catch (NoClassDefFoundError globalTracerNotInClasspath) {
-            LOGGER.finest("GlobalTracer is not found on the classpath.");
         }
 
         Tracer tracer = null;
-        if (!TracerResolver.isDisabled()) {
-            if (classloader == null) {
-                classloader = Thread.currentThread().getContextClassLoader();
+        if (!disabled) {
+            if (cached) {
+                tracer = resolveOnce(classloader, listeners, register);
+            } else {
+                tracer = resolveUncached(classloader, listeners);
+                if (register) tracer = registerGlobalTracer(tracer);
             }
-            tracer = getFromFactory(classloader);
-            if (null == tracer) {
-                tracer = getFromResolver(classloader);
+        }
+
+        return tracer;
+    }
+
+    /**
+     * Resolves a Tracer in the same way as {@link #resolveTracer(ClassLoader)}, but using the given executor.
+     * <p>
+     * This allows slow {@link TracerFactory factories} (e.g. opening connections or reading configuration)
+     * to run in parallel with other initialization.
+     * The returned future completes with the resolved tracer, or {@code null} if none was resolved.
+     *
+     * @param classloader The class loader to be used to load provider-configuration files
+     *     and provider classes, or null if the thread context class loader <em>of the calling thread</em> is to be used.
+     * @param executor    The executor to run the resolution with (required).
+     * @return The future resolved tracer.
+     * @throws java.util.concurrent.RejectedExecutionException if the executor does not accept the resolution task.
+     */
+    public static Future<Tracer> resolveTracerAsync(ClassLoader classloader, Executor executor) {
+        if (executor == null) throw new NullPointerException("Executor is <null>.");
+        final ClassLoader resolvingClassLoader = classloader != null
+                ? classloader : Thread.currentThread().getContextClassLoader();
+        FutureTask<Tracer> resolution = new FutureTask<Tracer>(new Callable<Tracer>() {
+            @Override
+            public Tracer call() {
+                return resolveTracer(resolvingClassLoader);
             }
+        });
+        executor.execute(resolution);
+        return resolution;
+    }
 
-            if (null == tracer) {
-                tracer = getFromServiceLoader(classloader);
+    /**
+     * Returns a Tracer that can be used immediately, while the actual tracer is resolved using the given executor.
+     * <p>
+     * Until resolution completes, the returned tracer forwards to a no-op tracer.
+     * Once the tracer is resolved (in the same way as {@link #resolveTracer(ClassLoader)}),
+     * the returned tracer atomically switches to it.
+     * If no tracer could be resolved, it keeps forwarding to the no-op tracer.
+     * <p>
+     * Please note that spans started before the switch remain no-op spans.
+     * Closing the returned tracer closes the resolved tracer, unless it is shared:
+     * a cached tracer or the {@code GlobalTracer} is left open.
+     *
+     * @param classloader The class loader to be used to load provider-configuration files
+     *     and provider classes, or null if the thread context class loader <em>of the calling thread</em> is to be used.
+     * @param executor    The executor to run the resolution with (required).
+     * @return The delegating tracer, never {@code null}.
+     * @throws java.util.concurrent.RejectedExecutionException if the executor does not accept the resolution task.
+     */
+    public static Tracer resolveDelegatingTracer(ClassLoader classloader, Executor executor) {
+        if (executor == null) throw new NullPointerException("Executor is <null>.");
+        final ClassLoader resolvingClassLoader = classloader != null
+                ? classloader : Thread.currentThread().getContextClassLoader();
+        final DelegatingTracer delegatingTracer = new DelegatingTracer(NoopTracerFactory.create());
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    boolean cached = isCached();
+                    Tracer resolved = resolveTracer(resolvingClassLoader, cached, true);
+                    if (resolved != null) {
+                        // Cached tracers and the GlobalTracer are shared, so they must not be closed with the handle
+                        delegatingTracer.swap(resolved, !cached && !isGlobalTracer(resolved));
+                    } else {
+                        LOGGER.log(Level.FINE, "No tracer resolved, {0} keeps using the no-op tracer.", delegatingTracer);
+                    }
+                } catch (RuntimeException rte) {
+                    LOGGER.log(Level.WARNING, "Error resolving tracer for " + delegatingTracer + ": " + rte.getMessage(), rte);
+                }
             }
+        });
+        return delegatingTracer;
+    }
+
+    /**
+     * Plans the resolution of a tracer for a class loader without resolving it: a dry run that reports
+     * every factory, resolver, tracer and converter candidate with its priority and source,
+     * in the order the candidates would be tried.
+     * <p>
+     * Provider classes are loaded, but no provider is instantiated and no tracer is built,
+     * so the plan is cheap to create, e.g. to verify which tracer would win before deploying.
+     * Cached tracers are ignored.
+     *
+     * @param classloader The class loader to be used to load provider-configuration files
+     *     and provider classes, or null if the thread context class loader to be used.
+     * @return The resolution plan, never {@code null}.
+     */
+    public static ResolutionPlan plan(ClassLoader classloader) {
+        if (classloader == null) {
+            classloader = Thread.currentThread().getContextClassLoader();
         }
+        return ResolutionPlan.create(classloader, TracerResolverConfig.get(), isGlobalTracerRegistered());
+    }
 
-        return tracer;
+    /**
+     * Adds a listener that is notified of timed events of every tracer resolution,
+     * in addition to listeners found by the {@link ServiceLoader}.
+     *
+     * @param listener The listener to add (required).
+     * @see ResolutionListener
+     */
+    public static void addResolutionListener(ResolutionListener listener) {
+        ResolutionListeners.register(listener);
     }
 
     /**
-     * Reloads the lazily found {@linkplain TracerResolver resolvers} and the fallback resolver.
+     * Removes a listener that was {@linkplain #addResolutionListener(ResolutionListener) added} before.
      *
-     * @deprecated This method is now no-op. It's safe to just remove this method call, as there's no caching anymore.
+     * @param listener The listener to remove.
+     * @return Whether the listener was removed.
+     */
+    public static boolean removeResolutionListener(ResolutionListener listener) {
+        return ResolutionListeners.unregister(listener);
+    }
+
+    /**
+     * Resolves and caches a tracer for the class loader, unless a resolution for it is already in progress.
+     * In that case, the outcome of that resolution is awaited, so concurrent first calls
+     * (e.g. from several integrations initializing in parallel) don't each build their own tracer.
+     * <p>
+     * A call from the resolving thread itself or from a {@linkplain Deadline#isCandidateThread() candidate thread}
+     * (e.g. a factory resolving a tracer) resolves a new tracer, rather than waiting for a resolution
+     * that may be waiting for the caller.
+     * Other callers wait at most the {@linkplain TracerResolverConfig#cachedTimeoutMillis configured time}
+     * and get no tracer if the resolution is still in progress by then.
+     *
+     * @param classloader The class loader to resolve the tracer for.
+     * @param listeners   The listeners to notify of the resolution.
+     * @param register    Whether the resolved tracer may be registered as {@code GlobalTracer}.
+     * @return The resolved (or cached) tracer, or {@code null} if none was resolved.
+     */
+    private static Tracer resolveOnce(ClassLoader classloader, ResolutionListeners listeners, boolean register) {
+        Resolution started = new Resolution(classloader, listeners, register);
+        Resolution resolution = IN_FLIGHT.putIfAbsent(classloader, started);
+        if (resolution == started) {
+            try {
+                started.run();
+            } finally {
+                IN_FLIGHT.remove(classloader, started);
+            }
+        } else if (resolution.thread == Thread.currentThread() || Deadline.isCandidateThread()) {
+            return resolveUncached(classloader, listeners);
+        } else {
+            LOGGER.log(Level.FINER, "Awaiting the tracer resolution in progress for {0}.", classloader);
+        }
+        long timeoutMillis = TracerResolverConfig.get().cachedTimeoutMillis;
+        try {
+            return resolution.await(timeoutMillis);
+        } catch (TimeoutException te) {
+            LOGGER.log(Level.WARNING, "Tracer resolution for {0} still in progress after {1} ms, no tracer resolved.",
+                    new Object[]{classloader, timeoutMillis});
+            return null;
+        }
+    }
+
+    /**
+     * Registers a resolved tracer as {@code GlobalTracer} if {@linkplain TracerResolverConfig#registerGlobalTracer
+     * configured}. If another tracer was registered in the meantime, the resolved tracer is closed.
+     *
+     * @param tracer The resolved tracer, may be {@code null}.
+     * @return The {@code GlobalTracer} if registration is configured, otherwise the resolved tracer.
+     */
+    private static Tracer registerGlobalTracer(Tracer tracer) {
+        if (tracer == null || !TracerResolverConfig.get().registerGlobalTracer) return tracer;
+        if (!GLOBAL_TRACER_AVAILABLE) {
+            LOGGER.log(Level.WARNING, "Cannot register {0} as GlobalTracer, opentracing-util is not available.", tracer);
+            return tracer;
+        }
+        if (io.opentracing.util.GlobalTracer.registerIfAbsent(tracer)) {
+            LOGGER.log(Level.FINE, "Registered {0} as GlobalTracer.", tracer);
+        } else {
+            LOGGER.log(Level.INFO, "Closing {0}, another GlobalTracer was registered while it was resolved.", tracer);
+            try {
+                tracer.close();
+            } catch (RuntimeException rte) {
+                LOGGER.log(Level.WARNING, "Error closing " + tracer + ": " + rte.getMessage(), rte);
+            }
+        }
+        return io.opentracing.util.GlobalTracer.get();
+    }
+
+    private static Tracer resolveUncached(ClassLoader classloader, ResolutionListeners listeners) {
+        ResolutionListeners.Started start = listeners.startPhase();
+        TracerResolverConfig config = TracerResolverConfig.get();
+        Deadline deadline = Deadline.start(config.candidateTimeoutMillis, config.timeoutMillis);
+        Tracer tracer;
+        if (config.factory != null) {
+            tracer = getFromConfiguredFactory(config.factory, classloader, deadline, listeners);
+        } else {
+            tracer = getFromFactory(classloader, deadline, listeners);
+            if (null == tracer && !deadline.isExpired()) {
+                tracer = getFromResolver(classloader, deadline, listeners);
+            }
+
+            if (null == tracer && !deadline.isExpired()) {
+                tracer = getFromServiceLoader(classloader, deadline, listeners);
+            }
+        }
+
+        if (null == tracer && deadline.isExpired()) {
+            LOGGER.log(Level.WARNING, "Tracer resolution deadline has expired, no tracer resolved.");
+        }
+        listeners.phase(RESOLUTION, null, start, tracer);
+        return tracer;
+    }
+
+    /**
+     * Clears all cached resolution outcomes, {@link TracerConverter converters}
+     * and discovered {@link ResolutionListener listeners}, and reads the configuration again,
+     * so the next {@link #resolveTracer()} call resolves a new tracer.
      */
-    @Deprecated
     public static void reload() {
-        LOGGER.log(Level.FINER, "No-op for this implementation.");
+        CACHE.clear();
+        ConverterPipeline.clear();
+        ResolutionListeners.clear();
+        TracerResolverConfig.reload();
+        managementChecked = false;
+        LOGGER.log(Level.FINER, "Cleared all cached tracers and converters.");
     }
 
     /**
-     * There are two ways to globally disable the tracer resolver:
+     * Clears the cached resolution outcome, {@link TracerConverter converters} and discovered
+     * {@link ResolutionListener listeners} for a single class loader,
+     * so the next {@link #resolveTracer(ClassLoader)} call for that class loader resolves a new tracer.
+     * <p>
+     * Please note that the previously resolved tracer is <em>not</em> closed; it may still be in use.
+     *
+     * @param classloader The class loader to invalidate the cached tracer for,
+     *     or null if the thread context class loader is meant.
+     */
+    public static void invalidate(ClassLoader classloader) {
+        if (classloader == null) {
+            classloader = Thread.currentThread().getContextClassLoader();
+        }
+        ConverterPipeline.invalidate(classloader);
+        ResolutionListeners.invalidate(classloader);
+        if (CACHE.remove(classloader) != null) {
+            LOGGER.log(Level.FINER, "Invalidated cached tracer for {0}.", classloader);
+        }
+    }
+
+    /**
+     * Returns a setting that is configured in the same way as the {@code tracerresolver.*} settings:
+     * by a system property, or else an environment variable (upper case with underscores instead of dots),
+     * or else the configuration file named by {@code "tracerresolver.config"}.
+     * <p>
+     * This allows {@link TracerConverter converters} and other extensions to be configured alongside the resolver.
+     *
+     * @param property The name of the setting, e.g. {@code "tracerresolver.sampler.rate"} (required).
+     * @return The value of the setting, or {@code null} if it is not configured.
+     */
+    public static String getConfiguration(String property) {
+        if (property == null) throw new NullPointerException("Configuration property is <null>.");
+        return TracerResolverConfig.get().setting(property);
+    }
+
+    /**
+     * There are three ways to globally disable the tracer resolver:
      * <ul>
      * <li>Setting a {@code "tracerresolver.disabled"} system property to {@code true}</li>
      * <li>Setting the environment variable {@code TRACERRESOLVER_DISABLED} to {@code true}</li>
+     * <li>Setting {@code tracerresolver.disabled} to {@code true} in the {@link TracerResolverConfig configuration file}</li>
      * </ul>
      *
      * @return Whether the tracer resolver mechanism is disabled ({@code false} by default).
      */
     private static boolean isDisabled() {
-        String prop = System.getProperty("tracerresolver.disabled", System.getenv("TRACERRESOLVER_DISABLED"));
-        return prop != null && (prop.equals("1") || prop.equalsIgnoreCase("true"));
+        return TracerResolverConfig.get().disabled;
+    }
+
+    /**
+     * @return Whether resolved tracers are cached ({@code false} by default).
+     * @see TracerResolverConfig#cached
+     */
+    static boolean isCached() {
+        return TracerResolverConfig.get().cached;
     }
 
-    private static Tracer convert(Tracer resolved) {
-        if (resolved != null) {
-            for (TracerConverter converter : prioritize(ServiceLoader.load(TracerConverter.class))) {
+    /**
+     * The {@link TracerResolverMXBean} is registered when the first tracer is resolved
+     * if it is {@linkplain TracerResolverConfig#jmx enabled}, so JVMs that never resolve a tracer don't load any JMX classes.
+     */
+    private static synchronized void registerManagementBean() {
+        if (!managementChecked) {
+            if (TracerResolverConfig.get().jmx) {
                 try {
-                    Tracer converted = converter.convert(resolved);
-                    LOGGER.log(Level.FINEST, "Converted {0} using {1}: {2}.", new Object[]{resolved, converter, converted});
-                    resolved = converted;
-                } catch (RuntimeException rte) {
-                    LOGGER.log(Level.WARNING, "Error converting " + resolved + " with " + converter + ": " + rte.getMessage(), rte);
+                    TracerResolverStatistics.register();
+                } catch (LinkageError le) { // e.g. a runtime image without the java.management module
+                    LOGGER.log(Level.WARNING, "Could not register the TracerResolverMXBean, JMX is not available: "
+                            + le.getMessage(), le);
                 }
-                if (resolved == null) break;
             }
+            managementChecked = true;
         }
-        return resolved;
+    }
+
+    private static boolean isGlobalTracerRegistered() {
+        return GLOBAL_TRACER_AVAILABLE && io.opentracing.util.GlobalTracer.isRegistered();
+    }
+
+    /**
+     * @param tracer The tracer to check.
+     * @return Whether the tracer is the registered {@code GlobalTracer}, which must never be closed by us.
+     */
+    static boolean isGlobalTracer(Tracer tracer) {
+        return GLOBAL_TRACER_AVAILABLE && tracer != null
+                && io.opentracing.util.GlobalTracer.isRegistered() && tracer == io.opentracing.util.GlobalTracer.get();
+    }
+
+    private static boolean isGlobalTracerAvailable() {
+        try {
+            return Class.forName("io.opentracing.util.GlobalTracer") != null;
+        } catch (ClassNotFoundException cnfe) {
+            LOGGER.finest("GlobalTracer is not found on the classpath.");
+            return false;
+        } catch (LinkageError le) {
+            LOGGER.finest("GlobalTracer is not found on the classpath.");
+            return false;
+        }
+    }
+
+    /**
+     * Applies the {@link TracerConverter converters} of the class loader to a resolved tracer.
+     *
+     * @param resolved    The resolved tracer, may be {@code null}.
+     * @param classloader The class loader to be used to load the converters.
+     * @param listeners   The listeners to notify of the conversion.
+     * @return The converted tracer or {@code null} if there was no resolved tracer to convert.
+     */
+    private static Tracer convert(Tracer resolved, ClassLoader classloader, ResolutionListeners listeners) {
+        if (resolved == null) return null;
+        ResolutionListeners.Started start = listeners.startPhase();
+        Tracer converted = ConverterPipeline.forClassLoader(classloader).convert(resolved, listeners);
+        listeners.phase(CONVERSION, null, start, converted);
+        return converted;
+    }
+
+    private static Tracer getTracer(TracerFactory factory, ResolutionListeners listeners) {
+        ResolutionListeners.Started start = listeners.startCandidate();
+        try {
+            Tracer tracer = factory.getTracer();
+            listeners.candidate(FACTORY, factory, start, tracer, null);
+            return tracer;
+        } catch (RuntimeException rte) {
+            listeners.candidate(FACTORY, factory, start, null, rte);
+            throw rte;
+        }
+    }
+
+    private static Tracer resolve(TracerResolver resolver, ResolutionListeners listeners) {
+        ResolutionListeners.Started start = listeners.startCandidate();
+        try {
+            Tracer tracer = resolver.resolve();
+            listeners.candidate(RESOLVER, resolver, start, tracer, null);
+            return tracer;
+        } catch (RuntimeException rte) {
+            listeners.candidate(RESOLVER, resolver, start, null, rte);
+            throw rte;
+        }
+    }
+
+    private static Tracer resolved(ResolutionListeners listeners, ResolutionEvent.Phase phase, Object candidate,
+                                   ResolutionListeners.Started start, Tracer resolvedTracer) {
+        listeners.phase(phase, candidate, start, resolvedTracer);
+        return resolvedTracer == null ? null : logResolved(resolvedTracer);
     }
 
     private static Tracer logResolved(Tracer resolvedTracer) {
@@ -182,21 +582,158 @@ public abstract class TracerResolver {
      * Attempts to load a Tracer based on the {@link TracerFactory} interface. This is the preferred way to load a tracer
      * @param classloader The class loader to be used to load provider-configuration files
      *     and provider classes
+     * @param deadline The time bounds for calling the factories
+     * @param listeners The listeners to notify of each call
      * @return a tracer as resolved by the classpath's TracerFactory, or null
      */
-    private static Tracer getFromFactory(ClassLoader classloader) {
-        for (TracerFactory factory : prioritize(ServiceLoader.load(TracerFactory.class, classloader))) {
+    private static Tracer getFromFactory(final ClassLoader classloader, Deadline deadline,
+                                         final ResolutionListeners listeners) {
+        int parallelism = TracerResolverConfig.get().factoryParallelism;
+        if (parallelism > 1) {
+            return getFromFactoryInParallel(classloader, deadline, listeners, parallelism);
+        }
+        ResolutionListeners.Started start = listeners.startPhase();
+        for (final TracerFactory factory : load(TracerFactory.class, classloader)) {
+            if (deadline.isExpired()) break;
             try {
-                Tracer tracer = convert(factory.getTracer());
+                Tracer tracer = deadline.call(factory, new Callable<Tracer>() {
+                    @Override
+                    public Tracer call() {
+                        return convert(getTracer(factory, listeners), classloader, listeners);
+                    }
+                });
                 if (tracer != null) {
-                    return logResolved(tracer);
+                    return resolved(listeners, FACTORY, factory, start, tracer);
                 }
             } catch (RuntimeException rte) {
                 LOGGER.log(Level.WARNING, "Error getting tracer using " + factory + ": " + rte.getMessage(), rte);
             }
         }
 
-        return null;
+        return resolved(listeners, FACTORY, null, start, null);
+    }
+
+    /**
+     * Loads a Tracer from the single {@link TracerFactory} class that is configured by {@code "tracerresolver.factory"}.
+     * The {@link ServiceLoader} is bypassed and there is no fallback to other factories, resolvers or tracers.
+     *
+     * @param factoryName The class name of the configured factory
+     * @param classloader The class loader to be used to load the factory class
+     * @param deadline The time bounds for calling the factory
+     * @param listeners The listeners to notify of the call
+     * @return a tracer as resolved by the configured factory, or null
+     * @throws IllegalStateException if the configured factory cannot be loaded or instantiated
+     */
+    private static Tracer getFromConfiguredFactory(String factoryName, final ClassLoader classloader,
+                                                   Deadline deadline, final ResolutionListeners listeners) {
+        ResolutionListeners.Started start = listeners.startPhase();
+        final TracerFactory factory = instantiateFactory(factoryName, classloader);
+        try {
+            Tracer tracer = deadline.call(factory, new Callable<Tracer>() {
+                @Override
+                public Tracer call() {
+                    return convert(getTracer(factory, listeners), classloader, listeners);
+                }
+            });
+            if (tracer == null) {
+                LOGGER.log(Level.WARNING, "Configured tracer factory {0} did not return a tracer.", factoryName);
+            }
+            return resolved(listeners, FACTORY, tracer != null ? factory : null, start, tracer);
+        } catch (RuntimeException rte) {
+            LOGGER.log(Level.WARNING, "Error getting tracer using " + factory + ": " + rte.getMessage(), rte);
+            return resolved(listeners, FACTORY, null, start, null);
+        }
+    }
+
+    private static TracerFactory instantiateFactory(String factoryName, ClassLoader classloader) {
+        String problem;
+        Throwable cause = null;
+        try {
+            Class<?> factoryClass = Class.forName(factoryName, true, classloader);
+            if (TracerFactory.class.isAssignableFrom(factoryClass)) {
+                return (TracerFactory) factoryClass.getConstructor().newInstance();
+            }
+            problem = "does not implement " + TracerFactory.class.getName();
+        } catch (ClassNotFoundException cnfe) {
+            problem = "was not found using " + classloader;
+            cause = cnfe;
+        } catch (LinkageError le) {
+            problem = "could not be loaded: " + le;
+            cause = le;
+        } catch (InstantiationException ie) {
+            problem = "could not be instantiated: " + ie;
+            cause = ie;
+        } catch (IllegalAccessException iae) {
+            problem = "has no public no-argument constructor: " + iae;
+            cause = iae;
+        } catch (NoSuchMethodException nsme) {
+            problem = "has no public no-argument constructor: " + nsme;
+            cause = nsme;
+        } catch (InvocationTargetException ite) {
+            problem = "could not be instantiated: " + ite.getCause();
+            cause = ite.getCause();
+        } catch (RuntimeException rte) {
+            problem = "could not be instantiated: " + rte;
+            cause = rte;
+        }
+        throw new IllegalStateException(
+                "Tracer factory " + factoryName + " configured by tracerresolver.factory " + problem + '.', cause);
+    }
+
+    /**
+     * Attempts to load a Tracer based on the {@link TracerFactory} interface, calling the factories in parallel.
+     * <p>
+     * All factories are called on a bounded pool of daemon threads, but their results are considered
+     * in order of priority: the highest-priority factory returning a tracer wins, just as in sequential resolution.
+     * Tracers from lower-priority factories are closed and factories that are still running are cancelled.
+     * Only the winning tracer is {@linkplain #convert(Tracer, ClassLoader, ResolutionListeners) converted}.
+     *
+     * @param classloader The class loader to be used to load provider-configuration files
+     *     and provider classes
+     * @param deadline The time bounds for calling the factories;
+     *     candidate timeouts count from the start of the parallel calls
+     * @param listeners The listeners to notify of each call
+     * @param parallelism The maximum number of factories to call at the same time
+     * @return a tracer as resolved by the classpath's TracerFactory, or null
+     */
+    private static Tracer getFromFactoryInParallel(ClassLoader classloader, Deadline deadline,
+                                                   final ResolutionListeners listeners, int parallelism) {
+        ResolutionListeners.Started start = listeners.startPhase();
+        List<TracerFactory> factories = new ArrayList<TracerFactory>();
+        for (TracerFactory factory : load(TracerFactory.class, classloader)) {
+            factories.add(factory);
+        }
+        if (factories.isEmpty()) return resolved(listeners, FACTORY, null, start, null);
+
+        ExecutorService pool = Executors.newFixedThreadPool(
+                Math.min(parallelism, factories.size()), Deadline.CANDIDATE_THREADS);
+        List<Deadline.Attempt> attempts = new ArrayList<Deadline.Attempt>(factories.size());
+        try {
+            for (final TracerFactory factory : factories) {
+                attempts.add(deadline.start(factory, new Callable<Tracer>() {
+                    @Override
+                    public Tracer call() {
+                        return getTracer(factory, listeners);
+                    }
+                }, pool));
+            }
+            for (int i = 0; i < attempts.size(); i++) {
+                try {
+                    Tracer tracer = convert(deadline.await(attempts.get(i)), classloader, listeners);
+                    if (tracer != null) {
+                        for (Deadline.Attempt loser : attempts.subList(i + 1, attempts.size())) {
+                            loser.discard();
+                        }
+                        return resolved(listeners, FACTORY, factories.get(i), start, tracer);
+                    }
+                } catch (RuntimeException rte) {
+                    LOGGER.log(Level.WARNING, "Error getting tracer using " + factories.get(i) + ": " + rte.getMessage(), rte);
+                }
+            }
+            return resolved(listeners, FACTORY, null, start, null);
+        } finally {
+            pool.shutdown();
+        }
     }
 
     /**
@@ -205,21 +742,31 @@ public abstract class TracerResolver {
      *
      * @param classloader The class loader to be used to load provider-configuration files
      *     and provider classes
+     * @param deadline The time bounds for calling the resolvers
+     * @param listeners The listeners to notify of each call
      * @return a tracer from {@link #resolve()}, or null
      */
-    private static Tracer getFromResolver(ClassLoader classloader) {
-        for (TracerResolver resolver : prioritize(ServiceLoader.load(TracerResolver.class, classloader))) {
+    private static Tracer getFromResolver(final ClassLoader classloader, Deadline deadline,
+                                          final ResolutionListeners listeners) {
+        ResolutionListeners.Started start = listeners.startPhase();
+        for (final TracerResolver resolver : load(TracerResolver.class, classloader)) {
+            if (deadline.isExpired()) break;
             try {
-                Tracer tracer = convert(resolver.resolve());
+                Tracer tracer = deadline.call(resolver, new Callable<Tracer>() {
+                    @Override
+                    public Tracer call() {
+                        return convert(resolve(resolver, listeners), classloader, listeners);
+                    }
+                });
                 if (tracer != null) {
-                    return logResolved(tracer);
+                    return resolved(listeners, RESOLVER, resolver, start, tracer);
                 }
             } catch (RuntimeException rte) {
                 LOGGER.log(Level.WARNING, "Error resolving tracer using " + resolver + ": " + rte.getMessage(), rte);
             }
         }
 
-        return null;
+        return resolved(listeners, RESOLVER, null, start, null);
     }
 
     /**
@@ -227,17 +774,116 @@ public abstract class TracerResolver {
      * 
      * @param classloader The class loader to be used to load provider-configuration files
      *     and provider classes
+     * @param deadline The time bounds for converting the tracers
+     * @param listeners The listeners to notify of each loaded tracer
      * @return a tracer as resolved directly by the service loader, or null
      */
-    private static Tracer getFromServiceLoader(ClassLoader classloader) {
-        for (Tracer tracer : prioritize(ServiceLoader.load(Tracer.class, classloader))) {
-            tracer = convert(tracer);
+    private static Tracer getFromServiceLoader(final ClassLoader classloader, Deadline deadline,
+                                               final ResolutionListeners listeners) {
+        ResolutionListeners.Started start = listeners.startPhase();
+        Iterator<Tracer> candidates = load(Tracer.class, classloader).iterator();
+        while (!deadline.isExpired()) {
+            // Providers may be instantiated lazily while iterating
+            ResolutionListeners.Started candidateStart = listeners.startCandidate();
+            if (!candidates.hasNext()) break;
+            final Tracer candidate = candidates.next();
+            listeners.candidate(SERVICE_LOADER, candidate, candidateStart, candidate, null);
+            Tracer tracer = deadline.call(candidate, new Callable<Tracer>() {
+                @Override
+                public Tracer call() {
+                    return convert(candidate, classloader, listeners);
+                }
+            });
             if (tracer != null) {
-                return logResolved(tracer);
+                return resolved(listeners, SERVICE_LOADER, candidate, start, tracer);
             }
         }
 
-        return null;
+        return resolved(listeners, SERVICE_LOADER, null, start, null);
+    }
+
+    /**
+     * Resolution in progress for a class loader, shared by all callers arriving before it completes.
+     */
+    private static final class Resolution extends FutureTask<Tracer> {
+        private final Thread thread = Thread.currentThread();
+
+        private Resolution(final ClassLoader classloader, final ResolutionListeners listeners, final boolean register) {
+            super(new Callable<Tracer>() {
+                @Override
+                public Tracer call() {
+                    // A resolution may have completed after the caller checked the cache
+                    CachedTracer cachedTracer = CACHE.get(classloader);
+                    Tracer tracer = cachedTracer != null ? cachedTracer.tracer() : null;
+                    if (tracer != null || cachedTracer != null && cachedTracer.isNone()) {
+                        return tracer;
+                    }
+                    tracer = resolveUncached(classloader, listeners);
+                    if (register) tracer = registerGlobalTracer(tracer);
+                    CACHE.put(classloader, new CachedTracer(tracer));
+                    return tracer;
+                }
+            });
+        }
+
+        /**
+         * Waits for the outcome of the resolution. Interrupts are deferred until the wait ends,
+         * just as if the caller had resolved the tracer itself.
+         *
+         * @param timeoutMillis The maximum time to wait in milliseconds, {@code 0} for no maximum.
+         * @return The resolved tracer, or {@code null} if none was resolved.
+         * @throws TimeoutException If the resolution did not complete in time.
+         */
+        private Tracer await(long timeoutMillis) throws TimeoutException {
+            long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            boolean interrupted = false;
+            try {
+                while (true) {
+                    try {
+                        return timeoutMillis > 0L
+                                ? get(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS) : get();
+                    } catch (InterruptedException ie) {
+                        interrupted = true;
+                    }
+                }
+            } catch (ExecutionException ee) {
+                Throwable cause = ee.getCause();
+                if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                if (cause instanceof Error) throw (Error) cause;
+                throw new IllegalStateException(cause.getMessage(), cause);
+            } finally {
+                if (interrupted) Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Cached resolution outcome; the tracer may be {@code null} if no tracer could be resolved.
+     * <p>
+     * The tracer is only referenced weakly, so a tracer loaded by the cached class loader itself
+     * does not keep that class loader reachable. It stays cached as long as the application uses it;
+     * once it is garbage collected, the next call resolves a new tracer.
+     */
+    private static final class CachedTracer {
+        private final WeakReference<Tracer> tracer; // null if no tracer was resolved
+
+        private CachedTracer(Tracer tracer) {
+            this.tracer = tracer != null ? new WeakReference<Tracer>(tracer) : null;
+        }
+
+        /**
+         * @return Whether no tracer could be resolved.
+         */
+        private boolean isNone() {
+            return tracer == null;
+        }
+
+        /**
+         * @return The cached tracer, or {@code null} if none was resolved or it was garbage collected.
+         */
+        private Tracer tracer() {
+            return tracer != null ? tracer.get() : null;
+        }
     }
 
 }
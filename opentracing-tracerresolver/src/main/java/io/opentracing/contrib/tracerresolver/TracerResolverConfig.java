@@ -0,0 +1,258 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import io.opentracing.Tracer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Immutable snapshot of the tracer resolver configuration.
+ * <p>
+ * Every setting is read once from a system property, or else from an environment variable,
+ * or else from the optional properties file that is named by the {@code "tracerresolver.config"}
+ * system property or {@code TRACERRESOLVER_CONFIG} environment variable.
+ * Environment variables are named after the property, in upper case with underscores instead of dots
+ * (e.g. {@code "tracerresolver.cached"} becomes {@code TRACERRESOLVER_CACHED}).
+ * <p>
+ * The snapshot is taken when it is first needed and is only taken again after {@link TracerResolver#reload()}.
+ */
+final class TracerResolverConfig {
+    private static final Logger LOGGER = Logger.getLogger(TracerResolverConfig.class.getName());
+    private static volatile TracerResolverConfig current;
+
+    /**
+     * Whether the tracer resolver mechanism is disabled ({@code "tracerresolver.disabled"}, {@code false} by default).
+     */
+    final boolean disabled;
+
+    /**
+     * Whether resolved tracers are cached per class loader ({@code "tracerresolver.cached"}, {@code false} by default).
+     * With caching enabled, repeated {@link TracerResolver#resolveTracer(ClassLoader)} calls for the same class loader
+     * return the same tracer (or {@code null}) until {@link TracerResolver#reload()}
+     * or {@link TracerResolver#invalidate(ClassLoader)} is called.
+     */
+    final boolean cached;
+
+    /**
+     * Whether a tracer resolved by {@link TracerResolver#resolveTracer(ClassLoader)} is registered
+     * as the {@code GlobalTracer} ({@code "tracerresolver.globaltracer"}, {@code false} by default).
+     */
+    final boolean registerGlobalTracer;
+
+    /**
+     * Whether the {@link TracerResolverMXBean} is registered ({@code "tracerresolver.jmx"}, {@code false} by default).
+     */
+    final boolean jmx;
+
+    /**
+     * Maximum time in milliseconds for a single {@link TracerFactory} or {@link TracerResolver} candidate
+     * (including conversion), after which it is abandoned and the next candidate is tried
+     * ({@code "tracerresolver.candidate.timeout"}, {@code 0} for no maximum).
+     */
+    final long candidateTimeoutMillis;
+
+    /**
+     * Maximum time in milliseconds for the entire resolution, after which no tracer is resolved
+     * ({@code "tracerresolver.timeout"}, {@code 0} for no maximum).
+     */
+    final long timeoutMillis;
+
+    /**
+     * Maximum time in milliseconds that a caller waits for a cached resolution that is already in progress,
+     * after which it gets no tracer ({@code "tracerresolver.cached.timeout"}, {@code 30000} by default,
+     * {@code 0} for no maximum).
+     */
+    final long cachedTimeoutMillis;
+
+    /**
+     * Maximum number of threads to call {@link TracerFactory factories} in parallel
+     * ({@code "tracerresolver.factory.parallelism"}, {@code 0} to call them sequentially).
+     */
+    final int factoryParallelism;
+
+    /**
+     * Class name of the only {@link TracerFactory} to use ({@code "tracerresolver.factory"}, {@code null} by default).
+     * If configured, no providers are looked up and the resolver, factory and {@link Tracer} services are not used.
+     */
+    final String factory;
+
+    /**
+     * Time in milliseconds that a {@link TracerWatcher} keeps the previous tracer open after swapping it,
+     * so spans that are still in progress can finish ({@code "tracerresolver.watch.drain"}, {@code 5000} by default).
+     */
+    final long watchDrainMillis;
+
+    /**
+     * The configuration file ({@code "tracerresolver.config"}), or {@code null} if none is configured.
+     */
+    final File file;
+
+    private final Map<Class<?>, ProviderFilter> filters;
+    private final Properties properties;
+
+    private TracerResolverConfig(File configFile, Properties file) {
+        this.file = configFile;
+        this.properties = file;
+        this.disabled = isTrue(file, "tracerresolver.disabled");
+        this.cached = isTrue(file, "tracerresolver.cached");
+        this.registerGlobalTracer = isTrue(file, "tracerresolver.globaltracer");
+        this.jmx = isTrue(file, "tracerresolver.jmx");
+        this.candidateTimeoutMillis = getNumber(file, "tracerresolver.candidate.timeout", "a number of milliseconds");
+        this.timeoutMillis = getNumber(file, "tracerresolver.timeout", "a number of milliseconds");
+        this.cachedTimeoutMillis = getNumber(file, "tracerresolver.cached.timeout", "a number of milliseconds", 30000L);
+        this.factoryParallelism = (int) Math.min(
+                getNumber(file, "tracerresolver.factory.parallelism", "a number of threads"), Integer.MAX_VALUE);
+        this.watchDrainMillis = getNumber(file, "tracerresolver.watch.drain", "a number of milliseconds", 5000L);
+        String factoryName = get(file, "tracerresolver.factory");
+        this.factory = factoryName != null && factoryName.trim().length() > 0 ? factoryName.trim() : null;
+        this.filters = new HashMap<Class<?>, ProviderFilter>();
+        putFilter(file, TracerFactory.class, "tracerresolver.factory");
+        putFilter(file, TracerResolver.class, "tracerresolver.resolver");
+        putFilter(file, Tracer.class, "tracerresolver.tracer");
+        putFilter(file, TracerConverter.class, "tracerresolver.converter");
+    }
+
+    /**
+     * @return The current configuration snapshot, which is taken the first time it is needed.
+     */
+    static TracerResolverConfig get() {
+        TracerResolverConfig config = current;
+        if (config == null) {
+            // Concurrent first calls may each read an (equivalent) snapshot, the last one is kept.
+            File configFile = configFile();
+            current = config = new TracerResolverConfig(configFile, readFile(configFile));
+            LOGGER.log(Level.FINEST, "Read {0}.", config);
+        }
+        return config;
+    }
+
+    /**
+     * Discards the current snapshot, so the configuration is read again when it is needed next.
+     */
+    static void reload() {
+        current = null;
+    }
+
+    /**
+     * The allow and deny patterns for the provider class names of a service are configured by the
+     * {@code "tracerresolver.<type>.allow"} and {@code "tracerresolver.<type>.deny"} properties,
+     * where type is {@code factory}, {@code resolver}, {@code tracer} or {@code converter}.
+     *
+     * @param service The service to get the provider filter for.
+     * @return The provider filter for the service, accepting every provider if not configured.
+     */
+    ProviderFilter filter(Class<?> service) {
+        ProviderFilter filter = filters.get(service);
+        return filter != null ? filter : ProviderFilter.ACCEPT_ALL;
+    }
+
+    /**
+     * Looks up any setting in the same order as the settings of this snapshot.
+     * System properties and environment variables are read on every call,
+     * the configuration file is only read again after {@link TracerResolver#reload()}.
+     *
+     * @param property The name of the setting.
+     * @return The value of the setting, or {@code null} if it is not configured.
+     */
+    String setting(String property) {
+        return get(properties, property);
+    }
+
+    private void putFilter(Properties file, Class<?> service, String prefix) {
+        ProviderFilter filter = ProviderFilter.parse(get(file, prefix + ".allow"), get(file, prefix + ".deny"));
+        if (!filter.acceptsAll()) filters.put(service, filter);
+    }
+
+    private static File configFile() {
+        String location = get(new Properties(), "tracerresolver.config");
+        return location != null && location.trim().length() > 0 ? new File(location.trim()) : null;
+    }
+
+    private static Properties readFile(File configFile) {
+        Properties properties = new Properties();
+        if (configFile != null) {
+            try {
+                InputStream in = new FileInputStream(configFile);
+                try {
+                    properties.load(in);
+                } finally {
+                    in.close();
+                }
+            } catch (IOException ioe) {
+                LOGGER.log(Level.WARNING, "Could not read tracer resolver configuration from \"" + configFile
+                        + "\": " + ioe.getMessage(), ioe);
+            }
+        }
+        return properties;
+    }
+
+    private static String get(Properties file, String property) {
+        String value = System.getProperty(property);
+        if (value == null) value = System.getenv(property.toUpperCase(Locale.ENGLISH).replace('.', '_'));
+        if (value == null) value = file.getProperty(property);
+        return value;
+    }
+
+    private static boolean isTrue(Properties file, String property) {
+        String value = get(file, property);
+        return value != null && (value.trim().equals("1") || value.trim().equalsIgnoreCase("true"));
+    }
+
+    private static long getNumber(Properties file, String property, String expected) {
+        return getNumber(file, property, expected, 0L);
+    }
+
+    private static long getNumber(Properties file, String property, String expected, long defaultValue) {
+        String value = get(file, property);
+        if (value != null && value.trim().length() > 0) {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException nfe) {
+                LOGGER.log(Level.WARNING, "Ignoring {0} of \"{1}\", expected {2}.",
+                        new Object[]{property, value, expected});
+            }
+        }
+        return defaultValue;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{disabled=" + disabled
+                + ", cached=" + cached
+                + ", registerGlobalTracer=" + registerGlobalTracer
+                + ", jmx=" + jmx
+                + ", candidateTimeoutMillis=" + candidateTimeoutMillis
+                + ", timeoutMillis=" + timeoutMillis
+                + ", cachedTimeoutMillis=" + cachedTimeoutMillis
+                + ", factoryParallelism=" + factoryParallelism
+                + ", factory=" + factory
+                + ", watchDrainMillis=" + watchDrainMillis
+                + ", file=" + file
+                + ", filters=" + filters
+                + '}';
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Management interface exposing the state of the {@link TracerResolver}.
+ * <p>
+ * It is registered as {@value #OBJECT_NAME} the first time a tracer is resolved, if the
+ * {@code "tracerresolver.jmx"} system property or {@code TRACERRESOLVER_JMX} environment variable is {@code true}.
+ */
+public interface TracerResolverMXBean {
+
+    /**
+     * The object name the bean is registered with in the platform MBean server.
+     */
+    String OBJECT_NAME = "io.opentracing.contrib.tracerresolver:type=TracerResolver";
+
+    /**
+     * @return The most recently resolved tracer, or {@code null} if no tracer was resolved.
+     */
+    String getResolvedTracer();
+
+    /**
+     * @return The class name of the factory, resolver or tracer that provided the most recently resolved tracer,
+     * or {@code null} if no tracer was resolved.
+     */
+    String getResolvedProvider();
+
+    /**
+     * @return The <code>{@literal @}Priority</code> of the provider of the most recently resolved tracer
+     * ({@link Integer#MAX_VALUE} if it has no priority), or {@code null} if no tracer was resolved.
+     */
+    Integer getResolvedPriority();
+
+    /**
+     * @return The number of times a tracer was resolved, not counting cached results.
+     */
+    long getResolutionCount();
+
+    /**
+     * @return The duration in nanoseconds of each phase of the most recent resolution, keyed by phase name.
+     */
+    Map<String, Long> getPhaseDurationsNanos();
+
+    /**
+     * @return The class names of the converters applied to the most recently resolved tracer, in order.
+     */
+    List<String> getConverters();
+
+    /**
+     * @return The number of failed calls of each factory, resolver and converter, keyed by class name.
+     */
+    Map<String, Long> getFailureCounts();
+
+    /**
+     * Invalidates the cached tracer of the most recently resolved class loader and resolves a new one.
+     * <p>
+     * Without caching, only the providers are invalidated and no tracer is resolved, as nobody could use it.
+     *
+     * @return The newly resolved tracer, or {@code null} if no tracer was resolved.
+     */
+    String reresolve();
+
+}
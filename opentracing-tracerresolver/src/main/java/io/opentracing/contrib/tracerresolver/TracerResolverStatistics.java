@@ -0,0 +1,246 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import io.opentracing.Tracer;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link TracerResolverMXBean} implementation, collecting its state as a {@link ResolutionListener}.
+ * <p>
+ * Only class names and descriptions are kept, so the statistics never keep tracers or class loaders reachable.
+ */
+final class TracerResolverStatistics implements TracerResolverMXBean, ResolutionListener {
+    private static final Logger LOGGER = Logger.getLogger(TracerResolverStatistics.class.getName());
+    private static TracerResolverStatistics registered;
+
+    private final AtomicLong resolutionCount = new AtomicLong();
+    private final ConcurrentMap<String, AtomicLong> failureCounts = new ConcurrentHashMap<String, AtomicLong>();
+    private final Map<ClassLoader, InProgress> inProgress =
+            Collections.synchronizedMap(new WeakHashMap<ClassLoader, InProgress>());
+    private volatile Map<String, Long> phaseDurations = Collections.emptyMap();
+    private volatile WeakReference<ClassLoader> classLoader = new WeakReference<ClassLoader>(null);
+    private volatile Resolved resolved;
+
+    /**
+     * Registers the statistics in the platform MBean server and as resolution listener, unless already registered.
+     */
+    static synchronized void register() {
+        if (registered == null) {
+            TracerResolverStatistics statistics = new TracerResolverStatistics();
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(statistics, new ObjectName(OBJECT_NAME));
+                ResolutionListeners.register(statistics);
+                registered = statistics;
+                LOGGER.log(Level.FINE, "Registered {0}.", OBJECT_NAME);
+            } catch (JMException jme) {
+                LOGGER.log(Level.WARNING, "Could not register " + OBJECT_NAME + ": " + jme.getMessage(), jme);
+            } catch (RuntimeException rte) {
+                LOGGER.log(Level.WARNING, "Could not register " + OBJECT_NAME + ": " + rte.getMessage(), rte);
+            }
+        }
+    }
+
+    static synchronized void unregister() {
+        if (registered != null) {
+            ResolutionListeners.unregister(registered);
+            try {
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                server.unregisterMBean(new ObjectName(OBJECT_NAME));
+            } catch (JMException jme) {
+                LOGGER.log(Level.FINE, "Could not unregister " + OBJECT_NAME + ": " + jme.getMessage(), jme);
+            }
+            registered = null;
+        }
+    }
+
+    @Override
+    public void onEvent(ResolutionEvent event) {
+        if (event.getFailure() != null && event.getCandidate() != null) {
+            failureCount(event.getCandidate().getClass().getName()).incrementAndGet();
+        }
+        if (event.getPhase() == ResolutionEvent.Phase.GLOBAL_TRACER && event.getTracer() != null) {
+            // The GlobalTracer is returned as-is, this completes the resolution
+            inProgress.remove(event.getClassLoader());
+            phaseDurations = Collections.singletonMap(event.getPhase().name(), event.getDurationNanos());
+            resolved = new Resolved(event.getTracer(), "io.opentracing.util.GlobalTracer", null,
+                    Collections.<String>emptyList());
+            return;
+        }
+        InProgress resolution = inProgress(event.getClassLoader());
+        if (!event.isPhase()) {
+            if (event.getPhase() == ResolutionEvent.Phase.CONVERSION && event.getFailure() == null) {
+                resolution.converted(event.getCandidate());
+            }
+            return;
+        }
+        resolution.phaseCompleted(event);
+        switch (event.getPhase()) {
+            case FACTORY:
+            case RESOLVER:
+            case SERVICE_LOADER:
+                if (event.getCandidate() != null) {
+                    resolved = new Resolved(event.getTracer(), event.getCandidate().getClass().getName(),
+                            PriorityComparator.priorityOf(event.getCandidate()), resolution.converters());
+                }
+                break;
+            case RESOLUTION:
+                inProgress.remove(event.getClassLoader());
+                resolutionCount.incrementAndGet();
+                classLoader = new WeakReference<ClassLoader>(event.getClassLoader());
+                phaseDurations = resolution.phaseDurations();
+                if (event.getTracer() == null) resolved = null;
+                break;
+            default:
+                break;
+        }
+    }
+
+    private InProgress inProgress(ClassLoader classLoader) {
+        synchronized (inProgress) {
+            InProgress resolution = inProgress.get(classLoader);
+            if (resolution == null) {
+                inProgress.put(classLoader, resolution = new InProgress());
+            }
+            return resolution;
+        }
+    }
+
+    private AtomicLong failureCount(String className) {
+        AtomicLong count = failureCounts.get(className);
+        if (count == null) {
+            AtomicLong existing = failureCounts.putIfAbsent(className, count = new AtomicLong());
+            if (existing != null) count = existing;
+        }
+        return count;
+    }
+
+    @Override
+    public String getResolvedTracer() {
+        Resolved current = resolved;
+        return current != null ? current.tracer : null;
+    }
+
+    @Override
+    public String getResolvedProvider() {
+        Resolved current = resolved;
+        return current != null ? current.provider : null;
+    }
+
+    @Override
+    public Integer getResolvedPriority() {
+        Resolved current = resolved;
+        return current != null ? current.priority : null;
+    }
+
+    @Override
+    public long getResolutionCount() {
+        return resolutionCount.get();
+    }
+
+    @Override
+    public Map<String, Long> getPhaseDurationsNanos() {
+        return phaseDurations;
+    }
+
+    @Override
+    public List<String> getConverters() {
+        Resolved current = resolved;
+        return current != null ? current.converters : Collections.<String>emptyList();
+    }
+
+    @Override
+    public Map<String, Long> getFailureCounts() {
+        Map<String, Long> counts = new TreeMap<String, Long>();
+        for (Map.Entry<String, AtomicLong> entry : failureCounts.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().get());
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+
+    @Override
+    public String reresolve() {
+        ClassLoader resolving = classLoader.get();
+        if (resolving == null) resolving = Thread.currentThread().getContextClassLoader();
+        TracerResolver.invalidate(resolving);
+        if (!TracerResolver.isCached()) {
+            return null; // Nobody could use a new tracer, so none is built
+        }
+        Tracer tracer = TracerResolver.resolveTracer(resolving);
+        return tracer != null ? tracer.toString() : null;
+    }
+
+    /**
+     * Phase durations and applied converters collected while a class loader is being resolved.
+     */
+    private static final class InProgress {
+        private final Map<String, Long> phaseDurations = new TreeMap<String, Long>();
+        private final List<String> converters = new ArrayList<String>();
+
+        private synchronized void converted(Object converter) {
+            converters.add(converter.getClass().getName());
+        }
+
+        private synchronized void phaseCompleted(ResolutionEvent event) {
+            phaseDurations.put(event.getPhase().name(), event.getDurationNanos());
+            if (event.getPhase() == ResolutionEvent.Phase.CONVERSION && event.getTracer() == null) {
+                converters.clear(); // Converted to null, the next candidate is tried
+            }
+        }
+
+        private synchronized Map<String, Long> phaseDurations() {
+            return Collections.unmodifiableMap(new TreeMap<String, Long>(phaseDurations));
+        }
+
+        private synchronized List<String> converters() {
+            return Collections.unmodifiableList(new ArrayList<String>(converters));
+        }
+    }
+
+    /**
+     * Description of a resolved tracer.
+     */
+    private static final class Resolved {
+        private final String tracer;
+        private final String provider;
+        private final Integer priority;
+        private final List<String> converters;
+
+        private Resolved(Tracer tracer, String provider, Integer priority, List<String> converters) {
+            this.tracer = String.valueOf(tracer);
+            this.provider = provider;
+            this.priority = priority;
+            this.converters = converters;
+        }
+    }
+
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import io.opentracing.Tracer;
+import io.opentracing.noop.NoopTracerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Watches the tracer resolver configuration file and re-resolves the tracer whenever the file changes,
+ * so tracer settings can be changed without restarting the JVM.
+ * <p>
+ * The {@link #tracer() watched tracer} is a stable handle that forwards to the most recently resolved tracer.
+ * Re-resolution (including the {@link TracerConverter converters}) runs in the background,
+ * after which the handle atomically switches to the new tracer.
+ * Forwarding costs a single volatile read; callers never wait for a lock or a resolution in progress.
+ * <p>
+ * The previous tracer is closed after a drain period ({@code "tracerresolver.watch.drain"} milliseconds,
+ * {@code 5000} by default), so spans that were started with it can still finish.
+ * If re-resolution fails or resolves no tracer, the current tracer is kept.
+ * A registered {@code GlobalTracer} is never closed by the watcher.
+ * <p>
+ * The configuration file is named by the {@code "tracerresolver.config"} system property
+ * or {@code TRACERRESOLVER_CONFIG} environment variable.
+ * On Java 9 and newer, the file is watched by a {@code java.nio.file.WatchService}; on older JVMs it is polled.
+ */
+public final class TracerWatcher implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(TracerWatcher.class.getName());
+
+    private final ClassLoader classloader;
+    private final DelegatingTracer tracer;
+    private final ScheduledExecutorService background;
+    private final FileWatcher fileWatcher;
+    private final List<Tracer> draining = new ArrayList<Tracer>();
+
+    private TracerWatcher(File file, ClassLoader classloader) {
+        this.classloader = classloader;
+        Tracer resolved = TracerResolver.resolveTracer(classloader, false);
+        this.tracer = new DelegatingTracer(resolved != null ? resolved : NoopTracerFactory.create());
+        this.background = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "tracerresolver-reresolver");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.fileWatcher = new FileWatcher(file, new Runnable() {
+            @Override
+            public void run() {
+                scheduleReresolve();
+            }
+        });
+    }
+
+    /**
+     * Resolves a tracer like {@link TracerResolver#resolveTracer(ClassLoader)} and starts watching
+     * the configuration file for changes.
+     *
+     * @param classloader The class loader to be used to load provider-configuration files
+     *     and provider classes, or null if the thread context class loader <em>of the calling thread</em> is to be used.
+     * @return The started watcher, which must be {@link #close() closed} when it is no longer needed.
+     * @throws IllegalStateException if no configuration file is configured,
+     *     or the configured {@code "tracerresolver.factory"} cannot be instantiated.
+     */
+    public static TracerWatcher watch(ClassLoader classloader) {
+        File file = TracerResolverConfig.get().file;
+        if (file == null) {
+            throw new IllegalStateException("No tracer resolver configuration file to watch, "
+                    + "please configure \"tracerresolver.config\".");
+        }
+        if (classloader == null) {
+            classloader = Thread.currentThread().getContextClassLoader();
+        }
+        TracerWatcher watcher = new TracerWatcher(file, classloader);
+        LOGGER.log(Level.FINE, "Started {0}.", watcher);
+        return watcher;
+    }
+
+    /**
+     * @return The stable tracer handle, forwarding to the most recently resolved tracer
+     * (or a no-op tracer if none was resolved yet).
+     */
+    public Tracer tracer() {
+        return tracer;
+    }
+
+    private void scheduleReresolve() {
+        try {
+            background.execute(new Runnable() {
+                @Override
+                public void run() {
+                    reresolve();
+                }
+            });
+        } catch (RejectedExecutionException ree) {
+            LOGGER.log(Level.FINEST, "Not re-resolving, {0} was closed.", this);
+        }
+    }
+
+    /**
+     * Reads the configuration again, resolves a new tracer and swaps it in.
+     * The previous tracer is closed after the drain period.
+     * <p>
+     * Only the watched class loader is {@linkplain TracerResolver#invalidate(ClassLoader) invalidated};
+     * tracers cached for other class loaders are left alone.
+     */
+    void reresolve() {
+        TracerResolverConfig.reload();
+        TracerResolver.invalidate(classloader);
+        Tracer resolved;
+        try {
+            resolved = TracerResolver.resolveTracer(classloader, false);
+        } catch (RuntimeException rte) {
+            LOGGER.log(Level.WARNING, "Error re-resolving tracer, keeping " + tracer.delegate()
+                    + ": " + rte.getMessage(), rte);
+            return;
+        }
+        if (resolved == null) {
+            LOGGER.log(Level.WARNING, "No tracer re-resolved, keeping {0}.", tracer.delegate());
+            return;
+        } else if (resolved == tracer.delegate()) {
+            return;
+        }
+
+        final Tracer previous = tracer.swap(resolved, !TracerResolver.isGlobalTracer(resolved));
+        LOGGER.log(Level.INFO, "Re-resolved tracer {0}, replacing {1}.", new Object[]{resolved, previous});
+        if (previous != null && !TracerResolver.isGlobalTracer(previous)) {
+            synchronized (draining) {
+                draining.add(previous);
+            }
+            try {
+                background.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        drained(previous);
+                    }
+                }, TracerResolverConfig.get().watchDrainMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ree) {
+                drained(previous);
+            }
+        }
+    }
+
+    private void drained(Tracer previous) {
+        boolean remove;
+        synchronized (draining) {
+            remove = draining.remove(previous);
+        }
+        if (remove) closeQuietly(previous);
+    }
+
+    /**
+     * Stops watching, immediately closes previous tracers that are still draining, and closes the current tracer
+     * (unless it is the {@code GlobalTracer}).
+     */
+    @Override
+    public void close() {
+        fileWatcher.close();
+        background.shutdownNow();
+        List<Tracer> drainingTracers;
+        synchronized (draining) {
+            drainingTracers = new ArrayList<Tracer>(draining);
+            draining.clear();
+        }
+        for (Tracer previous : drainingTracers) {
+            closeQuietly(previous);
+        }
+        if (!TracerResolver.isGlobalTracer(tracer.delegate())) {
+            tracer.close();
+        }
+    }
+
+    private static void closeQuietly(Tracer tracer) {
+        try {
+            tracer.close();
+            LOGGER.log(Level.FINE, "Closed drained tracer {0}.", tracer);
+        } catch (RuntimeException rte) {
+            LOGGER.log(Level.WARNING, "Error closing drained tracer " + tracer + ": " + rte.getMessage(), rte);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + '{' + fileWatcher + ", tracer=" + tracer.delegate() + '}';
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import io.opentracing.Tracer;
+import jdk.jfr.FlightRecorder;
+
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Emits Java Flight Recorder events for the {@link ResolutionEvent resolution events} (Java 11+ variant).
+ * <p>
+ * A {@link ResolutionPhaseEvent} is emitted per phase and a {@link ResolutionCandidateEvent} per candidate call,
+ * but only while a recording with these events enabled is running.
+ * The events are begun when the phase or call starts, so JFR records their start time and duration.
+ * Until the {@link FlightRecorder} is initialized, no event objects are created at all.
+ * <p>
+ * The {@code jdk.jfr} module is optional. When running as a named module,
+ * it is read at runtime if it is part of the boot layer; without it, no events are emitted.
+ */
+final class JfrSupport {
+    private static final Logger LOGGER = Logger.getLogger(JfrSupport.class.getName());
+    private static final boolean AVAILABLE = isAvailable();
+
+    private JfrSupport() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Begins a JFR event for a phase, if a recording is running with phase events enabled.
+     *
+     * @return The begun event, or {@code null} if it is not enabled.
+     */
+    static Object beginPhase() {
+        // Avoid creating events until JFR is started, event classes are only instrumented from then on.
+        if (!AVAILABLE || !FlightRecorder.isInitialized()) return null;
+        ResolutionPhaseEvent event = new ResolutionPhaseEvent();
+        if (!event.isEnabled()) return null;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Begins a JFR event for a single call, if a recording is running with candidate events enabled.
+     *
+     * @return The begun event, or {@code null} if it is not enabled.
+     */
+    static Object beginCandidate() {
+        if (!AVAILABLE || !FlightRecorder.isInitialized()) return null;
+        ResolutionCandidateEvent event = new ResolutionCandidateEvent();
+        if (!event.isEnabled()) return null;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Commits a begun JFR event, its duration lasting until now.
+     *
+     * @param event     The event returned by {@link #beginPhase()} or {@link #beginCandidate()}.
+     * @param phase     The phase of the resolution.
+     * @param candidate The factory, resolver, tracer or converter that was called, may be {@code null}.
+     * @param tracer    The tracer that was obtained, may be {@code null}.
+     * @param failure   The exception thrown by the candidate, may be {@code null}.
+     */
+    static void commit(Object event, ResolutionEvent.Phase phase, Object candidate, Tracer tracer, Throwable failure) {
+        Class<?> provider = candidate != null ? candidate.getClass() : null;
+        int priority = PriorityComparator.priorityOf(candidate);
+        String outcome = failure != null ? "FAILED" : tracer != null ? "RESOLVED" : "NO_TRACER";
+        if (event instanceof ResolutionPhaseEvent) {
+            ResolutionPhaseEvent phaseEvent = (ResolutionPhaseEvent) event;
+            phaseEvent.end();
+            if (!phaseEvent.shouldCommit()) return;
+            phaseEvent.phase = phase.name();
+            phaseEvent.provider = provider;
+            phaseEvent.priority = priority;
+            phaseEvent.outcome = outcome;
+            phaseEvent.tracer = tracer != null ? tracer.getClass() : null;
+            phaseEvent.commit();
+        } else {
+            ResolutionCandidateEvent candidateEvent = (ResolutionCandidateEvent) event;
+            candidateEvent.end();
+            if (!candidateEvent.shouldCommit()) return;
+            candidateEvent.phase = phase.name();
+            candidateEvent.provider = provider;
+            candidateEvent.priority = priority;
+            candidateEvent.outcome = outcome;
+            candidateEvent.tracer = tracer != null ? tracer.getClass() : null;
+            candidateEvent.failure = failure != null ? failure.toString() : null;
+            candidateEvent.commit();
+        }
+    }
+
+    private static boolean isAvailable() {
+        try {
+            Module module = JfrSupport.class.getModule();
+            if (module.isNamed()) {
+                Optional<Module> jfr = ModuleLayer.boot().findModule("jdk.jfr");
+                if (jfr.isEmpty()) {
+                    LOGGER.finest("The jdk.jfr module is not available, no JFR events are emitted.");
+                    return false;
+                }
+                module.addReads(jfr.get());
+            }
+            return Class.forName("jdk.jfr.Event") != null;
+        } catch (ClassNotFoundException cnfe) {
+            LOGGER.finest("JFR is not available, no JFR events are emitted.");
+            return false;
+        } catch (LinkageError | RuntimeException e) {
+            LOGGER.log(Level.FINEST, "JFR is not available, no JFR events are emitted: " + e.getMessage(), e);
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for a single factory, resolver, tracer or converter call during a tracer resolution, emitted by {@link JfrSupport}.
+ */
+@Name("io.opentracing.contrib.tracerresolver.ResolutionCandidate")
+@Label("Tracer Resolution Candidate")
+@Description("A single factory, resolver, tracer or converter call during a tracer resolution")
+@Category({"OpenTracing", "Tracer Resolver"})
+@StackTrace(false)
+final class ResolutionCandidateEvent extends jdk.jfr.Event {
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Provider")
+    @Description("The factory, resolver, tracer or converter that was called")
+    Class<?> provider;
+
+    @Label("Priority")
+    @Description("The effective @Priority of the provider, 2147483647 if it has none")
+    int priority;
+
+    @Label("Outcome")
+    @Description("RESOLVED, NO_TRACER or FAILED")
+    String outcome;
+
+    @Label("Tracer")
+    @Description("The class of the tracer that was obtained")
+    Class<?> tracer;
+
+    @Label("Failure")
+    @Description("The exception thrown by the candidate")
+    String failure;
+
+}
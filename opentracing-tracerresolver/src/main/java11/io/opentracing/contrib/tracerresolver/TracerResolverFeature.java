@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import io.opentracing.Tracer;
+import org.graalvm.nativeimage.hosted.Feature;
+import org.graalvm.nativeimage.hosted.RuntimeClassInitialization;
+import org.graalvm.nativeimage.hosted.RuntimeReflection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * GraalVM native-image feature that resolves the tracer providers at image build time.
+ * <p>
+ * The declared providers of every service used by the {@link TracerResolver} are discovered and prioritized
+ * while the image is built and stored in the {@link BuildTimeIndex}, which is part of the image heap.
+ * Only their no-argument constructors are registered for reflection,
+ * so a native executable does not scan {@code META-INF/services} or look up {@code @Priority} annotations at startup.
+ * <p>
+ * This does not make the resolver reflection-free: the native executable still loads the indexed classes by name
+ * and calls their registered constructors reflectively. No code calling the constructors directly is generated.
+ * <p>
+ * The feature is enabled by the {@code native-image.properties} in this jar.
+ * Provider {@linkplain ProviderFilter filters} are still applied when the native executable runs.
+ */
+public final class TracerResolverFeature implements Feature {
+    private static final Logger LOGGER = Logger.getLogger(TracerResolverFeature.class.getName());
+    private static final Class<?>[] SERVICES = {
+            TracerFactory.class, TracerResolver.class, Tracer.class, TracerConverter.class, ResolutionListener.class};
+
+    @Override
+    public String getDescription() {
+        return "Resolves OpenTracing tracer providers at image build time";
+    }
+
+    @Override
+    public void afterRegistration(AfterRegistrationAccess access) {
+        RuntimeClassInitialization.initializeAtBuildTime(BuildTimeIndex.class);
+    }
+
+    @Override
+    public void beforeAnalysis(BeforeAnalysisAccess access) {
+        ClassLoader classLoader = access.getApplicationClassLoader();
+        for (Class<?> service : SERVICES) {
+            String[] classNames = ProviderIndex.prioritizedClassNames(service, classLoader);
+            List<String> registered = new ArrayList<>(classNames.length);
+            for (String className : classNames) {
+                Class<?> type = access.findClassByName(className);
+                if (type == null) {
+                    LOGGER.log(Level.WARNING, "Skipping {0} provider {1}, it is not part of the image.",
+                            new Object[]{service.getName(), className});
+                    continue;
+                }
+                RuntimeReflection.register(type);
+                RuntimeReflection.registerForReflectiveInstantiation(type);
+                registered.add(className);
+            }
+            BuildTimeIndex.put(service.getName(), registered.toArray(new String[0]));
+            LOGGER.log(Level.FINE, "Indexed {0} providers at image build time: {1}.",
+                    new Object[]{service.getName(), registered});
+        }
+    }
+
+}
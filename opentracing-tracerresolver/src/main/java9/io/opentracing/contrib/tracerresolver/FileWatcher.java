@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Watches a single file and runs a callback on a daemon thread whenever it is created, changed or deleted.
+ * <p>
+ * The directory of the file is registered with a {@link WatchService}.
+ * Events arriving in quick succession (e.g. an editor truncating and then writing the file)
+ * are coalesced into a single callback.
+ */
+final class FileWatcher implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(FileWatcher.class.getName());
+    private static final long SETTLE_MILLIS = 200L;
+
+    private final Path file;
+    private final Runnable onChange;
+    private final WatchService watchService;
+
+    FileWatcher(File file, Runnable onChange) {
+        if (file == null) throw new NullPointerException("Watched file is <null>.");
+        if (onChange == null) throw new NullPointerException("Change callback is <null>.");
+        this.file = file.getAbsoluteFile().toPath();
+        this.onChange = onChange;
+        try {
+            this.watchService = this.file.getFileSystem().newWatchService();
+            this.file.getParent().register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        } catch (IOException ioe) {
+            throw new IllegalStateException("Cannot watch " + file + ": " + ioe.getMessage(), ioe);
+        }
+        Thread thread = new Thread(this::watch, "tracerresolver-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = collectChanges(key);
+                // Coalesce the burst of events that a single save typically produces
+                for (key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS); key != null;
+                     key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) {
+                    changed |= collectChanges(key);
+                }
+                if (changed) {
+                    LOGGER.log(Level.FINE, "Detected change of {0}.", file);
+                    changed();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException stopped) {
+            LOGGER.log(Level.FINEST, "Stopped watching {0}.", file);
+        }
+    }
+
+    private boolean collectChanges(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            changed |= event.kind() == OVERFLOW || file.getFileName().equals(event.context());
+        }
+        key.reset();
+        return changed;
+    }
+
+    private void changed() {
+        try {
+            onChange.run();
+        } catch (RuntimeException rte) {
+            LOGGER.log(Level.WARNING, "Error handling change of " + file + ": " + rte.getMessage(), rte);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException ioe) {
+            LOGGER.log(Level.FINEST, "Error closing watch service for " + file + ".", ioe);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + '{' + file + '}';
+    }
+
+}
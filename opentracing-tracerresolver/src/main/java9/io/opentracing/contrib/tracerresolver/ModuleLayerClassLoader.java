@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Class loader representing a {@link ModuleLayer}, so a layer can be used wherever the {@link TracerResolver}
+ * expects a class loader, including as key for the cached tracers, converters and listeners.
+ * <p>
+ * The Java 9 {@link ServiceProviders} look up providers for this class loader in the layer instead of
+ * scanning {@code META-INF/services} files. Classes are loaded from the module in the layer (or its parents)
+ * that contains their package.
+ * <p>
+ * The layer is only referenced weakly, so a cached class loader never keeps its layer reachable.
+ */
+final class ModuleLayerClassLoader extends ClassLoader {
+    private static final Map<ModuleLayer, ModuleLayerClassLoader> LOADERS = new WeakHashMap<>();
+
+    static {
+        registerAsParallelCapable();
+    }
+
+    private final WeakReference<ModuleLayer> layer;
+
+    private ModuleLayerClassLoader(ModuleLayer layer) {
+        super("tracerresolver-layer", ClassLoader.getPlatformClassLoader());
+        this.layer = new WeakReference<>(layer);
+    }
+
+    static synchronized ModuleLayerClassLoader of(ModuleLayer layer) {
+        return LOADERS.computeIfAbsent(layer, ModuleLayerClassLoader::new);
+    }
+
+    /**
+     * @return The module layer represented by this class loader.
+     * @throws IllegalStateException if the layer is no longer reachable.
+     */
+    ModuleLayer layer() {
+        ModuleLayer moduleLayer = layer.get();
+        if (moduleLayer == null) throw new IllegalStateException("Module layer is no longer reachable.");
+        return moduleLayer;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        int dot = name.lastIndexOf('.');
+        String packageName = dot < 0 ? "" : name.substring(0, dot);
+        Deque<ModuleLayer> layers = new ArrayDeque<>();
+        Set<ModuleLayer> visited = new HashSet<>();
+        layers.add(layer());
+        while (!layers.isEmpty()) {
+            ModuleLayer current = layers.poll();
+            if (!visited.add(current)) continue;
+            for (Module module : current.modules()) {
+                if (module.getPackages().contains(packageName)) {
+                    return Class.forName(name, false, module.getClassLoader());
+                }
+            }
+            layers.addAll(current.parents());
+        }
+        throw new ClassNotFoundException(name + " is not in any module of " + this + '.');
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + '{' + layer.get() + '}';
+    }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import io.opentracing.Tracer;
+
+/**
+ * Resolves tracers from the modules of a {@link ModuleLayer} (Java 9+).
+ * <p>
+ * Providers are only looked up from the modules in the layer and its parent layers
+ * that declare them with {@code provides ... with ...} in their module descriptor.
+ * No {@code META-INF/services} files on the class path are scanned.
+ * <p>
+ * Resolution otherwise behaves exactly like {@link TracerResolver#resolveTracer(ClassLoader)}:
+ * with caching enabled, the outcome is cached per layer, and converters are loaded from the layer as well.
+ * <p>
+ * This class only exists in the Java 9 version of the multi-release jar.
+ * On older Java versions, tracers are resolved by class loader with {@link TracerResolver#resolveTracer(ClassLoader)}.
+ */
+public final class ModuleLayers {
+
+    private ModuleLayers() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Attempts to resolve a Tracer from the modules of a layer,
+     * in the same way as {@link TracerResolver#resolveTracer(ClassLoader)}.
+     *
+     * @param layer The module layer to look up the providers in (required).
+     * @return The resolved Tracer or {@code null} if none was resolved.
+     */
+    public static Tracer resolveTracer(ModuleLayer layer) {
+        return TracerResolver.resolveTracer(classLoader(layer));
+    }
+
+    /**
+     * Returns the class loader representing a module layer for the {@link TracerResolver}.
+     * <p>
+     * Passing it to {@link TracerResolver#resolveTracerAsync(ClassLoader, java.util.concurrent.Executor)}
+     * or {@link TracerResolver#resolveDelegatingTracer(ClassLoader, java.util.concurrent.Executor)}
+     * resolves the tracer from the modules of the layer.
+     *
+     * @param layer The module layer (required).
+     * @return The class loader for the layer, the same instance for as long as the layer is reachable.
+     */
+    public static ClassLoader classLoader(ModuleLayer layer) {
+        if (layer == null) throw new NullPointerException("Module layer is <null>.");
+        return ModuleLayerClassLoader.of(layer);
+    }
+
+    /**
+     * Clears the cached resolution outcome, converters and listeners for a module layer.
+     *
+     * @param layer The module layer (required).
+     * @see TracerResolver#invalidate(ClassLoader)
+     */
+    public static void invalidate(ModuleLayer layer) {
+        TracerResolver.invalidate(classLoader(layer));
+    }
+
+}
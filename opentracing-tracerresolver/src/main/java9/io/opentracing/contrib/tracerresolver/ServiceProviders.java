@@ -0,0 +1,94 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.ServiceLoader;
+
+import static io.opentracing.contrib.tracerresolver.PriorityComparator.comparePriority;
+import static io.opentracing.contrib.tracerresolver.PriorityComparator.priorityOf;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Loads the providers of a service in order of priority (Java 9+ variant).
+ * <p>
+ * The provider index generated by the {@code opentracing-tracerresolver-processor} is used if available.
+ * Otherwise the {@link ServiceLoader.Provider provider types} are ranked by their priority
+ * <em>without</em> instantiating them.
+ * Providers are only instantiated once they are iterated, so providers that lose to a higher-priority provider
+ * or are rejected by the configured {@link ProviderFilter} are never constructed.
+ */
+final class ServiceProviders {
+    private static final Comparator<ServiceLoader.Provider<?>> PRIORITY_ORDER =
+            (provider1, provider2) -> comparePriority(priorityOf(provider1.type()), priorityOf(provider2.type()));
+
+    private ServiceProviders() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Loads the prioritized providers of a service.
+     *
+     * @param service     The service to load the providers for.
+     * @param classLoader The class loader to be used to load provider-configuration files and provider classes,
+     *                    or a {@link ModuleLayerClassLoader} to load the providers from its module layer.
+     * @param <T>         The service type.
+     * @return The providers of the service in order of priority, instantiated lazily.
+     */
+    static <T> Iterable<T> load(Class<T> service, ClassLoader classLoader) {
+        ProviderFilter filter = TracerResolverConfig.get().filter(service);
+        if (classLoader instanceof ModuleLayerClassLoader) {
+            return prioritize(service, ServiceLoader.load(((ModuleLayerClassLoader) classLoader).layer(), service), filter);
+        }
+        Iterable<T> indexed = ProviderIndex.load(service, classLoader, filter);
+        if (indexed != null) return indexed;
+
+        return prioritize(service, ServiceLoader.load(service, classLoader), filter);
+    }
+
+    private static <T> Iterable<T> prioritize(Class<T> service, ServiceLoader<T> loader, ProviderFilter filter) {
+        List<ServiceLoader.Provider<T>> providers = loader.stream()
+                .filter(provider -> filter.accepts(service, provider.type().getName()))
+                .sorted(PRIORITY_ORDER)
+                .collect(toList());
+        return () -> providers.stream().map(ServiceLoader.Provider::get).iterator();
+    }
+
+    /**
+     * Determines the provider classes of a service in the order they would be tried by {@link #load(Class, ClassLoader)},
+     * regardless of any {@link ProviderFilter}. The classes are loaded, but neither initialized nor instantiated.
+     *
+     * @param service     The service to determine the providers for.
+     * @param classLoader The class loader to be used to load provider-configuration files and provider classes,
+     *                    or a {@link ModuleLayerClassLoader} to determine the providers from its module layer.
+     * @return The provider classes of the service in order of priority.
+     */
+    static List<Class<?>> types(Class<?> service, ClassLoader classLoader) {
+        if (classLoader instanceof ModuleLayerClassLoader) {
+            return types(ServiceLoader.load(((ModuleLayerClassLoader) classLoader).layer(), service));
+        }
+        if (classLoader == null) classLoader = ClassLoader.getSystemClassLoader();
+        List<String> indexed = ProviderIndex.indexedClassNames(service, classLoader);
+        if (indexed != null) return ProviderIndex.types(service, indexed, classLoader);
+        return types(ServiceLoader.load(service, classLoader));
+    }
+
+    private static List<Class<?>> types(ServiceLoader<?> loader) {
+        return loader.stream().sorted(PRIORITY_ORDER).<Class<?>>map(ServiceLoader.Provider::type).collect(toList());
+    }
+
+}
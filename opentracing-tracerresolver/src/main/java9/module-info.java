@@ -0,0 +1,45 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ * The tracer resolver module.
+ * <p>
+ * Providers of {@link io.opentracing.contrib.tracerresolver.TracerFactory},
+ * {@link io.opentracing.contrib.tracerresolver.TracerResolver}, {@link io.opentracing.Tracer},
+ * {@link io.opentracing.contrib.tracerresolver.TracerConverter} and
+ * {@link io.opentracing.contrib.tracerresolver.ResolutionListener} are looked up by the {@link java.util.ServiceLoader}.
+ * Use {@link io.opentracing.contrib.tracerresolver.ModuleLayers#resolveTracer(java.lang.ModuleLayer)} to resolve a tracer
+ * from the modules of a layer only.
+ */
+// The OpenTracing jars are automatic modules, named by their Automatic-Module-Name.
+// The API is required transitively because its types appear in the exported API (e.g. Tracer),
+// so modules using the resolver read it without requiring it themselves.
+@SuppressWarnings({"requires-automatic", "requires-transitive-automatic"})
+module io.opentracing.contrib.tracerresolver {
+    requires transitive io.opentracing.api;
+    requires io.opentracing.noop;
+    requires java.logging;
+    requires static io.opentracing.util;
+    requires static java.annotation;
+    requires static java.management;
+
+    exports io.opentracing.contrib.tracerresolver;
+
+    uses io.opentracing.Tracer;
+    uses io.opentracing.contrib.tracerresolver.TracerFactory;
+    uses io.opentracing.contrib.tracerresolver.TracerResolver;
+    uses io.opentracing.contrib.tracerresolver.TracerConverter;
+    uses io.opentracing.contrib.tracerresolver.ResolutionListener;
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class BuildTimeIndexTest {
+
+    @After
+    public void clearIndex() {
+        BuildTimeIndex.clear();
+    }
+
+    @Test
+    public void testEmptyByDefault() {
+        assertThat(BuildTimeIndex.classNames(TracerConverter.class.getName()), is(nullValue()));
+    }
+
+    @Test
+    public void testIndexIsCopied() {
+        String[] classNames = {Mocks.IdentityConverter.class.getName()};
+        BuildTimeIndex.put(TracerConverter.class.getName(), classNames);
+        classNames[0] = Mocks.Prio5_ThrowingConverter.class.getName();
+
+        assertThat(BuildTimeIndex.classNames(TracerConverter.class.getName()),
+                is(new String[]{Mocks.IdentityConverter.class.getName()}));
+        assertThat(BuildTimeIndex.classNames(TracerFactory.class.getName()), is(nullValue()));
+    }
+
+    @Test
+    public void testIndexTakesPrecedenceOverServiceFiles() {
+        BuildTimeIndex.put(TracerConverter.class.getName(), new String[]{
+                Mocks.IdentityConverter.class.getName(),
+                "com.example.MissingConverter",
+                Mocks.Prio10_ConvertToNull.class.getName()});
+
+        assertThat(typesOf(ProviderIndex.load(TracerConverter.class, getClass().getClassLoader(), ProviderFilter.ACCEPT_ALL)),
+                contains((Class) Mocks.IdentityConverter.class, Mocks.Prio10_ConvertToNull.class));
+        assertThat(ProviderIndex.indexedClassNames(TracerConverter.class, null), contains(
+                Mocks.IdentityConverter.class.getName(), "com.example.MissingConverter",
+                Mocks.Prio10_ConvertToNull.class.getName()));
+    }
+
+    private static List<Class<?>> typesOf(Iterable<?> providers) {
+        List<Class<?>> types = new ArrayList<Class<?>>();
+        for (Object provider : providers) types.add(provider.getClass());
+        return types;
+    }
+
+}
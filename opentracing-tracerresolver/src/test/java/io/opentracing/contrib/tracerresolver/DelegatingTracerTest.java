@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import io.opentracing.Scope;
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import io.opentracing.mock.MockTracer;
+import io.opentracing.propagation.Format;
+import io.opentracing.propagation.TextMapAdapter;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class DelegatingTracerTest {
+
+    @Test
+    public void testForwarding() {
+        MockTracer mockTracer = new MockTracer();
+        DelegatingTracer tracer = new DelegatingTracer(mockTracer);
+
+        Span span = tracer.buildSpan("span").start();
+        Scope scope = tracer.activateSpan(span);
+        try {
+            assertThat(tracer.activeSpan(), is(sameInstance(span)));
+            assertThat(tracer.scopeManager(), is(sameInstance(mockTracer.scopeManager())));
+            Map<String, String> carrier = new HashMap<String, String>();
+            tracer.inject(span.context(), Format.Builtin.TEXT_MAP, new TextMapAdapter(carrier));
+            assertThat(tracer.extract(Format.Builtin.TEXT_MAP, new TextMapAdapter(carrier)), is(notNullValue()));
+        } finally {
+            scope.close();
+            span.finish();
+        }
+        assertThat(mockTracer.finishedSpans(), hasSize(1));
+    }
+
+    @Test
+    public void testSwap() {
+        MockTracer first = new MockTracer();
+        MockTracer second = new MockTracer();
+        DelegatingTracer tracer = new DelegatingTracer(first);
+
+        assertThat(tracer.swap(second, true), is(sameInstance((Tracer) first)));
+        assertThat(tracer.delegate(), is(sameInstance((Tracer) second)));
+        tracer.buildSpan("span").start().finish();
+        assertThat(first.finishedSpans(), hasSize(0));
+        assertThat(second.finishedSpans(), hasSize(1));
+    }
+
+    @Test
+    public void testSwapAfterClose() {
+        Mocks.CloseTrackingTracer first = new Mocks.CloseTrackingTracer();
+        Mocks.CloseTrackingTracer second = new Mocks.CloseTrackingTracer();
+        DelegatingTracer tracer = new DelegatingTracer(first);
+        tracer.close();
+        assertThat(first.closed, is(true));
+
+        assertThat(tracer.swap(second, true), is(nullValue()));
+        assertThat(second.closed, is(true));
+    }
+
+    @Test
+    public void testSharedDelegateIsNotClosed() {
+        Mocks.CloseTrackingTracer shared = new Mocks.CloseTrackingTracer();
+        Mocks.CloseTrackingTracer late = new Mocks.CloseTrackingTracer();
+        DelegatingTracer tracer = new DelegatingTracer(new MockTracer());
+        tracer.swap(shared, false);
+        tracer.close();
+        assertThat(shared.closed, is(false));
+
+        assertThat(tracer.swap(late, false), is(nullValue()));
+        assertThat(late.closed, is(false));
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Verifies the Java 9 {@code WatchService} variant of {@link FileWatcher} from the multi-release jar.
+ * <p>
+ * This integration test is only run on JDK 9 or newer, against the packaged jar.
+ */
+public class FileWatcherIT {
+    private static final File WATCHED_FILE = new File("target/tracerresolver-watched.properties");
+
+    @After
+    public void deleteFile() {
+        WATCHED_FILE.delete();
+    }
+
+    @Test
+    public void testChangeIsReported() throws IOException, InterruptedException {
+        final CountDownLatch changed = new CountDownLatch(1);
+        FileWatcher watcher = new FileWatcher(WATCHED_FILE, new Runnable() {
+            @Override
+            public void run() {
+                changed.countDown();
+            }
+        });
+        try {
+            FileWriter writer = new FileWriter(WATCHED_FILE);
+            try {
+                writer.write("tracerresolver.cached=true\n");
+            } finally {
+                writer.close();
+            }
+            assertThat(changed.await(10, TimeUnit.SECONDS), is(true));
+        } finally {
+            watcher.close();
+        }
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.opentracing.contrib.tracerresolver.TracerResolverTest.writeServiceFile;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Verifies the JFR events of the Java 11 {@code JfrSupport} from the multi-release jar.
+ * <p>
+ * The tests are compiled for Java 6, so the JFR API is called reflectively.
+ */
+public class JfrEventsIT {
+    private static final File SERVICES_DIR = new File("target/test-classes/META-INF/services/");
+    private static final File RECORDING_FILE = new File("target/tracerresolver-events.jfr");
+    private static final String EVENT_PREFIX = "io.opentracing.contrib.tracerresolver.";
+
+    @Before
+    @After
+    public void cleanUp() {
+        new File(SERVICES_DIR, TracerFactory.class.getName()).delete();
+        RECORDING_FILE.delete();
+        TracerResolver.reload();
+    }
+
+    @Test
+    public void testEventsPerPhaseAndCandidate() throws Exception {
+        if (!isJfrAvailable()) return;
+        writeServiceFile(TracerFactory.class, Mocks.Prio0_TracerFactory.class);
+
+        Object recording = Class.forName("jdk.jfr.Recording").getConstructor().newInstance();
+        invoke(recording, "enable", EVENT_PREFIX + "ResolutionPhase");
+        invoke(recording, "enable", EVENT_PREFIX + "ResolutionCandidate");
+        invoke(recording, "start");
+        TracerResolver.resolveTracer();
+        invoke(recording, "stop");
+        invoke(recording, "dump", File.class.getMethod("toPath").invoke(RECORDING_FILE));
+        invoke(recording, "close");
+
+        List<String> phases = new ArrayList<String>();
+        Object factoryCandidate = null;
+        for (Object event : readAllEvents(RECORDING_FILE)) {
+            String name = (String) invoke(invoke(event, "getEventType"), "getName");
+            if (name.equals(EVENT_PREFIX + "ResolutionPhase")) {
+                phases.add(invoke(event, "getValue", "phase") + " " + invoke(event, "getValue", "outcome"));
+            } else if (name.equals(EVENT_PREFIX + "ResolutionCandidate")
+                    && "FACTORY".equals(invoke(event, "getValue", "phase"))) {
+                factoryCandidate = event;
+            }
+        }
+
+        assertThat(phases, hasItems("FACTORY RESOLVED", "RESOLUTION RESOLVED"));
+        assertThat(factoryCandidate, is(notNullValue()));
+        assertThat(invoke(invoke(factoryCandidate, "getValue", "provider"), "getName"),
+                is((Object) Mocks.Prio0_TracerFactory.class.getName()));
+        assertThat(invoke(factoryCandidate, "getValue", "priority"), is((Object) 0));
+        assertThat((Long) invoke(invoke(factoryCandidate, "getDuration"), "toNanos"), is(greaterThan(0L)));
+    }
+
+    private static boolean isJfrAvailable() {
+        try {
+            return Class.forName("jdk.jfr.Recording") != null;
+        } catch (ClassNotFoundException cnfe) {
+            return false;
+        }
+    }
+
+    private static List<?> readAllEvents(File file) throws Exception {
+        Object path = File.class.getMethod("toPath").invoke(file);
+        return (List<?>) Class.forName("jdk.jfr.consumer.RecordingFile")
+                .getMethod("readAllEvents", Class.forName("java.nio.file.Path")).invoke(null, path);
+    }
+
+    private static Object invoke(Object target, String method, Object... args) throws Exception {
+        for (Method candidate : target.getClass().getMethods()) {
+            if (candidate.getName().equals(method) && candidate.getParameterTypes().length == args.length
+                    && (args.length == 0 || candidate.getParameterTypes()[0].isInstance(args[0]))) {
+                return candidate.invoke(target, args);
+            }
+        }
+        throw new IOException("No method " + method + " on " + target.getClass().getName() + '.');
+    }
+
+}
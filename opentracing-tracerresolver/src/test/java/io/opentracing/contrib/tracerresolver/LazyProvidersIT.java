@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static io.opentracing.contrib.tracerresolver.TracerResolverTest.writeServiceFile;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Verifies the Java 9 variant of {@link ServiceProviders} from the multi-release jar.
+ * <p>
+ * This integration test is only run on JDK 9 or newer, against the packaged jar.
+ */
+public class LazyProvidersIT {
+    private static final File SERVICES_DIR = new File("target/test-classes/META-INF/services/");
+
+    @After
+    public void cleanServiceFiles() {
+        new File(SERVICES_DIR, TracerFactory.class.getName()).delete();
+    }
+
+    @Test
+    public void testLosingFactoryIsNotInstantiated() throws IOException {
+        writeServiceFile(TracerFactory.class, Mocks.Prio5_CountingTracerFactory.class, Mocks.Prio0_TracerFactory.class);
+        Mocks.Prio5_CountingTracerFactory.instances.set(0);
+
+        assertThat(TracerResolver.resolveTracer(), is(instanceOf(Mocks.ResolvedTracerFromFactory.class)));
+        assertThat(Mocks.Prio5_CountingTracerFactory.instances.get(), is(0));
+    }
+
+    @Test
+    public void testPlanDoesNotInstantiateFactories() throws IOException {
+        writeServiceFile(TracerFactory.class, Mocks.Prio5_CountingTracerFactory.class, Mocks.Prio0_TracerFactory.class);
+        Mocks.Prio5_CountingTracerFactory.instances.set(0);
+
+        ResolutionPlan plan = TracerResolver.plan(null);
+        assertThat(plan.getCandidates().get(0).getClassName(), is(Mocks.Prio0_TracerFactory.class.getName()));
+        assertThat(plan.getCandidates().get(1).getClassName(), is(Mocks.Prio5_CountingTracerFactory.class.getName()));
+        assertThat(Mocks.Prio5_CountingTracerFactory.instances.get(), is(0));
+    }
+
+}
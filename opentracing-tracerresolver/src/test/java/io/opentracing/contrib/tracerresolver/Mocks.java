@@ -21,6 +21,9 @@ import io.opentracing.mock.MockTracer;
 import javax.annotation.Priority;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public final class Mocks {
     static final List<Class<?>> calledConverterTypes = new ArrayList<Class<?>>();
@@ -34,6 +37,15 @@ public final class Mocks {
     public static class ResolvedTracerFromFactory extends MockTracer {
     }
 
+    public static class CloseTrackingTracer extends MockTracer {
+        volatile boolean closed = false;
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
     public static class MockTracerResolver extends TracerResolver {
         @Override
         protected Tracer resolve() {
@@ -90,6 +102,94 @@ public final class Mocks {
         }
     }
 
+    public static class ConstructorThrowingTracerFactory implements TracerFactory {
+        public ConstructorThrowingTracerFactory() {
+            throw new IllegalArgumentException("Missing configuration");
+        }
+
+        @Override
+        public Tracer getTracer() {
+            return new ResolvedTracerFromFactory();
+        }
+    }
+
+    @Priority(5)
+    public static class Prio5_CountingTracerFactory implements TracerFactory {
+        static final AtomicInteger instances = new AtomicInteger();
+
+        public Prio5_CountingTracerFactory() {
+            instances.incrementAndGet();
+        }
+
+        @Override
+        public Tracer getTracer() {
+            return new ResolvedTracerFromFactory();
+        }
+    }
+
+    @Priority(5)
+    public static class Prio5_CloseTrackingTracerFactory implements TracerFactory {
+        static final List<CloseTrackingTracer> created = new CopyOnWriteArrayList<CloseTrackingTracer>();
+
+        @Override
+        public Tracer getTracer() {
+            CloseTrackingTracer tracer = new CloseTrackingTracer();
+            created.add(tracer);
+            return tracer;
+        }
+    }
+
+    /**
+     * Factory returning the tracer resolved by a nested {@link TracerResolver#resolveTracer()} call.
+     */
+    @Priority(0)
+    public static class Prio0_NestedResolvingTracerFactory implements TracerFactory {
+        static final AtomicInteger depth = new AtomicInteger();
+
+        @Override
+        public Tracer getTracer() {
+            try {
+                return depth.incrementAndGet() > 1 ? new ResolvedTracerFromFactory() : TracerResolver.resolveTracer();
+            } finally {
+                depth.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Factory blocking until it is {@linkplain #release released}, ignoring interrupts.
+     */
+    @Priority(0)
+    public static class Prio0_BlockingTracerFactory implements TracerFactory {
+        static volatile CountDownLatch release = new CountDownLatch(0);
+        static final List<CloseTrackingTracer> created = new CopyOnWriteArrayList<CloseTrackingTracer>();
+
+        @Override
+        public Tracer getTracer() {
+            boolean interrupted = false;
+            while (release.getCount() > 0) {
+                try {
+                    release.await();
+                } catch (InterruptedException ie) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+            CloseTrackingTracer tracer = new CloseTrackingTracer();
+            created.add(tracer);
+            return tracer;
+        }
+    }
+
+    public static class RecordingListener implements ResolutionListener {
+        static final List<ResolutionEvent> events = new CopyOnWriteArrayList<ResolutionEvent>();
+
+        @Override
+        public void onEvent(ResolutionEvent event) {
+            events.add(event);
+        }
+    }
+
     @Priority(1)
     public static class Prio1_TracerResolver extends TracerResolver {
         @Override
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import io.opentracing.Tracer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.lang.reflect.Method;
+
+import static io.opentracing.contrib.tracerresolver.TracerResolverTest.writeServiceFile;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Verifies the Java 9 {@code ModuleLayers} from the multi-release jar.
+ * <p>
+ * The tests are compiled for Java 6, so the module layer API is called reflectively.
+ */
+public class ModuleLayersIT {
+    private static final File SERVICES_DIR = new File("target/test-classes/META-INF/services/");
+
+    @Before
+    @After
+    public void cleanUp() {
+        new File(SERVICES_DIR, TracerFactory.class.getName()).delete();
+        TracerResolver.reload();
+    }
+
+    @Test
+    public void testClassPathProvidersAreNotUsedForModuleLayer() throws Exception {
+        writeServiceFile(TracerFactory.class, Mocks.Prio0_TracerFactory.class);
+        Object bootLayer = moduleLayer().getMethod("boot").invoke(null);
+
+        assertThat(TracerResolver.resolveTracer(), is(instanceOf(Mocks.ResolvedTracerFromFactory.class)));
+        assertThat(resolveTracer(bootLayer), is(nullValue()));
+    }
+
+    @Test
+    public void testSameClassLoaderForSameLayer() throws Exception {
+        Object bootLayer = moduleLayer().getMethod("boot").invoke(null);
+        Method classLoader = moduleLayers().getMethod("classLoader", moduleLayer());
+
+        assertThat(classLoader.invoke(null, bootLayer), is(sameInstance(classLoader.invoke(null, bootLayer))));
+    }
+
+    @Test
+    public void testModuleLayerParameter() throws Exception {
+        assertThat(moduleLayers().getMethod("resolveTracer", moduleLayer()), is(notNullValue()));
+    }
+
+    private static Tracer resolveTracer(Object layer) throws Exception {
+        return (Tracer) moduleLayers().getMethod("resolveTracer", moduleLayer()).invoke(null, layer);
+    }
+
+    private static Class<?> moduleLayer() throws ClassNotFoundException {
+        return Class.forName("java.lang.ModuleLayer");
+    }
+
+    private static Class<?> moduleLayers() throws ClassNotFoundException {
+        return Class.forName(TracerResolver.class.getPackage().getName() + ".ModuleLayers");
+    }
+
+}
@@ -21,6 +21,7 @@ import static io.opentracing.contrib.tracerresolver.Priorities.*;
 import static java.util.Arrays.asList;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
 
 public class PriorityComparatorTest {
 
@@ -31,4 +32,13 @@ public class PriorityComparatorTest {
                 contains(zero, zero, inheritedOne, two, two, noPriority, minus3, minus5));
     }
 
+    @Test
+    public void testPriorityOf() {
+        assertThat(PriorityComparator.priorityOf(minus5), is(-5));
+        assertThat(PriorityComparator.priorityOf(InheritedOne.class), is(1));
+        assertThat(PriorityComparator.priorityOf(inheritedOne), is(1));
+        assertThat(PriorityComparator.priorityOf(noPriority), is(Integer.MAX_VALUE));
+        assertThat(PriorityComparator.priorityOf(null), is(Integer.MAX_VALUE));
+    }
+
 }
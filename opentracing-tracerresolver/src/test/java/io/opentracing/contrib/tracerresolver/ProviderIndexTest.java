@@ -0,0 +1,173 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class ProviderIndexTest {
+    private File indexedDir;
+    private File unindexedDir;
+
+    @Before
+    public void createDirectories() throws IOException {
+        indexedDir = createTempDir();
+        unindexedDir = createTempDir();
+    }
+
+    @After
+    public void deleteDirectories() {
+        deleteRecursive(indexedDir);
+        deleteRecursive(unindexedDir);
+    }
+
+    @Test
+    public void testNoIndex() throws IOException {
+        writeFile(unindexedDir, "META-INF/services/" + TracerConverter.class.getName(),
+                Mocks.IdentityConverter.class.getName());
+        assertThat(ProviderIndex.load(TracerConverter.class, classLoader(unindexedDir), ProviderFilter.ACCEPT_ALL), is(nullValue()));
+    }
+
+    @Test
+    public void testIndexOrderIsUsed() throws IOException {
+        writeFile(indexedDir, "META-INF/services/" + TracerConverter.class.getName(),
+                Mocks.IdentityConverter.class.getName(),
+                Mocks.Prio5_ThrowingConverter.class.getName(),
+                Mocks.Prio10_ConvertToNull.class.getName());
+        writeFile(indexedDir, ProviderIndex.INDEX_LOCATION + TracerConverter.class.getName(),
+                "# Deliberately contradicting the annotated priorities",
+                "-1 " + Mocks.IdentityConverter.class.getName(),
+                "2 " + Mocks.Prio5_ThrowingConverter.class.getName(),
+                "1 " + Mocks.Prio10_ConvertToNull.class.getName());
+
+        assertThat(typesOf(ProviderIndex.load(TracerConverter.class, classLoader(indexedDir), ProviderFilter.ACCEPT_ALL)), contains(
+                (Class) Mocks.Prio10_ConvertToNull.class, Mocks.Prio5_ThrowingConverter.class, Mocks.IdentityConverter.class));
+    }
+
+    @Test
+    public void testUnknownProviderIsSkipped() throws IOException {
+        writeFile(indexedDir, "META-INF/services/" + TracerConverter.class.getName(),
+                "com.example.MissingConverter",
+                Mocks.IdentityConverter.class.getName());
+        writeFile(indexedDir, ProviderIndex.INDEX_LOCATION + TracerConverter.class.getName(),
+                "0 com.example.MissingConverter",
+                "1 " + Mocks.IdentityConverter.class.getName());
+
+        assertThat(typesOf(ProviderIndex.load(TracerConverter.class, classLoader(indexedDir), ProviderFilter.ACCEPT_ALL)),
+                contains((Class) Mocks.IdentityConverter.class));
+    }
+
+    @Test
+    public void testUndeclaredProviderIsNotLoaded() throws IOException {
+        writeFile(indexedDir, "META-INF/services/" + TracerFactory.class.getName(),
+                Mocks.Prio5_CountingTracerFactory.class.getName());
+        writeFile(indexedDir, ProviderIndex.INDEX_LOCATION + TracerFactory.class.getName(),
+                "0 " + Mocks.Prio0_TracerFactory.class.getName(),
+                "5 " + Mocks.Prio5_CountingTracerFactory.class.getName());
+
+        assertThat(typesOf(ProviderIndex.load(TracerFactory.class, classLoader(indexedDir), ProviderFilter.ACCEPT_ALL)),
+                contains((Class) Mocks.Prio5_CountingTracerFactory.class));
+    }
+
+    @Test
+    public void testIndexMissingDeclaredProviderIsIgnored() throws IOException {
+        writeFile(indexedDir, "META-INF/services/" + TracerConverter.class.getName(),
+                Mocks.IdentityConverter.class.getName(),
+                Mocks.Prio5_ThrowingConverter.class.getName());
+        writeFile(indexedDir, ProviderIndex.INDEX_LOCATION + TracerConverter.class.getName(),
+                "2147483647 " + Mocks.IdentityConverter.class.getName());
+
+        assertThat(ProviderIndex.load(TracerConverter.class, classLoader(indexedDir), ProviderFilter.ACCEPT_ALL), is(nullValue()));
+    }
+
+    @Test
+    public void testIncompleteIndexIsIgnored() throws IOException {
+        writeFile(indexedDir, "META-INF/services/" + TracerConverter.class.getName(),
+                Mocks.IdentityConverter.class.getName());
+        writeFile(indexedDir, ProviderIndex.INDEX_LOCATION + TracerConverter.class.getName(),
+                "2147483647 " + Mocks.IdentityConverter.class.getName());
+        writeFile(unindexedDir, "META-INF/services/" + TracerConverter.class.getName(),
+                Mocks.Prio5_ThrowingConverter.class.getName());
+
+        assertThat(ProviderIndex.load(TracerConverter.class, classLoader(indexedDir, unindexedDir), ProviderFilter.ACCEPT_ALL), is(nullValue()));
+    }
+
+    @Test
+    public void testPrioritizedClassNamesForBuildTimeIndex() throws IOException {
+        writeFile(unindexedDir, "META-INF/services/" + TracerConverter.class.getName(),
+                Mocks.IdentityConverter.class.getName() + " # comment",
+                "com.example.MissingConverter",
+                Mocks.Prio10_ConvertToNull.class.getName(),
+                Mocks.Prio5_ThrowingConverter.class.getName());
+
+        assertThat(Arrays.asList(ProviderIndex.prioritizedClassNames(TracerConverter.class, classLoader(unindexedDir))),
+                contains(Mocks.Prio5_ThrowingConverter.class.getName(), Mocks.Prio10_ConvertToNull.class.getName(),
+                        Mocks.IdentityConverter.class.getName()));
+    }
+
+    private static List<Class<?>> typesOf(Iterable<?> providers) {
+        List<Class<?>> types = new ArrayList<Class<?>>();
+        for (Object provider : providers) types.add(provider.getClass());
+        return types;
+    }
+
+    private ClassLoader classLoader(File... dirs) throws IOException {
+        URL[] urls = new URL[dirs.length];
+        for (int i = 0; i < dirs.length; i++) urls[i] = dirs[i].toURI().toURL();
+        return new URLClassLoader(urls, getClass().getClassLoader());
+    }
+
+    private static File createTempDir() throws IOException {
+        File dir = File.createTempFile("provider-index", "");
+        dir.delete();
+        dir.mkdirs();
+        return dir;
+    }
+
+    private static void writeFile(File dir, String name, String... lines) throws IOException {
+        File file = new File(dir, name);
+        file.getParentFile().mkdirs();
+        PrintWriter writer = new PrintWriter(new FileWriter(file));
+        try {
+            for (String line : lines) writer.println(line);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static void deleteRecursive(File file) {
+        File[] children = file.listFiles();
+        if (children != null) for (File child : children) deleteRecursive(child);
+        file.delete();
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import io.opentracing.contrib.tracerresolver.ResolutionEvent.Phase;
+import io.opentracing.util.GlobalTracerTestUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.opentracing.contrib.tracerresolver.TracerResolverTest.writeServiceFile;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ResolutionListenerTest {
+    private static final File SERVICES_DIR = new File("target/test-classes/META-INF/services/");
+
+    private final List<ResolutionEvent> events = new ArrayList<ResolutionEvent>();
+    private final ResolutionListener listener = new ResolutionListener() {
+        @Override
+        public synchronized void onEvent(ResolutionEvent event) {
+            events.add(event);
+        }
+    };
+
+    @After
+    public void cleanServiceFiles() {
+        new File(SERVICES_DIR, TracerFactory.class.getName()).delete();
+        new File(SERVICES_DIR, TracerResolver.class.getName()).delete();
+        new File(SERVICES_DIR, TracerConverter.class.getName()).delete();
+        new File(SERVICES_DIR, ResolutionListener.class.getName()).delete();
+    }
+
+    @Before
+    @After
+    public void resetTracerResolver() {
+        TracerResolver.removeResolutionListener(listener);
+        Mocks.RecordingListener.events.clear();
+        TracerResolver.reload();
+        GlobalTracerTestUtil.resetGlobalTracer();
+    }
+
+    @Test
+    public void testPhaseAndCandidateEvents() throws IOException {
+        writeServiceFile(TracerFactory.class, Mocks.Prio0_TracerFactory.class);
+        writeServiceFile(TracerConverter.class, Mocks.IdentityConverter.class);
+        TracerResolver.addResolutionListener(listener);
+
+        assertThat(TracerResolver.resolveTracer(), is(instanceOf(Mocks.ResolvedTracerFromFactory.class)));
+
+        assertThat(phases(events), contains(
+                Phase.GLOBAL_TRACER, Phase.FACTORY, Phase.CONVERSION, Phase.CONVERSION, Phase.FACTORY, Phase.RESOLUTION));
+        ResolutionEvent factoryCall = events.get(1);
+        assertThat(factoryCall.getCandidate(), is(instanceOf(Mocks.Prio0_TracerFactory.class)));
+        assertThat(factoryCall.getTracer(), is(instanceOf(Mocks.ResolvedTracerFromFactory.class)));
+        assertThat(factoryCall.isPhase(), is(false));
+        assertThat(events.get(2).getCandidate(), is(instanceOf(Mocks.IdentityConverter.class)));
+        ResolutionEvent factoryPhase = events.get(4);
+        assertThat(factoryPhase.isPhase(), is(true));
+        assertThat(factoryPhase.getCandidate(), is(sameInstance(factoryCall.getCandidate())));
+        for (ResolutionEvent event : events) {
+            assertThat(event.getClassLoader(), is(sameInstance(Thread.currentThread().getContextClassLoader())));
+            assertThat(event.getDurationNanos(), is(greaterThanOrEqualTo(0L)));
+            assertThat(event.getFailure(), is(nullValue()));
+        }
+        ResolutionEvent resolution = events.get(events.size() - 1);
+        assertThat(resolution.getCandidate(), is(nullValue()));
+        assertThat(resolution.getTracer(), is(instanceOf(Mocks.ResolvedTracerFromFactory.class)));
+        assertThat(resolution.getDurationNanos(), is(greaterThanOrEqualTo(factoryCall.getDurationNanos())));
+    }
+
+    @Test
+    public void testFailureEvent() throws IOException {
+        writeServiceFile(TracerResolver.class, Mocks.HighPriorityThrowingResolver.class, Mocks.MockTracerResolver.class);
+        TracerResolver.addResolutionListener(listener);
+
+        assertThat(TracerResolver.resolveTracer(), is(instanceOf(Mocks.ResolvedTracer.class)));
+
+        ResolutionEvent failed = null;
+        for (ResolutionEvent event : events) {
+            if (event.getCandidate() instanceof Mocks.HighPriorityThrowingResolver) failed = event;
+        }
+        assertThat(failed, is(notNullValue()));
+        assertThat(failed.getPhase(), is(Phase.RESOLVER));
+        assertThat(failed.getCandidate(), is(instanceOf(Mocks.HighPriorityThrowingResolver.class)));
+        assertThat(failed.getTracer(), is(nullValue()));
+        assertThat(failed.getFailure(), is(instanceOf(IllegalStateException.class)));
+    }
+
+    @Test
+    public void testDiscoveredListener() throws IOException {
+        writeServiceFile(ResolutionListener.class, Mocks.RecordingListener.class);
+        writeServiceFile(TracerResolver.class, Mocks.MockTracerResolver.class);
+
+        assertThat(TracerResolver.resolveTracer(), is(instanceOf(Mocks.ResolvedTracer.class)));
+
+        assertThat(phases(Mocks.RecordingListener.events), hasItems(Phase.RESOLVER, Phase.RESOLUTION));
+    }
+
+    @Test
+    public void testNoEventsWithoutListeners() throws IOException {
+        writeServiceFile(TracerFactory.class, Mocks.Prio0_TracerFactory.class);
+        TracerResolver.addResolutionListener(listener);
+        assertThat(TracerResolver.removeResolutionListener(listener), is(true));
+
+        assertThat(TracerResolver.resolveTracer(), is(instanceOf(Mocks.ResolvedTracerFromFactory.class)));
+
+        assertThat(events, is(empty()));
+        ResolutionListeners listeners = ResolutionListeners.forClassLoader(Thread.currentThread().getContextClassLoader());
+        assertThat(listeners.isEnabled(), is(false));
+        assertThat(listeners.startPhase(), is(nullValue()));
+        assertThat(listeners.startCandidate(), is(nullValue()));
+        assertThat(ResolutionListeners.registeredOnly(null), is(sameInstance(ResolutionListeners.registeredOnly(null))));
+    }
+
+    private static List<Phase> phases(List<ResolutionEvent> events) {
+        List<Phase> phases = new ArrayList<Phase>();
+        for (ResolutionEvent event : events) phases.add(event.getPhase());
+        return phases;
+    }
+
+}
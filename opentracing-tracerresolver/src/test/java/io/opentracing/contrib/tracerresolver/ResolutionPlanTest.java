@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import io.opentracing.contrib.tracerresolver.ResolutionEvent.Phase;
+import io.opentracing.contrib.tracerresolver.ResolutionPlan.Candidate;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.opentracing.contrib.tracerresolver.TracerResolverTest.writeServiceFile;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ResolutionPlanTest {
+    private static final File SERVICES_DIR = new File("target/test-classes/META-INF/services/");
+
+    @Before
+    @After
+    public void cleanUp() {
+        new File(SERVICES_DIR, TracerFactory.class.getName()).delete();
+        new File(SERVICES_DIR, TracerResolver.class.getName()).delete();
+        new File(SERVICES_DIR, TracerConverter.class.getName()).delete();
+        System.clearProperty("tracerresolver.factory");
+        System.clearProperty("tracerresolver.factory.deny");
+        TracerResolver.reload();
+        Mocks.Prio5_CountingTracerFactory.instances.set(0);
+    }
+
+    @Test
+    public void testCandidatesInResolutionOrderWithoutInstantiation() throws IOException {
+        writeServiceFile(TracerFactory.class, Mocks.Prio5_CountingTracerFactory.class, Mocks.Prio0_TracerFactory.class);
+        writeServiceFile(TracerResolver.class, Mocks.MockTracerResolver.class);
+        writeServiceFile(TracerConverter.class, Mocks.IdentityConverter.class, Mocks.Prio10_ConvertToNull.class);
+
+        ResolutionPlan plan = TracerResolver.plan(null);
+        assertThat(classNames(plan.getCandidates()), contains(
+                Mocks.Prio0_TracerFactory.class.getName(),
+                Mocks.Prio5_CountingTracerFactory.class.getName(),
+                Mocks.MockTracerResolver.class.getName()));
+        Candidate first = plan.getCandidates().get(0);
+        assertThat(first.getPhase(), is(Phase.FACTORY));
+        assertThat(first.getPriority(), is(0));
+        assertThat(first.getOrder(), is(1));
+        assertThat(first.getSource(), containsString("test-classes"));
+        assertThat(plan.getCandidates().get(2).getPhase(), is(Phase.RESOLVER));
+        assertThat(classNames(plan.getConverters()), contains(
+                Mocks.Prio10_ConvertToNull.class.getName(), Mocks.IdentityConverter.class.getName()));
+        assertThat(plan.getConverters().get(1).getPriority(), is(Integer.MAX_VALUE));
+
+        assertThat("Factories instantiated", Mocks.Prio5_CountingTracerFactory.instances.get(), is(0));
+    }
+
+    @Test
+    public void testRejectedCandidatesAreReported() throws IOException {
+        System.setProperty("tracerresolver.factory.deny", "*$Prio0_*");
+        TracerResolver.reload();
+        writeServiceFile(TracerFactory.class, Mocks.Prio5_CountingTracerFactory.class, Mocks.Prio0_TracerFactory.class);
+
+        List<Candidate> candidates = TracerResolver.plan(null).getCandidates();
+        assertThat(candidates, hasSize(2));
+        assertThat(candidates.get(0).isAccepted(), is(false));
+        assertThat(candidates.get(0).getOrder(), is(0));
+        assertThat(candidates.get(1).getOrder(), is(1));
+    }
+
+    @Test
+    public void testConfiguredFactoryIsTheOnlyCandidate() throws IOException {
+        System.setProperty("tracerresolver.factory", Mocks.Prio5_CountingTracerFactory.class.getName());
+        TracerResolver.reload();
+        writeServiceFile(TracerFactory.class, Mocks.Prio0_TracerFactory.class);
+
+        ResolutionPlan plan = TracerResolver.plan(null);
+        assertThat(plan.getConfiguredFactory(), is(Mocks.Prio5_CountingTracerFactory.class.getName()));
+        assertThat(classNames(plan.getCandidates()), contains(Mocks.Prio5_CountingTracerFactory.class.getName()));
+        assertThat(plan.getCandidates().get(0).getPriority(), is(5));
+        assertThat(plan.toString(), containsString("FACTORY #1: " + Mocks.Prio5_CountingTracerFactory.class.getName()));
+    }
+
+    private static List<String> classNames(List<Candidate> candidates) {
+        List<String> classNames = new ArrayList<String>();
+        for (Candidate candidate : candidates) classNames.add(candidate.getClassName());
+        return classNames;
+    }
+
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import io.opentracing.Tracer;
+import io.opentracing.util.GlobalTracer;
+import io.opentracing.util.GlobalTracerTestUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static io.opentracing.contrib.tracerresolver.TracerResolverTest.writeServiceFile;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Stress test for concurrent first calls to {@link TracerResolver#resolveTracer()},
+ * e.g. by several integrations initializing on different threads.
+ */
+public class SingleFlightResolutionTest {
+    private static final File SERVICES_DIR = new File("target/test-classes/META-INF/services/");
+    private static final int THREADS = 16;
+    private static final int ROUNDS = 50;
+    private final ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+
+    @Before
+    public void declareFactory() throws IOException {
+        writeServiceFile(TracerFactory.class, Mocks.Prio5_CountingTracerFactory.class);
+        Mocks.Prio5_CountingTracerFactory.instances.set(0);
+        Mocks.Prio0_BlockingTracerFactory.created.clear();
+    }
+
+    @After
+    public void cleanUp() {
+        threads.shutdownNow();
+        Mocks.Prio0_BlockingTracerFactory.release.countDown();
+        new File(SERVICES_DIR, TracerFactory.class.getName()).delete();
+        System.clearProperty("tracerresolver.cached");
+        System.clearProperty("tracerresolver.globaltracer");
+        System.clearProperty("tracerresolver.factory.parallelism");
+        System.clearProperty("tracerresolver.candidate.timeout");
+        System.clearProperty("tracerresolver.cached.timeout");
+        TracerResolver.reload();
+        GlobalTracerTestUtil.resetGlobalTracer();
+    }
+
+    @Test
+    public void testConcurrentCallsShareInFlightResolution() throws Exception {
+        System.setProperty("tracerresolver.cached", "true");
+        writeServiceFile(TracerFactory.class, Mocks.Prio0_BlockingTracerFactory.class);
+        for (int round = 1; round <= ROUNDS; round++) {
+            TracerResolver.reload();
+            Mocks.Prio0_BlockingTracerFactory.release = new CountDownLatch(1);
+            List<Future<Tracer>> tracers = resolveConcurrently();
+            awaitResolutionJoinedBy(THREADS);
+            Mocks.Prio0_BlockingTracerFactory.release.countDown();
+
+            for (Future<Tracer> tracer : tracers) {
+                assertThat(tracer.get(), is(sameInstance((Object) Mocks.Prio0_BlockingTracerFactory.created.get(round - 1))));
+            }
+            assertThat("Tracers created in round " + round, Mocks.Prio0_BlockingTracerFactory.created, hasSize(round));
+        }
+    }
+
+    @Test
+    public void testConcurrentFirstCallsResolveOnceWhenCached() throws Exception {
+        System.setProperty("tracerresolver.cached", "true");
+        for (int round = 1; round <= ROUNDS; round++) {
+            TracerResolver.reload();
+            Mocks.Prio5_CountingTracerFactory.instances.set(0);
+            List<Future<Tracer>> tracers = resolveConcurrently();
+            for (Future<Tracer> tracer : tracers) {
+                assertThat(tracer.get(), is(sameInstance(tracers.get(0).get())));
+            }
+            assertThat("Factories instantiated in round " + round,
+                    Mocks.Prio5_CountingTracerFactory.instances.get(), is(1));
+        }
+    }
+
+    @Test
+    public void testUncachedConcurrentCallsGetTheirOwnTracer() throws Exception {
+        List<Future<Tracer>> tracers = resolveConcurrently();
+        for (Future<Tracer> tracer : tracers) {
+            assertThat(tracer.get(), is(instanceOf(Mocks.ResolvedTracerFromFactory.class)));
+        }
+        for (int i = 1; i < tracers.size(); i++) {
+            assertThat(tracers.get(i).get(), is(not(sameInstance(tracers.get(0).get()))));
+        }
+    }
+
+    @Test
+    public void testResolvedTracerIsRegisteredAsGlobalTracer() {
+        System.setProperty("tracerresolver.globaltracer", "true");
+        TracerResolver.reload();
+
+        Tracer tracer = TracerResolver.resolveTracer();
+        assertThat(tracer, is(sameInstance((Tracer) GlobalTracer.get())));
+        assertThat(GlobalTracer.isRegistered(), is(true));
+        assertThat(TracerResolver.resolveTracer(), is(sameInstance(tracer)));
+        assertThat(Mocks.Prio5_CountingTracerFactory.instances.get(), is(1));
+    }
+
+    @Test
+    public void testResolvedTracerIsClosedIfGlobalTracerWasRegisteredMeanwhile() throws Exception {
+        System.setProperty("tracerresolver.cached", "true");
+        System.setProperty("tracerresolver.globaltracer", "true");
+        TracerResolver.reload();
+        writeServiceFile(TracerFactory.class, Mocks.Prio0_BlockingTracerFactory.class);
+        Mocks.Prio0_BlockingTracerFactory.release = new CountDownLatch(1);
+        Future<Tracer> resolved = threads.submit(new Callable<Tracer>() {
+            @Override
+            public Tracer call() {
+                return TracerResolver.resolveTracer(SingleFlightResolutionTest.class.getClassLoader());
+            }
+        });
+        awaitResolutionJoinedBy(1);
+        Mocks.CloseTrackingTracer registered = new Mocks.CloseTrackingTracer();
+        GlobalTracer.registerIfAbsent(registered);
+        Mocks.Prio0_BlockingTracerFactory.release.countDown();
+
+        assertThat(resolved.get(), is(sameInstance((Tracer) GlobalTracer.get())));
+        assertThat(registered.closed, is(false));
+        assertThat(Mocks.Prio0_BlockingTracerFactory.created.get(0).closed, is(true));
+    }
+
+    @Test(timeout = 10000)
+    public void testNestedResolutionFromFactory() throws IOException {
+        System.setProperty("tracerresolver.cached", "true");
+        TracerResolver.reload();
+        writeServiceFile(TracerFactory.class, Mocks.Prio0_NestedResolvingTracerFactory.class);
+        assertThat(TracerResolver.resolveTracer(), is(instanceOf(Mocks.ResolvedTracerFromFactory.class)));
+
+        System.setProperty("tracerresolver.factory.parallelism", "2");
+        TracerResolver.reload();
+        assertThat(TracerResolver.resolveTracer(), is(instanceOf(Mocks.ResolvedTracerFromFactory.class)));
+
+        System.clearProperty("tracerresolver.factory.parallelism");
+        System.setProperty("tracerresolver.candidate.timeout", "2000");
+        TracerResolver.reload();
+        assertThat(TracerResolver.resolveTracer(), is(instanceOf(Mocks.ResolvedTracerFromFactory.class)));
+    }
+
+    @Test
+    public void testInterruptedWhileAwaitingResolution() throws Exception {
+        System.setProperty("tracerresolver.cached", "true");
+        TracerResolver.reload();
+        writeServiceFile(TracerFactory.class, Mocks.Prio0_BlockingTracerFactory.class);
+        Mocks.Prio0_BlockingTracerFactory.release = new CountDownLatch(1);
+        final ClassLoader classLoader = getClass().getClassLoader();
+        Future<Tracer> resolving = threads.submit(new Callable<Tracer>() {
+            @Override
+            public Tracer call() {
+                return TracerResolver.resolveTracer(classLoader);
+            }
+        });
+        awaitResolutionJoinedBy(1);
+        final Tracer[] awaited = new Tracer[1];
+        Future<Boolean> interrupted = threads.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                Thread.currentThread().interrupt();
+                awaited[0] = TracerResolver.resolveTracer(classLoader);
+                return Thread.interrupted();
+            }
+        });
+        awaitResolutionJoinedBy(2);
+        Mocks.Prio0_BlockingTracerFactory.release.countDown();
+
+        assertThat(interrupted.get(10, TimeUnit.SECONDS), is(true));
+        assertThat(awaited[0], is(sameInstance(resolving.get())));
+        assertThat(Mocks.Prio0_BlockingTracerFactory.created, hasSize(1));
+    }
+
+    @Test
+    public void testNoDuplicateTracerAfterWaitTimeout() throws Exception {
+        System.setProperty("tracerresolver.cached", "true");
+        System.setProperty("tracerresolver.cached.timeout", "100");
+        TracerResolver.reload();
+        writeServiceFile(TracerFactory.class, Mocks.Prio0_BlockingTracerFactory.class);
+        Mocks.Prio0_BlockingTracerFactory.release = new CountDownLatch(1);
+        final ClassLoader classLoader = getClass().getClassLoader();
+        Future<Tracer> resolving = threads.submit(new Callable<Tracer>() {
+            @Override
+            public Tracer call() {
+                return TracerResolver.resolveTracer(classLoader);
+            }
+        });
+        awaitResolutionJoinedBy(1);
+
+        assertThat(TracerResolver.resolveTracer(classLoader), is(nullValue()));
+        Mocks.Prio0_BlockingTracerFactory.release.countDown();
+        assertThat(resolving.get(), is(sameInstance((Object) Mocks.Prio0_BlockingTracerFactory.created.get(0))));
+        assertThat(Mocks.Prio0_BlockingTracerFactory.created, hasSize(1));
+    }
+
+    private List<Future<Tracer>> resolveConcurrently() {
+        final ClassLoader classLoader = getClass().getClassLoader();
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<Tracer>> tracers = new ArrayList<Future<Tracer>>(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            tracers.add(threads.submit(new Callable<Tracer>() {
+                @Override
+                public Tracer call() throws InterruptedException {
+                    start.await();
+                    return TracerResolver.resolveTracer(classLoader);
+                }
+            }));
+        }
+        start.countDown();
+        return tracers;
+    }
+
+    /**
+     * Waits until a number of threads have joined the blocked resolution, either resolving or waiting for it.
+     */
+    private static void awaitResolutionJoinedBy(int count) throws InterruptedException {
+        String resolution = TracerResolver.class.getName() + "$Resolution";
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        int joined = 0;
+        while (joined < count && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+            joined = 0;
+            for (StackTraceElement[] stackTrace : Thread.getAllStackTraces().values()) {
+                for (StackTraceElement element : stackTrace) {
+                    if (element.getClassName().startsWith(resolution)) {
+                        joined++;
+                        break;
+                    }
+                }
+            }
+        }
+        assertThat("Threads joining the resolution", joined, is(count));
+    }
+
+}
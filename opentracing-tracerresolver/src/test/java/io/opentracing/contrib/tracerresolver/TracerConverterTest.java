@@ -23,7 +23,14 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
 
 import static io.opentracing.contrib.tracerresolver.TracerResolverTest.writeServiceFile;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -115,4 +122,96 @@ public class TracerConverterTest {
         assertThat("Resolved tracer", TracerResolver.resolveTracer(), is(sameInstance(GlobalTracer.get())));
         assertThat("Called converter types", Mocks.calledConverterTypes, is(empty()));
     }
+
+    @Test
+    public void testConverterPipelineIsReused() throws IOException {
+        writeServiceFile(TracerConverter.class, Mocks.IdentityConverter.class, Mocks.Prio5_ThrowingConverter.class);
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        ConverterPipeline pipeline = ConverterPipeline.forClassLoader(classLoader);
+
+        assertThat(pipeline.converters(), contains(
+                instanceOf(Mocks.Prio5_ThrowingConverter.class), instanceOf(Mocks.IdentityConverter.class)));
+        assertThat(ConverterPipeline.forClassLoader(classLoader), is(sameInstance(pipeline)));
+        TracerResolver.invalidate(classLoader);
+        assertThat(ConverterPipeline.forClassLoader(classLoader), is(not(sameInstance(pipeline))));
+    }
+
+    @Test
+    public void testConvertersAreLoadedFromResolvingClassLoader() throws IOException {
+        writeServiceFile(TracerResolver.class, Mocks.MockTracerResolver.class);
+        File dir = File.createTempFile("converters", "");
+        dir.delete();
+        File serviceFile = new File(dir, "META-INF/services/" + TracerConverter.class.getName());
+        serviceFile.getParentFile().mkdirs();
+        PrintWriter writer = new PrintWriter(new FileWriter(serviceFile));
+        try {
+            writer.println(Mocks.IdentityConverter.class.getName());
+        } finally {
+            writer.close();
+        }
+
+        try {
+            ClassLoader classLoader = new URLClassLoader(new URL[]{dir.toURI().toURL()}, getClass().getClassLoader());
+            assertThat("Resolved tracer", TracerResolver.resolveTracer(classLoader), instanceOf(Mocks.ResolvedTracer.class));
+            assertThat("Converter from class loader", Mocks.calledConverterTypes, contains((Class) Mocks.IdentityConverter.class));
+        } finally {
+            serviceFile.delete();
+        }
+    }
+
+    @Test
+    public void testConvertersOfApplicationClassLoaderAreNotCached() throws IOException {
+        File dir = File.createTempFile("converters", "");
+        dir.delete();
+        File serviceFile = new File(dir, "META-INF/services/" + TracerConverter.class.getName());
+        serviceFile.getParentFile().mkdirs();
+        PrintWriter writer = new PrintWriter(new FileWriter(serviceFile));
+        try {
+            writer.println(Mocks.IdentityConverter.class.getName());
+        } finally {
+            writer.close();
+        }
+        String classFile = Mocks.IdentityConverter.class.getName().replace('.', '/') + ".class";
+        copy(getClass().getClassLoader().getResourceAsStream(classFile), new File(dir, classFile));
+
+        ClassLoader classLoader = new ApplicationClassLoader(dir, Mocks.IdentityConverter.class.getName());
+        ConverterPipeline pipeline = ConverterPipeline.forClassLoader(classLoader);
+        assertThat(pipeline.converters(), hasSize(1));
+        assertThat("Converter from application", pipeline.converters().get(0).getClass().getClassLoader(),
+                is(sameInstance(classLoader)));
+        assertThat(ConverterPipeline.forClassLoader(classLoader), is(not(sameInstance(pipeline))));
+    }
+
+    private static void copy(InputStream in, File file) throws IOException {
+        file.getParentFile().mkdirs();
+        OutputStream out = new FileOutputStream(file);
+        try {
+            byte[] buffer = new byte[4096];
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                out.write(buffer, 0, read);
+            }
+        } finally {
+            out.close();
+            in.close();
+        }
+    }
+
+    /**
+     * Loads one class itself instead of from its parent, like a web application class loader.
+     */
+    private static class ApplicationClassLoader extends URLClassLoader {
+        private final String className;
+
+        ApplicationClassLoader(File dir, String className) throws IOException {
+            super(new URL[]{dir.toURI().toURL()}, TracerConverterTest.class.getClassLoader());
+            this.className = className;
+        }
+
+        @Override
+        protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!className.equals(name)) return super.loadClass(name, resolve);
+            Class<?> loaded = findLoadedClass(name);
+            return loaded != null ? loaded : findClass(name);
+        }
+    }
 }
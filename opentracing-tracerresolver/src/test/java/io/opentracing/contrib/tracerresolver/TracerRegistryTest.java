@@ -0,0 +1,176 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import io.opentracing.Tracer;
+import io.opentracing.util.GlobalTracer;
+import io.opentracing.util.GlobalTracerTestUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static io.opentracing.contrib.tracerresolver.TracerResolverTest.writeServiceFile;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TracerRegistryTest {
+    private static final File SERVICES_DIR = new File("target/test-classes/META-INF/services/");
+    private final TracerRegistry registry = new TracerRegistry();
+
+    @Before
+    public void declareFactory() throws IOException {
+        writeServiceFile(TracerFactory.class, Mocks.Prio5_CloseTrackingTracerFactory.class);
+    }
+
+    @After
+    public void cleanUp() {
+        registry.close();
+        new File(SERVICES_DIR, TracerFactory.class.getName()).delete();
+        TracerResolver.reload();
+        GlobalTracerTestUtil.resetGlobalTracer();
+    }
+
+    @Test
+    public void testSameTracerForSameNameAndClassLoader() {
+        Tracer tracer = registry.get("orders", null);
+        assertThat(tracer, is(instanceOf(Mocks.CloseTrackingTracer.class)));
+        assertThat(registry.get("orders", null), is(sameInstance(tracer)));
+        assertThat(registry.get("billing", null), is(not(sameInstance(tracer))));
+        assertThat(registry.get("orders", newClassLoader()), is(not(sameInstance(tracer))));
+    }
+
+    @Test
+    public void testCloseClassLoaderEvictsAndClosesItsTracers() {
+        ClassLoader classLoader = newClassLoader();
+        Mocks.CloseTrackingTracer orders = (Mocks.CloseTrackingTracer) registry.get("orders", classLoader);
+        Mocks.CloseTrackingTracer billing = (Mocks.CloseTrackingTracer) registry.get("billing", classLoader);
+        Mocks.CloseTrackingTracer other = (Mocks.CloseTrackingTracer) registry.get("orders", null);
+
+        assertThat(registry.close(classLoader), is(2));
+        assertThat(orders.closed && billing.closed, is(true));
+        assertThat(other.closed, is(false));
+        assertThat(registry.get("orders", classLoader), is(not(sameInstance((Tracer) orders))));
+    }
+
+    @Test
+    public void testEvictedWhenClassLoaderIsUnreachable() throws InterruptedException {
+        Mocks.CloseTrackingTracer tracer = (Mocks.CloseTrackingTracer) registry.get("orders", newClassLoader());
+        assertThat(registry.size(), is(1));
+
+        for (int i = 0; i < 100 && registry.size() > 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertThat(registry.size(), is(0));
+        assertThat("Evicted tracer closed", tracer.closed, is(true));
+    }
+
+    @Test
+    public void testConcurrentRequestsResolveOnce() throws Exception {
+        writeServiceFile(TracerFactory.class, Mocks.Prio5_CountingTracerFactory.class);
+        Mocks.Prio5_CountingTracerFactory.instances.set(0);
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Tracer>> tracers = new ArrayList<Future<Tracer>>();
+            for (int i = 0; i < 8; i++) {
+                tracers.add(threads.submit(new Callable<Tracer>() {
+                    @Override
+                    public Tracer call() throws InterruptedException {
+                        start.await();
+                        return registry.get("orders", null);
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<Tracer> tracer : tracers) {
+                assertThat(tracer.get(), is(sameInstance(tracers.get(0).get())));
+            }
+            assertThat(Mocks.Prio5_CountingTracerFactory.instances.get(), is(1));
+        } finally {
+            threads.shutdown();
+        }
+    }
+
+    @Test
+    public void testInterruptedWhileWaitingForResolution() throws Exception {
+        writeServiceFile(TracerFactory.class, Mocks.Prio0_BlockingTracerFactory.class);
+        Mocks.Prio0_BlockingTracerFactory.release = new CountDownLatch(1);
+        ExecutorService resolving = Executors.newSingleThreadExecutor();
+        try {
+            Future<Tracer> resolved = resolving.submit(new Callable<Tracer>() {
+                @Override
+                public Tracer call() {
+                    return registry.get("orders", null);
+                }
+            });
+            for (int i = 0; i < 500 && registry.size() == 0; i++) Thread.sleep(10);
+
+            Thread.currentThread().interrupt();
+            try {
+                registry.get("orders", null);
+                throw new AssertionError("Exception expected.");
+            } catch (IllegalStateException expected) {
+                assertThat(expected.getCause(), is(instanceOf(InterruptedException.class)));
+            }
+            assertThat("Interrupt status kept", Thread.interrupted(), is(true));
+
+            Mocks.Prio0_BlockingTracerFactory.release.countDown();
+            assertThat(resolved.get(), is(instanceOf(Mocks.CloseTrackingTracer.class)));
+        } finally {
+            Mocks.Prio0_BlockingTracerFactory.release.countDown();
+            resolving.shutdown();
+        }
+    }
+
+    @Test
+    public void testGlobalTracerIsNeverClosed() {
+        Mocks.CloseTrackingTracer global = new Mocks.CloseTrackingTracer();
+        GlobalTracer.registerIfAbsent(global);
+
+        assertThat(registry.get("orders", null), is(sameInstance(GlobalTracer.get())));
+        registry.close();
+        assertThat(global.closed, is(false));
+    }
+
+    @Test
+    public void testClosingClassLoaderDiscardsItsConverters() {
+        ClassLoader classLoader = newClassLoader();
+        registry.get("orders", classLoader);
+        ConverterPipeline pipeline = ConverterPipeline.forClassLoader(classLoader);
+        assertThat(ConverterPipeline.forClassLoader(classLoader), is(sameInstance(pipeline)));
+
+        registry.close(classLoader);
+        assertThat(ConverterPipeline.forClassLoader(classLoader), is(not(sameInstance(pipeline))));
+    }
+
+    private static ClassLoader newClassLoader() {
+        return new URLClassLoader(new URL[0], TracerRegistryTest.class.getClassLoader());
+    }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import io.opentracing.Tracer;
+import io.opentracing.util.GlobalTracerTestUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import static io.opentracing.contrib.tracerresolver.TracerResolverTest.writeServiceFile;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TracerResolverConfigTest {
+    private static final File SERVICES_DIR = new File("target/test-classes/META-INF/services/");
+    private static final File CONFIG_FILE = new File("target/tracerresolver-test.properties");
+
+    @After
+    public void cleanFiles() {
+        new File(SERVICES_DIR, TracerResolver.class.getName()).delete();
+        new File(SERVICES_DIR, TracerFactory.class.getName()).delete();
+        CONFIG_FILE.delete();
+    }
+
+    @Before
+    @After
+    public void resetTracerResolver() {
+        System.clearProperty("tracerresolver.config");
+        System.clearProperty("tracerresolver.factory.allow");
+        System.clearProperty("tracerresolver.factory.deny");
+        System.clearProperty("tracerresolver.cached");
+        TracerResolver.reload();
+        GlobalTracerTestUtil.resetGlobalTracer();
+    }
+
+    @Test
+    public void testFilterPatterns() {
+        ProviderFilter filter = ProviderFilter.parse("com.vendor.*, *.FooTracerFactory", "com.vendor.internal.*");
+        assertThat(filter.accepts(TracerFactory.class, "com.vendor.VendorTracerFactory"), is(true));
+        assertThat(filter.accepts(TracerFactory.class, "org.acme.FooTracerFactory"), is(true));
+        assertThat(filter.accepts(TracerFactory.class, "com.vendor.internal.VendorTracerFactory"), is(false));
+        assertThat(filter.accepts(TracerFactory.class, "org.acme.BarTracerFactory"), is(false));
+        assertThat(filter.accepts(TracerFactory.class, "comXvendorXTracerFactory"), is(false));
+        assertThat(ProviderFilter.parse(" ", null), is(sameInstance(ProviderFilter.ACCEPT_ALL)));
+    }
+
+    @Test
+    public void testDeniedFactoryIsNeverInstantiated() throws IOException {
+        Mocks.Prio5_CountingTracerFactory.instances.set(0);
+        System.setProperty("tracerresolver.factory.deny", "*$Prio5_*");
+        TracerResolver.reload();
+        writeServiceFile(TracerFactory.class, Mocks.Prio5_CountingTracerFactory.class);
+        writeServiceFile(TracerResolver.class, Mocks.MockTracerResolver.class);
+
+        assertThat(TracerResolver.resolveTracer(), is(instanceOf(Mocks.ResolvedTracer.class)));
+        assertThat(Mocks.Prio5_CountingTracerFactory.instances.get(), is(0));
+    }
+
+    @Test
+    public void testAllowedFactoryOnly() throws IOException {
+        System.setProperty("tracerresolver.factory.allow", Mocks.Prio5_CloseTrackingTracerFactory.class.getName());
+        TracerResolver.reload();
+        writeServiceFile(TracerFactory.class, Mocks.Prio0_TracerFactory.class, Mocks.Prio5_CloseTrackingTracerFactory.class);
+
+        assertThat(TracerResolver.resolveTracer(), is(instanceOf(Mocks.CloseTrackingTracer.class)));
+    }
+
+    @Test
+    public void testConfigurationFile() throws IOException {
+        writeConfigFile("tracerresolver.cached=true", "tracerresolver.factory.deny=*");
+        System.setProperty("tracerresolver.config", CONFIG_FILE.getPath());
+        TracerResolver.reload();
+        writeServiceFile(TracerFactory.class, Mocks.Prio0_TracerFactory.class);
+        writeServiceFile(TracerResolver.class, Mocks.MockTracerResolver.class);
+
+        Tracer tracer = TracerResolver.resolveTracer();
+        assertThat(tracer, is(instanceOf(Mocks.ResolvedTracer.class)));
+        assertThat(TracerResolver.resolveTracer(), is(sameInstance(tracer)));
+    }
+
+    @Test
+    public void testSystemPropertyOverridesConfigurationFile() throws IOException {
+        writeConfigFile("tracerresolver.cached=true");
+        System.setProperty("tracerresolver.config", CONFIG_FILE.getPath());
+        System.setProperty("tracerresolver.cached", "false");
+        TracerResolver.reload();
+
+        assertThat(TracerResolverConfig.get().cached, is(false));
+    }
+
+    @Test
+    public void testSnapshotUntilReload() {
+        assertThat(TracerResolverConfig.get().cached, is(false));
+        System.setProperty("tracerresolver.cached", "true");
+        assertThat(TracerResolverConfig.get().cached, is(false));
+
+        TracerResolver.reload();
+        assertThat(TracerResolverConfig.get().cached, is(true));
+    }
+
+    @Test
+    public void testGetConfigurationForExtensions() throws IOException {
+        writeConfigFile("tracerresolver.sampler.rate=10", "tracerresolver.sampler.burst=20");
+        System.setProperty("tracerresolver.config", CONFIG_FILE.getPath());
+        System.setProperty("tracerresolver.sampler.burst", "5");
+        TracerResolver.reload();
+        try {
+            assertThat(TracerResolver.getConfiguration("tracerresolver.sampler.rate"), is("10"));
+            assertThat(TracerResolver.getConfiguration("tracerresolver.sampler.burst"), is("5"));
+            assertThat(TracerResolver.getConfiguration("tracerresolver.sampler.unknown"), is(nullValue()));
+        } finally {
+            System.clearProperty("tracerresolver.sampler.burst");
+        }
+    }
+
+    private static void writeConfigFile(String... lines) throws IOException {
+        PrintWriter writer = new PrintWriter(new FileWriter(CONFIG_FILE));
+        try {
+            for (String line : lines) writer.println(line);
+        } finally {
+            writer.close();
+        }
+    }
+}
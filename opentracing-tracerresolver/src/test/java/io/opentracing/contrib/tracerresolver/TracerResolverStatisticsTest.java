@@ -0,0 +1,154 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import io.opentracing.Tracer;
+import io.opentracing.util.GlobalTracerTestUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import static io.opentracing.contrib.tracerresolver.TracerResolverTest.writeServiceFile;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TracerResolverStatisticsTest {
+    private static final File SERVICES_DIR = new File("target/test-classes/META-INF/services/");
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    private ObjectName objectName;
+
+    @Before
+    public void setUp() throws Exception {
+        objectName = new ObjectName(TracerResolverMXBean.OBJECT_NAME);
+    }
+
+    @After
+    public void cleanServiceFiles() {
+        new File(SERVICES_DIR, TracerResolver.class.getName()).delete();
+        new File(SERVICES_DIR, TracerConverter.class.getName()).delete();
+        new File(SERVICES_DIR, TracerFactory.class.getName()).delete();
+    }
+
+    @Before
+    @After
+    public void resetTracerResolver() {
+        System.clearProperty("tracerresolver.jmx");
+        System.clearProperty("tracerresolver.cached");
+        TracerResolverStatistics.unregister();
+        TracerResolver.reload();
+        GlobalTracerTestUtil.resetGlobalTracer();
+    }
+
+    @Test
+    public void testNotRegisteredByDefault() {
+        TracerResolver.resolveTracer();
+        assertThat(server.isRegistered(objectName), is(false));
+    }
+
+    @Test
+    public void testRegisteredLazily() throws IOException {
+        System.setProperty("tracerresolver.jmx", "true");
+        TracerResolver.reload();
+        writeServiceFile(TracerResolver.class, Mocks.HighPriorityThrowingResolver.class, Mocks.MockTracerResolver.class);
+        writeServiceFile(TracerConverter.class, Mocks.IdentityConverter.class);
+        assertThat(server.isRegistered(objectName), is(false));
+
+        Tracer tracer = TracerResolver.resolveTracer();
+
+        assertThat(server.isRegistered(objectName), is(true));
+        TracerResolverMXBean bean = JMX.newMXBeanProxy(server, objectName, TracerResolverMXBean.class);
+        assertThat(bean.getResolvedTracer(), is(tracer.toString()));
+        assertThat(bean.getResolvedProvider(), is(Mocks.MockTracerResolver.class.getName()));
+        assertThat(bean.getResolvedPriority(), is(Integer.MAX_VALUE));
+        assertThat(bean.getResolutionCount(), is(1L));
+        assertThat(bean.getConverters(), contains(Mocks.IdentityConverter.class.getName()));
+        assertThat(bean.getFailureCounts(), hasEntry(Mocks.HighPriorityThrowingResolver.class.getName(), 1L));
+        assertThat(bean.getPhaseDurationsNanos().keySet(), hasItems("GLOBAL_TRACER", "FACTORY", "RESOLVER", "RESOLUTION"));
+    }
+
+    @Test
+    public void testReresolve() throws IOException {
+        System.setProperty("tracerresolver.jmx", "true");
+        System.setProperty("tracerresolver.cached", "true");
+        TracerResolver.reload();
+        writeServiceFile(TracerResolver.class, Mocks.MockTracerResolver.class);
+        Tracer tracer = TracerResolver.resolveTracer();
+        assertThat(TracerResolver.resolveTracer(), is(sameInstance(tracer)));
+
+        TracerResolverMXBean bean = JMX.newMXBeanProxy(server, objectName, TracerResolverMXBean.class);
+        String reresolved = bean.reresolve();
+
+        Tracer newTracer = TracerResolver.resolveTracer();
+        assertThat(newTracer, is(not(sameInstance(tracer))));
+        assertThat(reresolved, is(newTracer.toString()));
+        assertThat(bean.getResolutionCount(), is(2L));
+    }
+
+    @Test
+    public void testConvertersListOnlyAppliedConverters() throws IOException {
+        System.setProperty("tracerresolver.jmx", "true");
+        TracerResolver.reload();
+        writeServiceFile(TracerResolver.class, Mocks.MockTracerResolver.class);
+        writeServiceFile(TracerConverter.class, Mocks.Prio5_ThrowingConverter.class, Mocks.IdentityConverter.class);
+
+        TracerResolver.resolveTracer();
+
+        TracerResolverMXBean bean = JMX.newMXBeanProxy(server, objectName, TracerResolverMXBean.class);
+        assertThat(bean.getConverters(), contains(Mocks.IdentityConverter.class.getName()));
+        assertThat(bean.getFailureCounts(), hasEntry(Mocks.Prio5_ThrowingConverter.class.getName(), 1L));
+    }
+
+    @Test
+    public void testPhaseDurationsOfMostRecentResolutionOnly() throws IOException {
+        System.setProperty("tracerresolver.jmx", "true");
+        TracerResolver.reload();
+        writeServiceFile(TracerResolver.class, Mocks.MockTracerResolver.class);
+        TracerResolver.resolveTracer();
+        TracerResolverMXBean bean = JMX.newMXBeanProxy(server, objectName, TracerResolverMXBean.class);
+        assertThat(bean.getPhaseDurationsNanos().keySet(), hasItem("RESOLVER"));
+
+        writeServiceFile(TracerFactory.class, Mocks.Prio0_TracerFactory.class);
+        TracerResolver.invalidate(null);
+        TracerResolver.resolveTracer();
+
+        assertThat(bean.getPhaseDurationsNanos().keySet(), hasItem("FACTORY"));
+        assertThat(bean.getPhaseDurationsNanos().keySet(), not(hasItem("RESOLVER")));
+    }
+
+    @Test
+    public void testReresolveWithoutCachingBuildsNoTracer() throws IOException {
+        System.setProperty("tracerresolver.jmx", "true");
+        TracerResolver.reload();
+        writeServiceFile(TracerFactory.class, Mocks.Prio5_CloseTrackingTracerFactory.class);
+        Mocks.Prio5_CloseTrackingTracerFactory.created.clear();
+        TracerResolver.resolveTracer();
+        TracerResolverMXBean bean = JMX.newMXBeanProxy(server, objectName, TracerResolverMXBean.class);
+
+        assertThat(bean.reresolve(), is(nullValue()));
+
+        assertThat(bean.getResolutionCount(), is(1L));
+        assertThat(Mocks.Prio5_CloseTrackingTracerFactory.created, hasSize(1));
+        assertThat(Mocks.Prio5_CloseTrackingTracerFactory.created.get(0).closed, is(false));
+    }
+
+}
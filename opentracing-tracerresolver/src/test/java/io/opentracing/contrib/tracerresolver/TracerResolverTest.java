@@ -16,7 +16,10 @@
 package io.opentracing.contrib.tracerresolver;
 
 import io.opentracing.Tracer;
+import io.opentracing.mock.MockSpan;
 import io.opentracing.mock.MockTracer;
+import io.opentracing.noop.NoopSpan;
+import io.opentracing.noop.NoopTracer;
 import io.opentracing.util.GlobalTracer;
 import io.opentracing.util.GlobalTracerTestUtil;
 import org.junit.After;
@@ -27,12 +30,27 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
 
 public class TracerResolverTest {
     private static final File SERVICES_DIR = new File("target/test-classes/META-INF/services/");
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
 
     @After
     public void cleanServiceFiles() {
@@ -121,6 +139,7 @@ public class TracerResolverTest {
     public void testResolverDisabled() throws IOException {
         try {
             System.setProperty("tracerresolver.disabled", "true");
+            TracerResolver.reload();
             writeServiceFile(TracerResolver.class, Mocks.MockTracerResolver.class);
             assertThat(TracerResolver.resolveTracer(), is(nullValue()));
         } finally {
@@ -128,6 +147,291 @@ public class TracerResolverTest {
         }
     }
 
+    @Test
+    public void testUncachedByDefault() throws IOException {
+        writeServiceFile(TracerFactory.class, Mocks.Prio0_TracerFactory.class);
+        assertThat(TracerResolver.resolveTracer(), is(not(sameInstance(TracerResolver.resolveTracer()))));
+    }
+
+    @Test
+    public void testCachedTracer() throws IOException {
+        try {
+            System.setProperty("tracerresolver.cached", "true");
+            TracerResolver.reload();
+            writeServiceFile(TracerFactory.class, Mocks.Prio0_TracerFactory.class);
+            Tracer tracer = TracerResolver.resolveTracer();
+            assertThat(tracer, is(instanceOf(Mocks.ResolvedTracerFromFactory.class)));
+            assertThat(TracerResolver.resolveTracer(), is(sameInstance(tracer)));
+
+            TracerResolver.invalidate(null);
+            assertThat(TracerResolver.resolveTracer(), is(not(sameInstance(tracer))));
+        } finally {
+            System.clearProperty("tracerresolver.cached");
+        }
+    }
+
+    @Test
+    public void testCachedTracerIsOnlyReferencedWeakly() throws IOException, InterruptedException {
+        try {
+            System.setProperty("tracerresolver.cached", "true");
+            TracerResolver.reload();
+            writeServiceFile(TracerFactory.class, Mocks.Prio0_TracerFactory.class);
+            WeakReference<Tracer> cached = new WeakReference<Tracer>(TracerResolver.resolveTracer());
+
+            for (int i = 0; i < 100 && cached.get() != null; i++) {
+                System.gc();
+                Thread.sleep(10);
+            }
+            assertThat("Cached tracer collected", cached.get(), is(nullValue()));
+            assertThat(TracerResolver.resolveTracer(), is(instanceOf(Mocks.ResolvedTracerFromFactory.class)));
+        } finally {
+            System.clearProperty("tracerresolver.cached");
+        }
+    }
+
+    @Test
+    public void testCachedNullTracerUntilReload() throws IOException {
+        try {
+            System.setProperty("tracerresolver.cached", "true");
+            TracerResolver.reload();
+            assertThat(TracerResolver.resolveTracer(), is(nullValue()));
+
+            writeServiceFile(TracerFactory.class, Mocks.Prio0_TracerFactory.class);
+            assertThat(TracerResolver.resolveTracer(), is(nullValue()));
+            TracerResolver.reload();
+            assertThat(TracerResolver.resolveTracer(), is(instanceOf(Mocks.ResolvedTracerFromFactory.class)));
+        } finally {
+            System.clearProperty("tracerresolver.cached");
+        }
+    }
+
+    @Test
+    public void testResolveTracerAsync() throws IOException, InterruptedException, ExecutionException {
+        writeServiceFile(TracerFactory.class, Mocks.Prio0_TracerFactory.class);
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        Future<Tracer> future = TracerResolver.resolveTracerAsync(null, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        });
+        assertThat("Resolution should not run on the calling thread", future.isDone(), is(false));
+
+        tasks.get(0).run();
+        assertThat(future.isDone(), is(true));
+        assertThat(future.get(), is(instanceOf(Mocks.ResolvedTracerFromFactory.class)));
+    }
+
+    @Test
+    public void testResolveTracerAsyncWithExecutorService() throws IOException, InterruptedException, ExecutionException {
+        writeServiceFile(TracerResolver.class, Mocks.MockTracerResolver.class);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Tracer> future = TracerResolver.resolveTracerAsync(getClass().getClassLoader(), executor);
+            assertThat(future.get(), is(instanceOf(Mocks.ResolvedTracer.class)));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testResolveDelegatingTracer() throws IOException {
+        writeServiceFile(TracerFactory.class, Mocks.Prio0_TracerFactory.class);
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        Tracer tracer = TracerResolver.resolveDelegatingTracer(null, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        });
+        assertThat(tracer, is(instanceOf(DelegatingTracer.class)));
+        assertThat(((DelegatingTracer) tracer).delegate(), is(instanceOf(NoopTracer.class)));
+        assertThat(tracer.buildSpan("before").start(), is(instanceOf(NoopSpan.class)));
+
+        tasks.get(0).run();
+        assertThat(((DelegatingTracer) tracer).delegate(), is(instanceOf(Mocks.ResolvedTracerFromFactory.class)));
+        assertThat(tracer.buildSpan("after").start(), is(instanceOf(MockSpan.class)));
+    }
+
+    @Test
+    public void testClosingDelegatingTracerLeavesGlobalTracerOpen() throws IOException {
+        writeServiceFile(TracerFactory.class, Mocks.Prio0_TracerFactory.class);
+        Mocks.CloseTrackingTracer globalTracer = new Mocks.CloseTrackingTracer();
+        GlobalTracer.registerIfAbsent(globalTracer);
+        Tracer tracer = TracerResolver.resolveDelegatingTracer(null, DIRECT);
+        assertThat(((DelegatingTracer) tracer).delegate(), is(sameInstance(GlobalTracer.get())));
+
+        tracer.close();
+        assertThat(globalTracer.closed, is(false));
+    }
+
+    @Test
+    public void testClosingDelegatingTracerLeavesCachedTracerOpen() throws IOException {
+        System.setProperty("tracerresolver.cached", "true");
+        try {
+            TracerResolver.reload();
+            writeServiceFile(TracerFactory.class, Mocks.Prio5_CloseTrackingTracerFactory.class);
+            Tracer tracer = TracerResolver.resolveDelegatingTracer(null, DIRECT);
+            Mocks.CloseTrackingTracer cached = (Mocks.CloseTrackingTracer) ((DelegatingTracer) tracer).delegate();
+
+            tracer.close();
+            assertThat(cached.closed, is(false));
+            assertThat(TracerResolver.resolveTracer(), is(sameInstance((Tracer) cached)));
+        } finally {
+            System.clearProperty("tracerresolver.cached");
+        }
+    }
+
+    @Test
+    public void testClosingDelegatingTracerClosesOwnedTracer() throws IOException {
+        writeServiceFile(TracerFactory.class, Mocks.Prio5_CloseTrackingTracerFactory.class);
+        Tracer tracer = TracerResolver.resolveDelegatingTracer(null, DIRECT);
+        Mocks.CloseTrackingTracer resolved = (Mocks.CloseTrackingTracer) ((DelegatingTracer) tracer).delegate();
+
+        tracer.close();
+        assertThat(resolved.closed, is(true));
+    }
+
+    @Test
+    public void testAbandonCandidateAfterTimeout() throws IOException, InterruptedException {
+        Mocks.Prio0_BlockingTracerFactory.release = new CountDownLatch(1);
+        Mocks.Prio0_BlockingTracerFactory.created.clear();
+        try {
+            System.setProperty("tracerresolver.candidate.timeout", "50");
+            TracerResolver.reload();
+            writeServiceFile(TracerFactory.class, Mocks.Prio0_BlockingTracerFactory.class);
+            writeServiceFile(TracerResolver.class, Mocks.MockTracerResolver.class);
+            assertThat(TracerResolver.resolveTracer(), is(instanceOf(Mocks.ResolvedTracer.class)));
+        } finally {
+            System.clearProperty("tracerresolver.candidate.timeout");
+            Mocks.Prio0_BlockingTracerFactory.release.countDown();
+        }
+
+        // The late tracer from the abandoned factory must be closed
+        for (int i = 0; i < 500 && Mocks.Prio0_BlockingTracerFactory.created.isEmpty(); i++) Thread.sleep(10);
+        Mocks.CloseTrackingTracer late = Mocks.Prio0_BlockingTracerFactory.created.get(0);
+        for (int i = 0; i < 500 && !late.closed; i++) Thread.sleep(10);
+        assertThat("Late tracer closed", late.closed, is(true));
+    }
+
+    @Test
+    public void testOverallTimeout() throws IOException {
+        Mocks.Prio0_BlockingTracerFactory.release = new CountDownLatch(1);
+        try {
+            System.setProperty("tracerresolver.timeout", "50");
+            TracerResolver.reload();
+            writeServiceFile(TracerFactory.class, Mocks.Prio0_BlockingTracerFactory.class);
+            writeServiceFile(TracerResolver.class, Mocks.MockTracerResolver.class);
+            assertThat(TracerResolver.resolveTracer(), is(nullValue()));
+        } finally {
+            System.clearProperty("tracerresolver.timeout");
+            Mocks.Prio0_BlockingTracerFactory.release.countDown();
+        }
+    }
+
+    @Test
+    public void testCandidateWithinTimeout() throws IOException {
+        try {
+            System.setProperty("tracerresolver.candidate.timeout", "10000");
+            TracerResolver.reload();
+            writeServiceFile(TracerFactory.class, Mocks.Prio0_TracerFactory.class);
+            assertThat(TracerResolver.resolveTracer(), is(instanceOf(Mocks.ResolvedTracerFromFactory.class)));
+        } finally {
+            System.clearProperty("tracerresolver.candidate.timeout");
+        }
+    }
+
+    @Test
+    public void testParallelFactoriesResolveHighestPriority() throws IOException, InterruptedException {
+        Mocks.Prio5_CloseTrackingTracerFactory.created.clear();
+        try {
+            System.setProperty("tracerresolver.factory.parallelism", "4");
+            TracerResolver.reload();
+            writeServiceFile(TracerFactory.class,
+                    Mocks.Prio5_CloseTrackingTracerFactory.class, Mocks.Prio0_TracerFactory.class);
+            assertThat(TracerResolver.resolveTracer(), is(instanceOf(Mocks.ResolvedTracerFromFactory.class)));
+        } finally {
+            System.clearProperty("tracerresolver.factory.parallelism");
+        }
+
+        // A losing tracer must be closed, unless its factory was cancelled before it was called
+        for (Mocks.CloseTrackingTracer loser : Mocks.Prio5_CloseTrackingTracerFactory.created) {
+            for (int i = 0; i < 500 && !loser.closed; i++) Thread.sleep(10);
+            assertThat("Losing tracer closed", loser.closed, is(true));
+        }
+    }
+
+    @Test
+    public void testParallelFactoriesAbandonSlowHighestPriority() throws IOException, InterruptedException {
+        Mocks.Prio0_BlockingTracerFactory.release = new CountDownLatch(1);
+        Mocks.Prio0_BlockingTracerFactory.created.clear();
+        Mocks.Prio5_CloseTrackingTracerFactory.created.clear();
+        try {
+            System.setProperty("tracerresolver.factory.parallelism", "2");
+            System.setProperty("tracerresolver.candidate.timeout", "50");
+            TracerResolver.reload();
+            writeServiceFile(TracerFactory.class,
+                    Mocks.Prio5_CloseTrackingTracerFactory.class, Mocks.Prio0_BlockingTracerFactory.class);
+            Tracer tracer = TracerResolver.resolveTracer();
+            assertThat(tracer, is(instanceOf(Mocks.CloseTrackingTracer.class)));
+            assertThat(Mocks.Prio5_CloseTrackingTracerFactory.created.contains(tracer), is(true));
+            assertThat("Resolved tracer closed", ((Mocks.CloseTrackingTracer) tracer).closed, is(false));
+        } finally {
+            System.clearProperty("tracerresolver.factory.parallelism");
+            System.clearProperty("tracerresolver.candidate.timeout");
+            Mocks.Prio0_BlockingTracerFactory.release.countDown();
+        }
+
+        // The late tracer from the abandoned factory must be closed
+        for (int i = 0; i < 500 && Mocks.Prio0_BlockingTracerFactory.created.isEmpty(); i++) Thread.sleep(10);
+        Mocks.CloseTrackingTracer late = Mocks.Prio0_BlockingTracerFactory.created.get(0);
+        for (int i = 0; i < 500 && !late.closed; i++) Thread.sleep(10);
+        assertThat("Late tracer closed", late.closed, is(true));
+    }
+
+    @Test
+    public void testConfiguredFactoryBypassesServiceLoader() throws IOException {
+        try {
+            System.setProperty("tracerresolver.factory", Mocks.Prio5_CloseTrackingTracerFactory.class.getName());
+            TracerResolver.reload();
+            writeServiceFile(TracerFactory.class, Mocks.Prio0_TracerFactory.class);
+            writeServiceFile(TracerResolver.class, Mocks.MockTracerResolver.class);
+            assertThat(TracerResolver.resolveTracer(), is(instanceOf(Mocks.CloseTrackingTracer.class)));
+        } finally {
+            System.clearProperty("tracerresolver.factory");
+        }
+    }
+
+    @Test
+    public void testConfiguredFactoryNotFound() throws IOException {
+        try {
+            System.setProperty("tracerresolver.factory", "com.example.MissingTracerFactory");
+            TracerResolver.reload();
+            writeServiceFile(TracerResolver.class, Mocks.MockTracerResolver.class);
+            TracerResolver.resolveTracer();
+            throw new AssertionError("Exception expected.");
+        } catch (IllegalStateException expected) {
+            assertThat(expected.getMessage(), containsString("com.example.MissingTracerFactory"));
+        } finally {
+            System.clearProperty("tracerresolver.factory");
+        }
+    }
+
+    @Test
+    public void testConfiguredFactoryConstructorFailure() {
+        try {
+            System.setProperty("tracerresolver.factory", Mocks.ConstructorThrowingTracerFactory.class.getName());
+            TracerResolver.reload();
+            TracerResolver.resolveTracer();
+            throw new AssertionError("Exception expected.");
+        } catch (IllegalStateException expected) {
+            assertThat(expected.getMessage(), containsString("could not be instantiated"));
+            assertThat(expected.getCause(), is(instanceOf(IllegalArgumentException.class)));
+        } finally {
+            System.clearProperty("tracerresolver.factory");
+        }
+    }
+
     static <SVC> void writeServiceFile(Class<SVC> service, Class<?>... implementations) throws IOException {
         SERVICES_DIR.mkdirs();
         File serviceFile = new File(SERVICES_DIR, service.getName());
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2017-2020 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.opentracing.contrib.tracerresolver;
+
+import io.opentracing.Tracer;
+import io.opentracing.util.GlobalTracerTestUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TracerWatcherTest {
+    private static final File CONFIG_FILE = new File("target/tracerresolver-watch.properties");
+    private TracerWatcher watcher;
+
+    @Before
+    public void configureFactory() throws IOException {
+        writeConfigFile(Mocks.Prio5_CloseTrackingTracerFactory.class.getName());
+        System.setProperty("tracerresolver.config", CONFIG_FILE.getPath());
+        TracerResolver.reload();
+    }
+
+    @After
+    public void cleanUp() {
+        if (watcher != null) watcher.close();
+        System.clearProperty("tracerresolver.config");
+        System.clearProperty("tracerresolver.cached");
+        CONFIG_FILE.delete();
+        TracerResolver.reload();
+        GlobalTracerTestUtil.resetGlobalTracer();
+    }
+
+    @Test
+    public void testReresolveSwapsAndClosesPreviousTracer() throws Exception {
+        watcher = TracerWatcher.watch(null);
+        Tracer handle = watcher.tracer();
+        Mocks.CloseTrackingTracer initial = (Mocks.CloseTrackingTracer) ((DelegatingTracer) handle).delegate();
+
+        writeConfigFile(Mocks.Prio0_TracerFactory.class.getName());
+        watcher.reresolve();
+
+        assertThat(watcher.tracer(), is(sameInstance(handle)));
+        assertThat(((DelegatingTracer) handle).delegate(), is(instanceOf(Mocks.ResolvedTracerFromFactory.class)));
+        for (int i = 0; i < 100 && !initial.closed; i++) Thread.sleep(10);
+        assertThat("Previous tracer closed after draining", initial.closed, is(true));
+    }
+
+    @Test
+    public void testFailedReresolveKeepsCurrentTracer() throws IOException {
+        watcher = TracerWatcher.watch(null);
+        Tracer current = ((DelegatingTracer) watcher.tracer()).delegate();
+
+        writeConfigFile("com.example.MissingTracerFactory");
+        watcher.reresolve();
+
+        assertThat(((DelegatingTracer) watcher.tracer()).delegate(), is(sameInstance(current)));
+        assertThat(((Mocks.CloseTrackingTracer) current).closed, is(false));
+    }
+
+    @Test
+    public void testReresolveKeepsTracersCachedForOtherClassLoaders() throws IOException {
+        System.setProperty("tracerresolver.cached", "true");
+        TracerResolver.reload();
+        ClassLoader other = new URLClassLoader(new URL[0], getClass().getClassLoader());
+        Tracer cached = TracerResolver.resolveTracer(other);
+        watcher = TracerWatcher.watch(null);
+
+        writeConfigFile(Mocks.Prio0_TracerFactory.class.getName());
+        watcher.reresolve();
+
+        assertThat(((DelegatingTracer) watcher.tracer()).delegate(), is(instanceOf(Mocks.ResolvedTracerFromFactory.class)));
+        assertThat(TracerResolver.resolveTracer(other), is(sameInstance(cached)));
+    }
+
+    @Test
+    public void testChangedFileIsDetected() throws Exception {
+        watcher = TracerWatcher.watch(null);
+        DelegatingTracer handle = (DelegatingTracer) watcher.tracer();
+
+        writeConfigFile(Mocks.Prio0_TracerFactory.class.getName());
+        CONFIG_FILE.setLastModified(System.currentTimeMillis() + 2000L);
+        for (int i = 0; i < 100 && !(handle.delegate() instanceof Mocks.ResolvedTracerFromFactory); i++) {
+            Thread.sleep(50);
+        }
+        assertThat(handle.delegate(), is(instanceOf(Mocks.ResolvedTracerFromFactory.class)));
+    }
+
+    @Test
+    public void testCloseClosesCurrentTracer() {
+        watcher = TracerWatcher.watch(null);
+        Mocks.CloseTrackingTracer current = (Mocks.CloseTrackingTracer) ((DelegatingTracer) watcher.tracer()).delegate();
+
+        watcher.close();
+        assertThat(current.closed, is(true));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testWatchRequiresConfigurationFile() {
+        System.clearProperty("tracerresolver.config");
+        TracerResolver.reload();
+        TracerWatcher.watch(null);
+    }
+
+    private static void writeConfigFile(String factoryClassName) throws IOException {
+        PrintWriter writer = new PrintWriter(new FileWriter(CONFIG_FILE));
+        try {
+            writer.println("tracerresolver.factory=" + factoryClassName);
+            writer.println("tracerresolver.watch.drain=0");
+        } finally {
+            writer.close();
+        }
+    }
+}